@@ -0,0 +1,52 @@
+package munch.restful.benchmarks;
+
+import munch.restful.core.NextNodeList;
+import munch.restful.server.JsonResult;
+import munch.restful.server.JsonTransformer;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the String render path against the envelope writer.
+ * Both write into a null stream, render includes the byte encoding spark does after it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonEnvelopeBenchmark {
+    private static final OutputStream output = NullOutputStream.NULL_OUTPUT_STREAM;
+
+    @Param({"0", "1", "10", "100", "1000"})
+    public int size;
+
+    private final JsonTransformer transformer = new JsonTransformer();
+    private NextNodeList<Payloads.Item> list;
+
+    @Setup
+    public void setup() {
+        list = new NextNodeList<>(Payloads.items(size), "id", size);
+    }
+
+    private JsonResult result() {
+        if (size == 0) return JsonResult.of(201);
+        return JsonResult.ok(list);
+    }
+
+    @Benchmark
+    public void render() throws IOException {
+        output.write(transformer.render(result()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        transformer.write(result(), output);
+    }
+}
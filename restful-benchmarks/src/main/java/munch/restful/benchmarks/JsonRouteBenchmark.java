@@ -0,0 +1,59 @@
+package munch.restful.benchmarks;
+
+import munch.restful.core.NextNodeList;
+import munch.restful.server.JsonResult;
+import munch.restful.server.JsonRoute;
+import org.openjdk.jmh.annotations.*;
+import spark.Request;
+import spark.Response;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wrapping of each kind of route result into JsonResult, excludes rendering.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonRouteBenchmark {
+
+    @Param({"object", "list", "nextNodeList", "jsonResult", "null"})
+    public String result;
+
+    private Request request;
+    private Response response;
+    private JsonRoute.Handler handler;
+
+    @Setup
+    public void setup() {
+        request = Servlets.request("/items/:id", "/items/1", Map.of());
+        response = Servlets.response();
+
+        Object value = value();
+        handler = call -> value;
+    }
+
+    private Object value() {
+        switch (result) {
+            case "object":
+                return Payloads.item(1);
+            case "list":
+                return Payloads.items(20);
+            case "nextNodeList":
+                return new NextNodeList<>(Payloads.items(20), "id", 20);
+            case "jsonResult":
+                return JsonResult.ok(Payloads.item(1)).put("extra", "value");
+            default:
+                return null;
+        }
+    }
+
+    @Benchmark
+    public JsonResult handle() throws Exception {
+        return JsonRoute.handle(request, response, handler);
+    }
+}
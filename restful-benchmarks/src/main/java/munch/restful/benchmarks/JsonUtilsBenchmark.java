@@ -0,0 +1,80 @@
+package munch.restful.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import munch.restful.core.JsonUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Binding of json String & JsonNode into objects, the work of every client response and request body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonUtilsBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int size;
+
+    private String itemJson;
+    private JsonNode itemNode;
+
+    private String listJson;
+    private JsonNode listNode;
+
+    private String mapJson;
+    private JsonNode mapNode;
+
+    @Setup
+    public void setup() {
+        itemJson = JsonUtils.toString(Payloads.item(1));
+        itemNode = JsonUtils.jsonToTree(itemJson);
+
+        List<Payloads.Item> items = Payloads.items(size);
+        listJson = JsonUtils.toString(items);
+        listNode = JsonUtils.jsonToTree(listJson);
+
+        Map<String, Payloads.Item> map = items.stream()
+                .collect(Collectors.toMap(Payloads.Item::getId, Function.identity()));
+        mapJson = JsonUtils.toString(map);
+        mapNode = JsonUtils.jsonToTree(mapJson);
+    }
+
+    @Benchmark
+    public Payloads.Item toObjectString() {
+        return JsonUtils.toObject(itemJson, Payloads.Item.class);
+    }
+
+    @Benchmark
+    public Payloads.Item toObjectNode() {
+        return JsonUtils.toObject(itemNode, Payloads.Item.class);
+    }
+
+    @Benchmark
+    public List<Payloads.Item> toListString() {
+        return JsonUtils.toList(listJson, Payloads.Item.class);
+    }
+
+    @Benchmark
+    public List<Payloads.Item> toListNode() {
+        return JsonUtils.toList(listNode, Payloads.Item.class);
+    }
+
+    @Benchmark
+    public Map<String, Payloads.Item> toMapString() {
+        return JsonUtils.toMap(mapJson, String.class, Payloads.Item.class);
+    }
+
+    @Benchmark
+    public Map<String, Payloads.Item> toMapNode() {
+        return JsonUtils.toMap(mapNode, String.class, Payloads.Item.class);
+    }
+}
@@ -0,0 +1,63 @@
+package munch.restful.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import munch.restful.core.JsonUtils;
+import munch.restful.core.NextNodeList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of NextNodeList through each constructor, the next node conversion is the cost beyond the list copy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NextNodeListBenchmark {
+
+    @Param({"0", "20", "100"})
+    public int size;
+
+    private List<Payloads.Item> items;
+    private JsonNode next;
+    private Map<String, Object> nextMap;
+    private NextNodeList<Payloads.Item> list;
+
+    @Setup
+    public void setup() {
+        items = Payloads.items(size);
+        nextMap = Map.of("id", "item-" + size, "score", size / 7.0);
+        next = JsonUtils.valueToTree(nextMap);
+        list = new NextNodeList<>(items, next);
+    }
+
+    @Benchmark
+    public NextNodeList<Payloads.Item> withoutNext() {
+        return new NextNodeList<>(items);
+    }
+
+    @Benchmark
+    public NextNodeList<Payloads.Item> withNode() {
+        return new NextNodeList<>(items, next);
+    }
+
+    @Benchmark
+    public NextNodeList<Payloads.Item> withMap() {
+        return new NextNodeList<>(items, nextMap);
+    }
+
+    @Benchmark
+    public NextNodeList<Payloads.Item> withKey() {
+        return new NextNodeList<>(items, "id", size);
+    }
+
+    @Benchmark
+    public NextNodeList<String> map() {
+        return list.map(Payloads.Item::getId);
+    }
+}
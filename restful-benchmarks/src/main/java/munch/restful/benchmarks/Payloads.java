@@ -0,0 +1,86 @@
+package munch.restful.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared payloads for benchmarks, sized like a typical restful-api document and list page.
+ */
+public final class Payloads {
+    private Payloads() {
+    }
+
+    /**
+     * @param size number of items
+     * @return list of items
+     */
+    public static List<Item> items(int size) {
+        List<Item> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(item(i));
+        }
+        return items;
+    }
+
+    /**
+     * @param id of item
+     * @return item with fixed content for given id
+     */
+    public static Item item(int id) {
+        Item item = new Item();
+        item.setId("item-" + id);
+        item.setName("Name of the item " + id);
+        item.setCount(id * 31);
+        item.setScore(id / 7.0);
+        item.setTags(List.of("tag-a", "tag-b", "tag-c"));
+        return item;
+    }
+
+    public static final class Item {
+        private String id;
+        private String name;
+        private int count;
+        private double score;
+        private List<String> tags;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public void setScore(double score) {
+            this.score = score;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package munch.restful.benchmarks;
+
+import spark.Request;
+import spark.RequestResponseFactory;
+import spark.Response;
+import spark.routematch.RouteMatch;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Spark request & response over in memory servlet stubs, for benchmarking routes without jetty.
+ * Stubs only answer what JsonRoute and JsonCall read, everything else returns null, 0 or false.
+ */
+public final class Servlets {
+    private Servlets() {
+    }
+
+    /**
+     * @param template route path, e.g. /items/:id
+     * @param path     request path, e.g. /items/123
+     * @param query    query params
+     * @return spark request with path params matched against template
+     */
+    public static Request request(String template, String path, Map<String, String> query) {
+        Map<String, String> params = new HashMap<>(query);
+        Map<String, Object> attributes = new HashMap<>();
+        String queryString = query.entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .collect(Collectors.joining("&"));
+
+        HttpServletRequest raw = stub(HttpServletRequest.class, (method, args) -> {
+            switch (method) {
+                case "getMethod":
+                    return "GET";
+                case "getPathInfo":
+                case "getRequestURI":
+                    return path;
+                case "getQueryString":
+                    return queryString.isEmpty() ? null : queryString;
+                case "getParameter":
+                    return params.get(args[0]);
+                case "getParameterMap":
+                    return Collections.unmodifiableMap(params);
+                case "getAttribute":
+                    return attributes.get(args[0]);
+                case "setAttribute":
+                    return attributes.put((String) args[0], args[1]);
+                default:
+                    return null;
+            }
+        });
+        return RequestResponseFactory.create(new RouteMatch(null, template, path, "*/*"), raw);
+    }
+
+    /**
+     * @return spark response that discards everything
+     */
+    public static Response response() {
+        return RequestResponseFactory.create(stub(HttpServletResponse.class, (method, args) -> null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> clazz, Answer answer) {
+        return (T) Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[]{clazz}, (proxy, method, args) -> {
+            Object value = answer.answer(method.getName(), args);
+            if (value != null || !method.getReturnType().isPrimitive()) return value;
+
+            Class<?> type = method.getReturnType();
+            if (type == boolean.class) return false;
+            if (type == int.class) return 0;
+            if (type == long.class) return 0L;
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    private interface Answer {
+        Object answer(String method, Object[] args);
+    }
+}
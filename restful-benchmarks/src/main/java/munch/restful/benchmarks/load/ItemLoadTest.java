@@ -0,0 +1,81 @@
+package munch.restful.benchmarks.load;
+
+import munch.restful.benchmarks.Payloads;
+import munch.restful.client.RestfulClient;
+import munch.restful.client.RestfulRequest;
+import munch.restful.core.NextNodeList;
+import munch.restful.server.JsonService;
+
+import java.time.Duration;
+
+/**
+ * Load test of an item service, a reference for writing load tests of real services.
+ * <pre>
+ * ./gradlew :restful-benchmarks:loadTest -Pargs="closed 64 30"
+ * ./gradlew :restful-benchmarks:loadTest -Pargs="open 5000 64 30"
+ * </pre>
+ */
+public final class ItemLoadTest {
+
+    /**
+     * @param args closed [concurrency] [seconds] or open [rate] [maxConcurrency] [seconds]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        LoadProfile profile = profile(args);
+
+        try (LoadTest test = LoadTest.start(new ItemService())) {
+            ItemClient client = new ItemClient(test.getUrl());
+            RequestMix mix = RequestMix.builder()
+                    .add("getItem", 8, () -> client.get(1))
+                    .add("listItems", 1, () -> client.list(20))
+                    .add("missingItem", 1, () -> client.get(-1))
+                    .build();
+
+            System.out.println(test.run(profile, mix));
+        }
+    }
+
+    private static LoadProfile profile(String[] args) {
+        String mode = args.length > 0 ? args[0] : "closed";
+        if (mode.equals("open")) {
+            double rate = args.length > 1 ? Double.parseDouble(args[1]) : 1000;
+            int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+            int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+            return LoadProfile.open(rate, concurrency, Duration.ofSeconds(seconds));
+        }
+
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        return LoadProfile.closed(concurrency, Duration.ofSeconds(seconds));
+    }
+
+    public static final class ItemService implements JsonService {
+        @Override
+        public void route() {
+            PATH("/items", () -> {
+                GET("", call -> {
+                    int size = call.querySize(20, 100);
+                    return new NextNodeList<>(Payloads.items(size), "id", size);
+                });
+                GET("/:id", call -> {
+                    int id = call.pathInt("id");
+                    return id < 0 ? null : Payloads.item(id);
+                });
+            });
+        }
+    }
+
+    public static final class ItemClient extends RestfulClient {
+        public ItemClient(String url) {
+            super(url);
+        }
+
+        public RestfulRequest get(int id) {
+            return doGet("/items/{id}").path("id", id);
+        }
+
+        public RestfulRequest list(int size) {
+            return doGet("/items").queryString("size", size);
+        }
+    }
+}
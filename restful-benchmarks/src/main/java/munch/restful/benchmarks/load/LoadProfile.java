@@ -0,0 +1,91 @@
+package munch.restful.benchmarks.load;
+
+import java.time.Duration;
+
+/**
+ * How load is driven, closed loop or open loop.
+ * <p>
+ * Closed loop: a fixed number of workers each send the next request as soon as the last one completes,
+ * throughput is whatever the server sustains.
+ * <p>
+ * Open loop: requests are sent on a fixed schedule regardless of how the server is coping,
+ * latency is measured from when the request was scheduled to be sent, not when a worker got to it.
+ */
+public final class LoadProfile {
+    private final boolean open;
+    private final int concurrency;
+    private final double rate;
+    private final Duration warmup;
+    private final Duration duration;
+
+    private LoadProfile(boolean open, int concurrency, double rate, Duration warmup, Duration duration) {
+        if (concurrency <= 0) throw new IllegalArgumentException("concurrency must be positive.");
+        if (open && rate <= 0) throw new IllegalArgumentException("rate must be positive.");
+        if (warmup.isNegative()) throw new IllegalArgumentException("warmup must not be negative.");
+        if (duration.isNegative() || duration.isZero()) throw new IllegalArgumentException("duration must be positive.");
+
+        this.open = open;
+        this.concurrency = concurrency;
+        this.rate = rate;
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    /**
+     * @param concurrency number of workers, each with one request in flight
+     * @param duration    to measure for, after 5 seconds of warm up
+     * @return closed loop profile
+     */
+    public static LoadProfile closed(int concurrency, Duration duration) {
+        return new LoadProfile(false, concurrency, 0, Duration.ofSeconds(5), duration);
+    }
+
+    /**
+     * @param rate           requests per second to send
+     * @param maxConcurrency number of workers, the most requests in flight, schedule falls behind once all are busy
+     * @param duration       to measure for, after 5 seconds of warm up
+     * @return open loop profile
+     */
+    public static LoadProfile open(double rate, int maxConcurrency, Duration duration) {
+        return new LoadProfile(true, maxConcurrency, rate, Duration.ofSeconds(5), duration);
+    }
+
+    /**
+     * @param warmup duration to send requests for before measuring, zero to skip
+     * @return new profile with warmup
+     */
+    public LoadProfile warmup(Duration warmup) {
+        return new LoadProfile(open, concurrency, rate, warmup, duration);
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @return requests per second, 0 for closed loop
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    @Override
+    public String toString() {
+        if (open) {
+            return "open loop, " + rate + " req/s, " + concurrency + " max concurrency, " + duration.getSeconds() + "s";
+        }
+        return "closed loop, " + concurrency + " concurrency, " + duration.getSeconds() + "s";
+    }
+}
@@ -0,0 +1,180 @@
+package munch.restful.benchmarks.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Throughput, status counts & latency percentiles of a load test run, in total and for each request of the mix.
+ * <p>
+ * Corrected latency accounts for coordinated omission: requests the load generator failed to send on time
+ * because the server was slow are counted as waiting from when they should have been sent.
+ * Uncorrected latency is only the time of each request actually sent, it hides stalls and should not be used for sizing.
+ */
+public final class LoadReport {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final LoadProfile profile;
+    private final double seconds;
+    private final Summary total;
+    private final Map<String, Summary> requests;
+
+    /**
+     * @param profile   of run
+     * @param mix       of run
+     * @param recorders of each worker, indexed by request of mix
+     * @param nanos     time taken by the measured run
+     */
+    LoadReport(LoadProfile profile, RequestMix mix, List<Recorder[]> recorders, long nanos) {
+        this.profile = profile;
+        this.seconds = nanos / 1e9;
+
+        List<Recorder> all = new ArrayList<>();
+        recorders.forEach(worker -> Collections.addAll(all, worker));
+        this.total = new Summary("total", all, seconds);
+
+        Map<String, Summary> requests = new LinkedHashMap<>();
+        for (int i = 0; i < mix.size(); i++) {
+            List<Recorder> request = new ArrayList<>();
+            for (Recorder[] worker : recorders) {
+                request.add(worker[i]);
+            }
+            requests.put(mix.getName(i), new Summary(mix.getName(i), request, seconds));
+        }
+        this.requests = Collections.unmodifiableMap(requests);
+    }
+
+    public LoadProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * @return duration of measured run in seconds
+     */
+    public double getSeconds() {
+        return seconds;
+    }
+
+    /**
+     * @return summary of all requests
+     */
+    public Summary getTotal() {
+        return total;
+    }
+
+    /**
+     * @return summary of each request of the mix, by name
+     */
+    public Map<String, Summary> getRequests() {
+        return requests;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(profile).append(String.format(", measured %.1fs%n", seconds));
+        builder.append(String.format("%-20s %10s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+                "request", "count", "req/s", "errors", "p50", "p90", "p99", "p99.9", "max", "p99 raw"));
+
+        for (Summary summary : requests.values()) {
+            summary.append(builder);
+        }
+        if (requests.size() > 1) total.append(builder);
+        builder.append("latency in ms, corrected for coordinated omission except p99 raw. status: ").append(total.getStatus());
+        return builder.toString();
+    }
+
+    public static final class Summary {
+        private final String name;
+        private final long count;
+        private final double throughput;
+        private final Map<Integer, Long> status;
+        private final long[] corrected;
+        private final long[] uncorrected;
+
+        private Summary(String name, List<Recorder> recorders, double seconds) {
+            this.name = name;
+            this.corrected = Recorder.samples(recorders, true);
+            this.uncorrected = Recorder.samples(recorders, false);
+            this.count = uncorrected.length;
+            this.throughput = count / seconds;
+
+            long[] codes = Recorder.status(recorders);
+            Map<Integer, Long> status = new TreeMap<>();
+            for (int i = 0; i < codes.length; i++) {
+                if (codes[i] > 0) status.put(i, codes[i]);
+            }
+            this.status = Collections.unmodifiableMap(status);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return number of requests sent
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return requests completed per second
+         */
+        public double getThroughput() {
+            return throughput;
+        }
+
+        /**
+         * @return count of each http status, 0 for requests that failed without a response
+         */
+        public Map<Integer, Long> getStatus() {
+            return status;
+        }
+
+        /**
+         * @return requests that failed without a response or with 5xx
+         */
+        public long getErrors() {
+            long errors = status.getOrDefault(Recorder.ERROR, 0L);
+            for (Map.Entry<Integer, Long> entry : status.entrySet()) {
+                if (entry.getKey() >= 500) errors += entry.getValue();
+            }
+            return errors;
+        }
+
+        /**
+         * @param percentile 0 to 100
+         * @return latency in milliseconds, corrected for coordinated omission
+         */
+        public double getLatency(double percentile) {
+            return percentile(corrected, percentile);
+        }
+
+        /**
+         * @param percentile 0 to 100
+         * @return latency in milliseconds of requests sent, not corrected
+         */
+        public double getUncorrectedLatency(double percentile) {
+            return percentile(uncorrected, percentile);
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) return 0;
+
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+        }
+
+        private void append(StringBuilder builder) {
+            builder.append(String.format("%-20s %10d %10.1f %8d", name, count, throughput, getErrors()));
+            for (double percentile : PERCENTILES) {
+                builder.append(String.format(" %10.2f", getLatency(percentile)));
+            }
+            builder.append(String.format(" %10.2f %10.2f%n", getLatency(100), getUncorrectedLatency(99)));
+        }
+    }
+}
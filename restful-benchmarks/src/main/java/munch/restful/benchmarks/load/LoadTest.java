@@ -0,0 +1,208 @@
+package munch.restful.benchmarks.load;
+
+import com.mashape.unirest.http.Unirest;
+import munch.restful.client.RestfulRequest;
+import munch.restful.core.exception.StructuredException;
+import munch.restful.server.RestfulServer;
+import munch.restful.server.RestfulService;
+import spark.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * In process load test, boots a RestfulServer on an ephemeral localhost port and drives it through RestfulRequest.
+ * <pre>
+ * try (LoadTest test = LoadTest.start(server -> server.withThreadPool(8, 64, Duration.ofMinutes(1), 1000), new ItemService())) {
+ *     ItemClient client = new ItemClient(test.getUrl());
+ *     RequestMix mix = RequestMix.builder()
+ *             .add("getItem", 9, () -> client.get(1))
+ *             .add("listItems", 1, () -> client.list(20))
+ *             .build();
+ *
+ *     System.out.println(test.run(LoadProfile.open(2000, 64, Duration.ofSeconds(30)), mix));
+ * }
+ * </pre>
+ * Each LoadTest runs its server on its own spark Service.
+ * The client and server share the machine, results are for comparing builds and configurations on the same machine.
+ */
+public final class LoadTest implements AutoCloseable {
+    private final RestfulServer server;
+    private final String url;
+
+    private LoadTest(RestfulServer server) {
+        this.server = server;
+        this.url = "http://localhost:" + server.getPort();
+    }
+
+    /**
+     * @param services to start server with
+     * @return started LoadTest
+     */
+    public static LoadTest start(RestfulService... services) {
+        return start(server -> {
+        }, services);
+    }
+
+    /**
+     * @param configure RestfulServer options applied before the server is started, e.g. withThreadPool
+     * @param services  to start server with
+     * @return started LoadTest
+     */
+    public static LoadTest start(Consumer<RestfulServer> configure, RestfulService... services) {
+        RestfulServer server = new RestfulServer(Service.ignite(), services);
+        configure.accept(server);
+        server.start(0);
+        return new LoadTest(server);
+    }
+
+    /**
+     * @return base url of server, e.g. http://localhost:41234
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    public RestfulServer getServer() {
+        return server;
+    }
+
+    /**
+     * Warm up with the profile, then measure.
+     * Closed loop uses the mean latency of warm up as the expected interval to correct for coordinated omission,
+     * without warm up closed loop latency is not corrected.
+     *
+     * @param profile of load
+     * @param mix     of requests
+     * @return report of measured run
+     * @throws InterruptedException if interrupted
+     */
+    public LoadReport run(LoadProfile profile, RequestMix mix) throws InterruptedException {
+        // Unirest defaults to 20 connections per route, which would cap concurrency
+        Unirest.setConcurrency(Math.max(200, profile.getConcurrency()), profile.getConcurrency());
+
+        long expectedInterval = 0;
+        if (!profile.getWarmup().isZero()) {
+            expectedInterval = mean(execute(profile, mix, profile.getWarmup().toNanos(), 0));
+        }
+
+        long start = System.nanoTime();
+        List<Recorder[]> recorders = execute(profile, mix, profile.getDuration().toNanos(), expectedInterval);
+        return new LoadReport(profile, mix, recorders, System.nanoTime() - start);
+    }
+
+    /**
+     * Stop the server
+     */
+    @Override
+    public void close() {
+        server.stop(Duration.ZERO);
+    }
+
+    private static List<Recorder[]> execute(LoadProfile profile, RequestMix mix, long nanos, long expectedInterval) throws InterruptedException {
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(profile.getConcurrency(), runnable -> {
+            Thread thread = new Thread(runnable, "load-test-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            long start = System.nanoTime();
+            AtomicLong sequence = new AtomicLong();
+            List<Future<Recorder[]>> futures = new ArrayList<>();
+            for (int i = 0; i < profile.getConcurrency(); i++) {
+                futures.add(executor.submit(() -> work(profile, mix, start, start + nanos, sequence, expectedInterval)));
+            }
+
+            List<Recorder[]> recorders = new ArrayList<>();
+            for (Future<Recorder[]> future : futures) {
+                recorders.add(future.get());
+            }
+            return recorders;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Open loop: each request is scheduled at start + n / rate, latency is measured from the schedule.
+     * A worker that falls behind sends right away, the time the request spent waiting for a worker is in its latency.
+     * Closed loop: each worker sends its next request as soon as the last completes.
+     */
+    private static Recorder[] work(LoadProfile profile, RequestMix mix, long start, long end, AtomicLong sequence, long expectedInterval) {
+        Recorder[] recorders = new Recorder[mix.size()];
+        for (int i = 0; i < recorders.length; i++) {
+            recorders[i] = new Recorder();
+        }
+
+        double interval = profile.isOpen() ? 1e9 / profile.getRate() : 0;
+        while (true) {
+            long scheduled;
+            if (profile.isOpen()) {
+                scheduled = start + (long) (sequence.getAndIncrement() * interval);
+                if (scheduled - end >= 0) break;
+
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+            } else {
+                scheduled = System.nanoTime();
+                if (scheduled - end >= 0) break;
+            }
+
+            int index = mix.next();
+            RestfulRequest request = mix.create(index);
+
+            long sent = System.nanoTime();
+            int status = send(request);
+            long done = System.nanoTime();
+
+            if (profile.isOpen()) {
+                recorders[index].recordOpen(status, done - scheduled, done - sent);
+            } else {
+                recorders[index].recordClosed(status, done - sent, expectedInterval);
+            }
+        }
+        return recorders;
+    }
+
+    /**
+     * @param request to send
+     * @return http status, 0 if failed without a response
+     */
+    private static int send(RestfulRequest request) {
+        try {
+            return request.asResponse().getStatus();
+        } catch (StructuredException e) {
+            return e.getCode();
+        } catch (RuntimeException e) {
+            return Recorder.ERROR;
+        }
+    }
+
+    /**
+     * @return mean latency in nanos of all requests, 0 if none
+     */
+    private static long mean(List<Recorder[]> recorders) {
+        long count = 0;
+        long total = 0;
+        for (Recorder[] worker : recorders) {
+            for (Recorder recorder : worker) {
+                count += recorder.getCount();
+                total += recorder.getTotalNanos();
+            }
+        }
+        return count == 0 ? 0 : total / count;
+    }
+}
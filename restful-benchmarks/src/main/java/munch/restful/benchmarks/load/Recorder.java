@@ -0,0 +1,107 @@
+package munch.restful.benchmarks.load;
+
+import java.util.Arrays;
+
+/**
+ * Latency samples & status counts of one request of the mix, owned by a single worker thread.
+ * Every sample is kept, percentiles are exact.
+ */
+final class Recorder {
+    static final int ERROR = 0;
+
+    private final long[] status = new long[600];
+
+    private long[] corrected = new long[1024];
+    private int correctedSize;
+
+    private long[] uncorrected = new long[1024];
+    private int uncorrectedSize;
+
+    /**
+     * Open loop needs no correction beyond measuring from when the request was scheduled.
+     *
+     * @param code             http status, 0 if no response
+     * @param correctedNanos   latency from when the request was scheduled to be sent
+     * @param uncorrectedNanos latency from when the request was sent
+     */
+    void recordOpen(int code, long correctedNanos, long uncorrectedNanos) {
+        status[code >= 0 && code < status.length ? code : ERROR]++;
+        addCorrected(correctedNanos);
+
+        if (uncorrectedSize == uncorrected.length) uncorrected = Arrays.copyOf(uncorrected, uncorrectedSize * 2);
+        uncorrected[uncorrectedSize++] = uncorrectedNanos;
+    }
+
+    /**
+     * Closed loop correction, a request taking longer than the expected interval stalled the requests
+     * that would have been sent behind it. Those are added as if sent on schedule, like HdrHistogram recordValueWithExpectedInterval.
+     *
+     * @param code             http status, 0 if no response
+     * @param nanos            latency of request
+     * @param expectedInterval between requests of a worker, 0 to skip correction
+     */
+    void recordClosed(int code, long nanos, long expectedInterval) {
+        recordOpen(code, nanos, nanos);
+        if (expectedInterval <= 0) return;
+
+        for (long missing = nanos - expectedInterval; missing >= expectedInterval; missing -= expectedInterval) {
+            addCorrected(missing);
+        }
+    }
+
+    private void addCorrected(long nanos) {
+        if (correctedSize == corrected.length) corrected = Arrays.copyOf(corrected, correctedSize * 2);
+        corrected[correctedSize++] = nanos;
+    }
+
+    /**
+     * @return number of requests sent
+     */
+    int getCount() {
+        return uncorrectedSize;
+    }
+
+    long getTotalNanos() {
+        long total = 0;
+        for (int i = 0; i < uncorrectedSize; i++) {
+            total += uncorrected[i];
+        }
+        return total;
+    }
+
+    /**
+     * @param recorders to merge
+     * @return status counts of all recorders
+     */
+    static long[] status(Iterable<Recorder> recorders) {
+        long[] merged = new long[600];
+        for (Recorder recorder : recorders) {
+            for (int i = 0; i < merged.length; i++) {
+                merged[i] += recorder.status[i];
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * @param recorders to merge
+     * @param corrected whether to merge corrected or uncorrected samples
+     * @return sorted samples of all recorders
+     */
+    static long[] samples(Iterable<Recorder> recorders, boolean corrected) {
+        int size = 0;
+        for (Recorder recorder : recorders) {
+            size += corrected ? recorder.correctedSize : recorder.uncorrectedSize;
+        }
+
+        long[] merged = new long[size];
+        int offset = 0;
+        for (Recorder recorder : recorders) {
+            int length = corrected ? recorder.correctedSize : recorder.uncorrectedSize;
+            System.arraycopy(corrected ? recorder.corrected : recorder.uncorrected, 0, merged, offset, length);
+            offset += length;
+        }
+        Arrays.sort(merged);
+        return merged;
+    }
+}
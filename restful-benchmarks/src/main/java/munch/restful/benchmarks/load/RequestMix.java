@@ -0,0 +1,99 @@
+package munch.restful.benchmarks.load;
+
+import munch.restful.client.RestfulRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Weighted mix of requests to send, each request sent is picked at random by weight.
+ * <pre>
+ * RequestMix.builder()
+ *         .add("getItem", 9, () -> client.get(1))
+ *         .add("listItems", 1, () -> client.list(20))
+ *         .build();
+ * </pre>
+ */
+public final class RequestMix {
+    private final String[] names;
+    private final List<Supplier<RestfulRequest>> requests;
+    private final int[] cumulative;
+
+    private RequestMix(List<String> names, List<Supplier<RestfulRequest>> requests, List<Integer> weights) {
+        if (names.isEmpty()) throw new IllegalArgumentException("RequestMix requires at least one request.");
+
+        this.names = names.toArray(new String[0]);
+        this.requests = new ArrayList<>(requests);
+        this.cumulative = new int[weights.size()];
+
+        int total = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            total += weights.get(i);
+            cumulative[i] = total;
+        }
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * @return index of the next request to send
+     */
+    int next() {
+        if (cumulative.length == 1) return 0;
+
+        int value = ThreadLocalRandom.current().nextInt(cumulative[cumulative.length - 1]);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (value < cumulative[i]) return i;
+        }
+        return cumulative.length - 1;
+    }
+
+    /**
+     * @param index of request
+     * @return new request to send
+     */
+    RestfulRequest create(int index) {
+        return requests.get(index).get();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final List<Supplier<RestfulRequest>> requests = new ArrayList<>();
+        private final List<Integer> weights = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * @param name    of request in report
+         * @param weight  relative to other requests
+         * @param request supplier of a new request each time, e.g. from a RestfulClient
+         * @return Builder
+         */
+        public Builder add(String name, int weight, Supplier<RestfulRequest> request) {
+            if (weight <= 0) throw new IllegalArgumentException("weight must be positive.");
+            if (names.contains(name)) throw new IllegalArgumentException(name + " is already added.");
+
+            names.add(name);
+            requests.add(request);
+            weights.add(weight);
+            return this;
+        }
+
+        public RequestMix build() {
+            return new RequestMix(names, requests, weights);
+        }
+    }
+}
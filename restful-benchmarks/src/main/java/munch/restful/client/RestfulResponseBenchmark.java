@@ -0,0 +1,62 @@
+package munch.restful.client;
+
+import com.mashape.unirest.http.HttpMethod;
+import com.mashape.unirest.http.HttpResponse;
+import munch.restful.benchmarks.Payloads;
+import munch.restful.core.JsonUtils;
+import munch.restful.core.NextNodeList;
+import munch.restful.core.exception.StructuredException;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Parsing of a restful response body by the client, from the buffered String into meta & data.
+ * In munch.restful.client as RestfulResponse can only be created within the package.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RestfulResponseBenchmark {
+    private static final BiConsumer<RestfulResponse, StructuredException> handler = (response, exception) -> {
+    };
+
+    @Param({"1", "20", "100"})
+    public int size;
+
+    private RestfulRequest request;
+    private HttpResponse<String> response;
+
+    @Setup
+    public void setup() {
+        String body = JsonUtils.createObjectNode(node -> {
+            node.putObject("meta").put("code", 200);
+            node.set("data", JsonUtils.valueToTree(Payloads.items(size)));
+            node.putObject("next").put("id", "item-" + size);
+        }).toString();
+
+        BasicHttpResponse raw = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        raw.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+
+        request = new RestfulRequest(HttpMethod.GET, "http://localhost/items");
+        response = new HttpResponse<>(raw, String.class);
+    }
+
+    @Benchmark
+    public RestfulResponse parse() {
+        return new RestfulResponse(request, response, handler);
+    }
+
+    @Benchmark
+    public NextNodeList<Payloads.Item> asNextNodeList() {
+        return new RestfulResponse(request, response, handler).asNextNodeList(Payloads.Item.class);
+    }
+}
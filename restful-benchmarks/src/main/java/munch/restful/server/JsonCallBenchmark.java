@@ -0,0 +1,61 @@
+package munch.restful.server;
+
+import munch.restful.benchmarks.Servlets;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query & path param parsing of JsonCall, each benchmark creates the JsonCall like JsonRoute does.
+ * In munch.restful.server as JsonCall can only be created within the package.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCallBenchmark {
+    public enum Sort {
+        NAME, COUNT, SCORE
+    }
+
+    private spark.Request request;
+    private spark.Response response;
+
+    @Setup
+    public void setup() {
+        request = Servlets.request("/items/:id", "/items/123456", Map.of(
+                "size", "20",
+                "next.count", "40",
+                "sort", "SCORE"
+        ));
+        response = Servlets.response();
+    }
+
+    @Benchmark
+    public int queryInt() {
+        return new JsonCall(request, response).queryInt("size");
+    }
+
+    @Benchmark
+    public int querySize() {
+        return new JsonCall(request, response).querySize(10, 50);
+    }
+
+    @Benchmark
+    public Integer queryObject() {
+        return new JsonCall(request, response).queryObject("next.count", null, Integer.class);
+    }
+
+    @Benchmark
+    public Sort queryEnum() {
+        return new JsonCall(request, response).queryEnum("sort", Sort.class, Sort.NAME);
+    }
+
+    @Benchmark
+    public long pathLong() {
+        return new JsonCall(request, response).pathLong("id");
+    }
+}
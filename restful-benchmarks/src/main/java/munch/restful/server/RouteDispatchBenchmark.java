@@ -0,0 +1,58 @@
+package munch.restful.server;
+
+import org.openjdk.jmh.annotations.*;
+import spark.Route;
+import spark.RouteImpl;
+import spark.route.HttpMethod;
+import spark.route.Routes;
+import spark.routematch.RouteMatch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching a request against n registered GET routes, spark route list against RouteTree.
+ * Routes are a mix of static and :param templates, the request matches one in the middle.
+ * In munch.restful.server as RouteTree is package private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteDispatchBenchmark {
+    private static final Route route = (request, response) -> "";
+
+    @Param({"10", "50", "200"})
+    public int routes;
+
+    private Routes spark;
+    private RouteTree tree;
+    private String path;
+
+    @Setup
+    public void setup() {
+        spark = Routes.create();
+        tree = new RouteTree();
+
+        for (int i = 0; i < routes; i++) {
+            String template = i % 2 == 0
+                    ? "/v1/resources" + i + "/:id"
+                    : "/v1/resources" + i + "/:id/children/:childId";
+            spark.add(HttpMethod.get, RouteImpl.create(template, route));
+            tree.add("GET", template, "*/*", route);
+        }
+        int middle = routes / 2 | 1;
+        path = "/v1/resources" + middle + "/123/children/456";
+    }
+
+    @Benchmark
+    public RouteMatch spark() {
+        return spark.find(HttpMethod.get, path, "*/*");
+    }
+
+    @Benchmark
+    public RouteTree.Match tree() {
+        return tree.find("GET", path, "*/*");
+    }
+}
@@ -6,6 +6,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mashape.unirest.http.HttpMethod;
 import com.mashape.unirest.request.HttpRequestWithBody;
 import com.mashape.unirest.request.body.MultipartBody;
+import munch.restful.core.JsonFormat;
 import munch.restful.core.NextNodeList;
 import munch.restful.core.exception.*;
 import org.apache.http.entity.ContentType;
@@ -32,6 +33,7 @@ public class RestfulRequest {
 
     protected final HttpRequestWithBody request;
     protected MultipartBody multipartBody;
+    protected JsonFormat format = JsonFormat.JSON;
 
     protected Function<Supplier<RestfulResponse>, RestfulResponse> executor;
 
@@ -102,6 +104,19 @@ public class RestfulRequest {
         return this;
     }
 
+    /**
+     * Binary format for service to service calls, call before {@link #body(Object)} for the body to be written in it.
+     * Responses are parsed by their Content-Type, errors answered as JSON are still parsed.
+     *
+     * @param format to accept and write body in, default JSON
+     * @return this
+     */
+    public RestfulRequest format(JsonFormat format) {
+        this.format = format;
+        if (format.isBinary()) request.header("Accept", format.getMediaType());
+        return this;
+    }
+
     public RestfulRequest header(String name, String value) {
         request.header(name, value);
         return this;
@@ -173,10 +188,16 @@ public class RestfulRequest {
     }
 
     /**
-     * @param object object to convert to json
+     * @param object object to convert to json, or to the binary format set with {@link #format(JsonFormat)}
      * @return this
      */
     public RestfulRequest body(Object object) {
+        if (format.isBinary()) {
+            request.header("Content-Type", format.getMediaType());
+            request.body(format.writeValueAsBytes(object));
+            return this;
+        }
+
         try {
             request.body(objectMapper.writeValueAsBytes(object));
             return this;
@@ -265,6 +286,7 @@ public class RestfulRequest {
      */
     protected RestfulResponse executeResponse(BiConsumer<RestfulResponse, StructuredException> handler) {
         try {
+            if (format.isBinary()) return RestfulResponse.ofBinary(this, request.asBinary(), handler);
             return new RestfulResponse(this, request.asString(), handler);
         } catch (Exception e) {
             ExceptionParser.parse(e);
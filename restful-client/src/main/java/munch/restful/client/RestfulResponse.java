@@ -1,11 +1,13 @@
 package munch.restful.client;
 
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mashape.unirest.http.Headers;
 import com.mashape.unirest.http.HttpResponse;
+import munch.restful.core.JsonFormat;
 import munch.restful.core.JsonUtils;
 import munch.restful.core.NextNodeList;
 import munch.restful.core.RestfulMeta;
@@ -48,16 +50,40 @@ public class RestfulResponse {
      * @param handler  handler for error
      */
     RestfulResponse(RestfulRequest request, HttpResponse<String> response, BiConsumer<RestfulResponse, StructuredException> handler) {
+        this(request, response, () -> objectMapper.readTree(response.getBody()), handler);
+    }
+
+    /**
+     * For response of a request with a binary format, body is parsed in the format of its Content-Type,
+     * errors answered by the server as JSON are still parsed as JSON.
+     *
+     * @param response unirest response
+     * @param handler  handler for error
+     * @return RestfulResponse
+     */
+    static RestfulResponse ofBinary(RestfulRequest request, HttpResponse<InputStream> response, BiConsumer<RestfulResponse, StructuredException> handler) {
+        return new RestfulResponse(request, response, () -> {
+            String contentType = response.getHeaders().getFirst("Content-Type");
+            if (contentType == null) contentType = response.getHeaders().getFirst("content-type");
+
+            JsonFormat format = JsonFormat.fromContentType(contentType);
+            try (JsonParser parser = format.getFactory().createParser(response.getBody())) {
+                return objectMapper.readTree(parser);
+            }
+        }, handler);
+    }
+
+    private RestfulResponse(RestfulRequest request, HttpResponse<?> response, BodyReader reader, BiConsumer<RestfulResponse, StructuredException> handler) {
         this.response = response;
         try {
             // Parsing JsonNode
-            this.jsonNode = objectMapper.readTree(response.getBody());
+            this.jsonNode = reader.read();
             try {
                 // Parsing RestfulMeta
                 meta = JsonUtils.toObject(getNode().path("meta"), RestfulMeta.class);
             } catch (JsonException e) {
                 throw new RuntimeException("RestfulMeta cannot be parsed. " +
-                        "Implementation of result does not adhere to required restful structure. \n" + response.getBody(), e);
+                        "Implementation of result does not adhere to required restful structure. \n" + getNode(), e);
             }
         } catch (IOException e) {
             // Added to handle 503 & 502 error from AWS ELB
@@ -199,4 +225,9 @@ public class RestfulResponse {
                 .collect(Collectors.joining(", "));
         throw new CodeException(code, "Explicit validation on code(" + codeList + ") failed.");
     }
-}
\ No newline at end of file
+
+    @FunctionalInterface
+    private interface BodyReader {
+        JsonNode read() throws IOException;
+    }
+}
@@ -0,0 +1,139 @@
+package munch.restful.core;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import munch.restful.core.exception.JsonException;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Wire format of the {meta, data, next} envelope, JSON or a binary format of the same data model.
+ * <p>
+ * Binary formats are meant for service to service calls, no number formatting or string escaping.
+ * Each format only has its own JsonFactory, values are read & written by JsonUtils.objectMapper,
+ * modules & features configured on it apply to every format.
+ */
+public enum JsonFormat {
+    JSON("application/json", JsonUtils.objectMapper.getFactory()),
+    SMILE("application/x-jackson-smile", new SmileFactory(JsonUtils.objectMapper)),
+    CBOR("application/cbor", new CBORFactory(JsonUtils.objectMapper));
+
+    private final String mediaType;
+    private final JsonFactory factory;
+
+    JsonFormat(String mediaType, JsonFactory factory) {
+        this.mediaType = mediaType;
+        this.factory = factory;
+    }
+
+    /**
+     * @return media type of format, e.g. application/cbor
+     */
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return factory of parser & generator, with JsonUtils.objectMapper as codec
+     */
+    public JsonFactory getFactory() {
+        return factory;
+    }
+
+    /**
+     * @return whether format is not textual JSON
+     */
+    public boolean isBinary() {
+        return this != JSON;
+    }
+
+    /**
+     * @param bytes to read
+     * @return JsonNode, null if bytes are empty
+     * @throws JsonException if bytes are not valid
+     */
+    public JsonNode readTree(byte[] bytes) {
+        try (JsonParser parser = factory.createParser(bytes)) {
+            return JsonUtils.objectMapper.readTree(parser);
+        } catch (IOException e) {
+            throw new JsonException(e);
+        }
+    }
+
+    /**
+     * @param bytes to read
+     * @param clazz to read into
+     * @param <T>   type
+     * @return value
+     * @throws JsonException if bytes are empty or not valid
+     */
+    public <T> T readValue(byte[] bytes, Class<T> clazz) {
+        try (JsonParser parser = factory.createParser(bytes)) {
+            return JsonUtils.objectMapper.readValue(parser, clazz);
+        } catch (IOException e) {
+            throw new JsonException(e);
+        }
+    }
+
+    /**
+     * @param value to write
+     * @return written bytes
+     * @throws JsonException if value cannot be written
+     */
+    public byte[] writeValueAsBytes(Object value) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (JsonGenerator generator = factory.createGenerator(output)) {
+            JsonUtils.objectMapper.writeValue(generator, value);
+        } catch (IOException e) {
+            throw new JsonException(e);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Only an explicitly listed binary type is negotiated, e.g. browsers sending *&#47;* get JSON.
+     *
+     * @param accept Accept header, nullable
+     * @return first binary format accepted, else JSON
+     */
+    public static JsonFormat fromAccept(@Nullable String accept) {
+        if (accept == null || accept.indexOf('/') < 0) return JSON;
+
+        for (String range : accept.split(",")) {
+            String[] params = range.split(";");
+            JsonFormat format = fromMediaType(params[0].trim());
+            if (format == JSON) continue;
+
+            boolean rejected = false;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=") && param.substring(2).trim().matches("0(\\.0*)?")) rejected = true;
+            }
+            if (!rejected) return format;
+        }
+        return JSON;
+    }
+
+    /**
+     * @param contentType Content-Type header, nullable
+     * @return format of body, JSON if not a binary format
+     */
+    public static JsonFormat fromContentType(@Nullable String contentType) {
+        if (contentType == null) return JSON;
+
+        int index = contentType.indexOf(';');
+        return fromMediaType((index < 0 ? contentType : contentType.substring(0, index)).trim());
+    }
+
+    private static JsonFormat fromMediaType(String mediaType) {
+        if (mediaType.equalsIgnoreCase(SMILE.mediaType)) return SMILE;
+        if (mediaType.equalsIgnoreCase(CBOR.mediaType)) return CBOR;
+        return JSON;
+    }
+}
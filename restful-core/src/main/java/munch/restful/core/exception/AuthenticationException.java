@@ -23,4 +23,12 @@ public final class AuthenticationException extends StructuredException {
     public AuthenticationException(int code, String message) {
         super(code, AuthenticationException.class, message);
     }
+
+    /**
+     * @param message error message
+     * @param cause   of the failure, e.g. JWTVerificationException of a token failing verification
+     */
+    public AuthenticationException(String message, Throwable cause) {
+        super(401, AuthenticationException.class, message, cause);
+    }
 }
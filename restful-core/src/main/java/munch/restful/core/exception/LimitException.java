@@ -18,4 +18,12 @@ public final class LimitException extends StructuredException {
     public LimitException(String message) {
         super(400, LimitException.class, message);
     }
+
+    /**
+     * @param code    error code, e.g. 429 for too many requests
+     * @param message error message
+     */
+    public LimitException(int code, String message) {
+        super(code, LimitException.class, message);
+    }
 }
@@ -15,15 +15,24 @@ import java.util.List;
  * Project: munch-core
  */
 public class StructuredException extends RuntimeException {
+    private static volatile boolean stackless = false;
+
     private final int code;
     private final String type;
     private final String message;
 
-    private final String stacktrace;
+    // Stacktrace String is only created from the throwable when needed
+    private final Throwable throwable;
+    private String stacktrace;
     private List<String> sources = new ArrayList<>();
 
     public StructuredException(StructuredException e) {
-        this(e.code, e.type, e.message, e.stacktrace);
+        super(e.type + ": " + e.message, null, true, !stackless);
+        this.code = e.code;
+        this.type = e.type;
+        this.message = e.message;
+        this.throwable = e.throwable;
+        this.stacktrace = e.stacktrace;
         this.sources = e.sources == null ? Collections.emptyList() : e.sources;
     }
 
@@ -66,11 +75,11 @@ public class StructuredException extends RuntimeException {
      */
     @Deprecated
     public StructuredException(int code, String type, String message, Throwable throwable) {
-        super(message, throwable);
+        super(message, throwable, true, !stackless);
         this.code = code;
         this.type = type;
         this.message = message;
-        this.stacktrace = ExceptionUtils.getStackTrace(throwable);
+        this.throwable = throwable;
     }
 
     /**
@@ -80,13 +89,34 @@ public class StructuredException extends RuntimeException {
      * @param stacktrace error stacktrace string
      */
     private StructuredException(int code, String type, String message, String stacktrace) {
-        super(type + ": " + message);
+        super(type + ": " + message, null, true, !stackless);
         this.code = code;
         this.type = type;
         this.message = message;
+        this.throwable = null;
         this.stacktrace = stacktrace;
     }
 
+    /**
+     * Production mode: StructuredException created after this will not capture their own stack trace.
+     * Stack trace of the cause is still kept, the exception is still logged with its type and message.
+     * <p>
+     * Capturing the stack is the main cost of creating exceptions, e.g. ParamException for every bad request.
+     * This is JVM-wide, every server and client exception in the process is affected, set it once on startup.
+     *
+     * @param stackless true to skip stack capture
+     */
+    public static void setStackless(boolean stackless) {
+        StructuredException.stackless = stackless;
+    }
+
+    /**
+     * @return whether StructuredException skip stack capture
+     */
+    public static boolean isStackless() {
+        return stackless;
+    }
+
     public int getCode() {
         return code;
     }
@@ -99,6 +129,18 @@ public class StructuredException extends RuntimeException {
         return sources;
     }
 
+    /**
+     * Created from the cause on first call
+     *
+     * @return stacktrace of the cause, or from the remote meta, nullable
+     */
+    public String getStacktrace() {
+        if (stacktrace == null && throwable != null) {
+            stacktrace = ExceptionUtils.getStackTrace(throwable);
+        }
+        return stacktrace;
+    }
+
     /**
      * Convert Structured exception to meta to restful use
      * To be safe, only use this method
@@ -106,13 +148,23 @@ public class StructuredException extends RuntimeException {
      * @return RestfulMeta
      */
     public RestfulMeta toMeta() {
+        return toMeta(true);
+    }
+
+    /**
+     * Convert Structured exception to meta to restful use
+     *
+     * @param withStacktrace false to not create the stacktrace String
+     * @return RestfulMeta
+     */
+    public RestfulMeta toMeta(boolean withStacktrace) {
         RestfulMeta meta = new RestfulMeta();
         meta.setCode(code);
 
         RestfulMeta.Error error = new RestfulMeta.Error();
         error.setType(type);
         error.setMessage(message);
-        error.setStacktrace(stacktrace);
+        if (withStacktrace) error.setStacktrace(getStacktrace());
         error.setSources(sources.isEmpty() ? null : sources);
         meta.setError(error);
         return meta;
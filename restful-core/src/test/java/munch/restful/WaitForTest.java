@@ -1,8 +1,18 @@
 package munch.restful;
 
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
 import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * Created By: Fuxing Loh
@@ -11,19 +21,53 @@ import java.time.Duration;
  * Project: munch-core
  */
 class WaitForTest {
+    private final AtomicInteger graphs = new AtomicInteger();
+    private HttpServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        // Stands in for postgres, a remote host & localstack, the test does not need them running
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/graph", exchange -> {
+            // Not ready for the first call
+            exchange.sendResponseHeaders(graphs.incrementAndGet() > 1 ? 200 : 503, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
 
     @Test
     void test() throws Exception {
-        WaitFor.host("jdbc:postgresql://localhost:5444/postgres".substring(5), Duration.ofSeconds(10));
+        WaitFor.host(("jdbc:postgresql://localhost:" + port() + "/postgres").substring(5), Duration.ofSeconds(10));
+        WaitFor.host("localhost", port(), Duration.ofSeconds(10));
     }
 
     @Test
     void url() throws Exception {
-        WaitFor.host("http://internal-corpus-service-data-970545893.ap-southeast-1.elb.amazonaws.com", Duration.ofSeconds(10));
+        WaitFor.host("http://localhost:" + port(), Duration.ofSeconds(10));
+    }
+
+    @Test
+    void unreachable() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        assertThrows(RuntimeException.class, () -> WaitFor.host("localhost", port, Duration.ofMillis(500)));
     }
 
     @Test
     void localstack() {
-        WaitFor.localstack("http://localhost:8080", Duration.ofSeconds(20));
+        WaitFor.localstack("http://localhost:" + port(), Duration.ofSeconds(20));
+        assertEquals(2, graphs.get());
+    }
+
+    private int port() {
+        return server.getAddress().getPort();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package munch.restful.core.exception;
+
+import munch.restful.core.RestfulMeta;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StructuredExceptionTest {
+
+    @AfterEach
+    void reset() {
+        StructuredException.setStackless(false);
+    }
+
+    @Test
+    void stacktrace() {
+        IllegalStateException cause = new IllegalStateException("cause");
+        StructuredException exception = new StructuredException(500, StructuredException.class, "Failed.", cause);
+
+        assertEquals(ExceptionUtils.getStackTrace(cause), exception.getStacktrace());
+        assertSame(exception.getStacktrace(), exception.getStacktrace());
+        assertNull(new StructuredException(400, StructuredException.class, "Failed.").getStacktrace());
+    }
+
+    @Test
+    void toMeta() {
+        StructuredException exception = new StructuredException(500, StructuredException.class, "Failed.", new IllegalStateException());
+
+        RestfulMeta.Error error = exception.toMeta(false).getError();
+        assertEquals(StructuredException.class.getName(), error.getType());
+        assertEquals("Failed.", error.getMessage());
+        assertNull(error.getStacktrace());
+
+        assertEquals(exception.getStacktrace(), exception.toMeta().getError().getStacktrace());
+    }
+
+    @Test
+    void stackless() {
+        assertTrue(new StructuredException(400, StructuredException.class, "Failed.").getStackTrace().length > 0);
+
+        StructuredException.setStackless(true);
+        IllegalStateException cause = new IllegalStateException("cause");
+        StructuredException exception = new StructuredException(400, StructuredException.class, "Failed.", cause);
+        assertEquals(0, exception.getStackTrace().length);
+        assertSame(cause, exception.getCause());
+        assertFalse(exception.getStacktrace().isEmpty());
+
+        StructuredException.setStackless(false);
+        assertTrue(new StructuredException(400, StructuredException.class, "Failed.").getStackTrace().length > 0);
+    }
+}
@@ -2,6 +2,11 @@ package munch.restful.core.exception;
 
 import org.junit.jupiter.api.Test;
 
+import javax.validation.constraints.NotNull;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 /**
  * Created by: Fuxing
  * Date: 17/1/2018
@@ -10,8 +15,21 @@ import org.junit.jupiter.api.Test;
  */
 class ValidationExceptionTest {
 
+    static class Item {
+        @NotNull
+        public String name;
+    }
+
     @Test
     void name() throws Exception {
-        ValidationException.validate(null);
+        // Hibernate validator rejects a null object instead of treating it as valid
+        assertThrows(IllegalArgumentException.class, () -> ValidationException.validate(null));
+
+        Item item = new Item();
+        ValidationException exception = assertThrows(ValidationException.class, () -> ValidationException.validate(item));
+        assertEquals(400, exception.getCode());
+
+        item.name = "name";
+        ValidationException.validate(item);
     }
-}
\ No newline at end of file
+}
@@ -64,7 +64,9 @@ public final class Auth0Authenticator extends TokenAuthenticator {
             throw new AuthenticationException("Cannot authenticate with jwt");
         } catch (JWTVerificationException e) {
             logger.warn("Not a valid token", e);
-            throw new AuthenticationException("Failed verification");
+            // Caused by JWTVerificationException, remembered by TokenCache as a rejection
+            throw new AuthenticationException("Failed verification", e);
         }
     }
+
 }
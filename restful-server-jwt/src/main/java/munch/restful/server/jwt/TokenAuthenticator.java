@@ -1,7 +1,10 @@
 package munch.restful.server.jwt;
 
+import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import munch.restful.core.exception.AuthenticationException;
+import munch.restful.core.exception.CodeException;
+import munch.restful.core.exception.StructuredException;
 import munch.restful.server.JsonCall;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,6 +21,23 @@ import java.util.Optional;
 public abstract class TokenAuthenticator<T extends AuthenticatedToken> {
     protected static final Logger logger = LoggerFactory.getLogger(TokenAuthenticator.class);
 
+    private volatile TokenCache cache;
+
+    /**
+     * @param cache of verified tokens, a cache must not be shared between authenticators, null to disable
+     */
+    public void setCache(@Nullable TokenCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @return cache of verified tokens, null if disabled
+     */
+    @Nullable
+    public TokenCache getCache() {
+        return cache;
+    }
+
     /**
      * defaults: requires authentication
      *
@@ -37,12 +57,12 @@ public abstract class TokenAuthenticator<T extends AuthenticatedToken> {
      */
     @Nullable
     public T authenticate(JsonCall call, boolean requires) throws AuthenticationException {
-        DecodedJWT decoded = call.getJWT();
-        if (decoded == null) {
+        String token = call.getJWTToken();
+        if (token == null) {
             if (requires) throw new AuthenticationException(403, "Forbidden");
             return null;
         }
-        return authenticate(decoded);
+        return verify(call, token);
     }
 
     /**
@@ -53,9 +73,39 @@ public abstract class TokenAuthenticator<T extends AuthenticatedToken> {
      * @throws AuthenticationException authentication error
      */
     public Optional<T> optional(JsonCall call) throws AuthenticationException {
-        DecodedJWT decoded = call.getJWT();
-        if (decoded == null) return Optional.empty();
-        return Optional.of(authenticate(decoded));
+        String token = call.getJWTToken();
+        if (token == null) return Optional.empty();
+        return Optional.of(verify(call, token));
+    }
+
+    /**
+     * @param call  json call
+     * @param token raw bearer token of call
+     * @return AuthenticatedToken, from cache if enabled
+     * @throws AuthenticationException authentication error
+     */
+    private T verify(JsonCall call, String token) throws AuthenticationException {
+        TokenCache cache = this.cache;
+        if (cache == null) return authenticate(call.getJWT());
+        return cache.authenticate(token, () -> authenticate(call.getJWT()), this::rejects);
+    }
+
+    private boolean rejects(StructuredException exception) {
+        // JsonCall.getJWT() throws 403 CodeException for a token that cannot be decoded
+        if (exception instanceof CodeException) return true;
+        return exception instanceof AuthenticationException && isRejection((AuthenticationException) exception);
+    }
+
+    /**
+     * Whether a failure of authenticate(DecodedJWT) rejects the token itself, e.g. bad signature or expired,
+     * instead of a transient failure, e.g. keys not retrieved from the issuer.
+     * Only rejections are remembered by TokenCache, a token that cannot be decoded is always a rejection.
+     *
+     * @param exception thrown by authenticate(DecodedJWT)
+     * @return true if caused by JWTVerificationException, thrown as {@code new AuthenticationException(message, e)}
+     */
+    protected boolean isRejection(AuthenticationException exception) {
+        return exception.getCause() instanceof JWTVerificationException;
     }
 
     public abstract T authenticate(DecodedJWT decodedJwt) throws AuthenticationException;
@@ -0,0 +1,263 @@
+package munch.restful.server.jwt;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import munch.restful.core.JsonUtils;
+import munch.restful.core.RestfulMeta;
+import munch.restful.core.exception.ExceptionParser;
+import munch.restful.core.exception.StructuredException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache of verified tokens for TokenAuthenticator, a token seen again is not decoded nor verified again.
+ * <p>
+ * Keyed by SHA-256 digest of the raw token. The cached AuthenticatedToken still holds the raw token,
+ * through getDecodedJWT().getToken(), the cache must be kept as private as the tokens it serves.
+ * A verified token expires at its exp claim, capped by maxTtl.
+ * A token rejected by verification, e.g. bad signature, expired or malformed, is remembered for negativeTtl
+ * and rejected with the same error. A transient failure, e.g. keys not retrieved from the issuer, is not remembered.
+ * <pre>
+ * authenticator.setCache(TokenCache.builder().maxEntries(10_000).build());
+ * </pre>
+ */
+public final class TokenCache {
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private final long maxTtlMillis;
+    private final long negativeTtlMillis;
+    private final int maxEntries;
+
+    private TokenCache(long maxTtlMillis, long negativeTtlMillis, int maxEntries) {
+        this.maxTtlMillis = maxTtlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return number of tokens served from cache as verified
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of tokens rejected from negative cache
+     */
+    public long getNegativeHits() {
+        return negativeHits.sum();
+    }
+
+    /**
+     * @return number of tokens verified by the authenticator
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return hits & negative hits over all lookups, 0 if none
+     */
+    public double getHitRate() {
+        long hits = getHits() + getNegativeHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return number of cached tokens, including expired not yet evicted
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Remove all cached tokens, e.g. after signing keys are rotated
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * @return hits, negativeHits, misses, hitRate & size
+     */
+    public ObjectNode snapshot() {
+        ObjectNode node = JsonUtils.objectMapper.createObjectNode();
+        node.put("hits", getHits());
+        node.put("negativeHits", getNegativeHits());
+        node.put("misses", getMisses());
+        node.put("hitRate", Math.round(getHitRate() * 1000) / 1000.0);
+        node.put("size", size());
+        return node;
+    }
+
+    /**
+     * @param token         raw bearer token
+     * @param authenticator to decode & verify token on miss
+     * @param rejection     whether a failure of authenticator rejects the token itself, only rejections are remembered
+     * @param <T>           type of AuthenticatedToken
+     * @return verified token, cached or from authenticator
+     * @throws StructuredException from authenticator or negative cache, e.g. AuthenticationException
+     */
+    @SuppressWarnings("unchecked")
+    <T extends AuthenticatedToken> T authenticate(String token, Supplier<T> authenticator, Predicate<StructuredException> rejection) {
+        String key = digest(token);
+        long now = System.currentTimeMillis();
+
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.isExpired(now)) {
+                entries.remove(key, entry);
+            } else if (entry.token != null) {
+                hits.increment();
+                return (T) entry.token;
+            } else {
+                negativeHits.increment();
+                // Thrown as the type of the original failure, e.g. AuthenticationException
+                StructuredException exception = StructuredException.fromMeta(entry.rejection, null);
+                ExceptionParser.parse(exception);
+                throw exception;
+            }
+        }
+
+        misses.increment();
+        T authenticated;
+        try {
+            authenticated = authenticator.get();
+        } catch (StructuredException e) {
+            if (negativeTtlMillis > 0 && rejection.test(e)) {
+                put(key, new Entry(null, e.toMeta(false), now + negativeTtlMillis));
+            }
+            throw e;
+        }
+
+        if (authenticated == null || !authenticated.isAuthenticated()) return authenticated;
+
+        long expiresAt = now + maxTtlMillis;
+        Date exp = authenticated.getDecodedJWT().getExpiresAt();
+        if (exp != null) expiresAt = Math.min(expiresAt, exp.getTime());
+        if (expiresAt > now) put(key, new Entry(authenticated, null, expiresAt));
+        return authenticated;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void put(String key, Entry entry) {
+        entries.put(key, entry);
+        if (entries.size() > maxEntries) evict();
+    }
+
+    /**
+     * Remove expired entries, then the entries expiring soonest until 10% under maxEntries
+     */
+    private synchronized void evict() {
+        if (entries.size() <= maxEntries) return;
+
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, Long>> alive = new ArrayList<>(entries.size());
+        entries.forEach((key, entry) -> {
+            if (entry.isExpired(now)) {
+                entries.remove(key, entry);
+            } else {
+                alive.add(Map.entry(key, entry.expiresAt));
+            }
+        });
+
+        int excess = entries.size() - (maxEntries - maxEntries / 10);
+        if (excess <= 0) return;
+
+        alive.sort(Comparator.comparingLong(Map.Entry::getValue));
+        for (int i = 0; i < excess && i < alive.size(); i++) {
+            entries.remove(alive.get(i).getKey());
+        }
+    }
+
+    private static final class Entry {
+        private final AuthenticatedToken token;
+        private final RestfulMeta rejection;
+        private final long expiresAt;
+
+        private Entry(AuthenticatedToken token, RestfulMeta rejection, long expiresAt) {
+            this.token = token;
+            this.rejection = rejection;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private long maxTtlMillis = Duration.ofHours(1).toMillis();
+        private long negativeTtlMillis = Duration.ofSeconds(10).toMillis();
+        private int maxEntries = 10_000;
+
+        private Builder() {
+        }
+
+        /**
+         * @param maxTtl of a verified token, also the ttl of a token without exp claim, default 1 hour
+         * @return Builder
+         */
+        public Builder maxTtl(Duration maxTtl) {
+            if (maxTtl.isNegative() || maxTtl.isZero()) throw new IllegalArgumentException("maxTtl must be positive.");
+            this.maxTtlMillis = maxTtl.toMillis();
+            return this;
+        }
+
+        /**
+         * @param negativeTtl of a token rejected by verification, zero to not cache rejections, default 10 seconds
+         * @return Builder
+         */
+        public Builder negativeTtl(Duration negativeTtl) {
+            if (negativeTtl.isNegative()) throw new IllegalArgumentException("negativeTtl must not be negative.");
+            this.negativeTtlMillis = negativeTtl.toMillis();
+            return this;
+        }
+
+        /**
+         * @param maxEntries of verified & rejected tokens, default 10,000
+         * @return Builder
+         */
+        public Builder maxEntries(int maxEntries) {
+            if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be positive.");
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * @return new TokenCache, a builder reused after does not change it
+         */
+        public TokenCache build() {
+            return new TokenCache(maxTtlMillis, negativeTtlMillis, maxEntries);
+        }
+    }
+}
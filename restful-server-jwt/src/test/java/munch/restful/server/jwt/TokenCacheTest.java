@@ -0,0 +1,191 @@
+package munch.restful.server.jwt;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import munch.restful.core.exception.AuthenticationException;
+import munch.restful.core.exception.CodeException;
+import munch.restful.core.exception.StructuredException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenCacheTest {
+    private static final Predicate<StructuredException> REJECTED = e -> true;
+    private static final Predicate<StructuredException> TRANSIENT = e -> false;
+
+    private final AtomicInteger verified = new AtomicInteger();
+
+    @Test
+    void cached() {
+        TokenCache cache = TokenCache.builder().build();
+        String token = token("user", Duration.ofHours(1));
+
+        AuthenticatedToken first = cache.authenticate(token, verify(token), REJECTED);
+        AuthenticatedToken second = cache.authenticate(token, verify(token), REJECTED);
+        assertSame(first, second);
+        assertEquals("user", second.getSubject());
+        assertEquals(1, verified.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate());
+
+        String other = token("other", Duration.ofHours(1));
+        assertEquals("other", cache.authenticate(other, verify(other), REJECTED).getSubject());
+        assertEquals(2, verified.get());
+    }
+
+    @Test
+    void expired() throws InterruptedException {
+        // Expired at exp claim, not cached at all if already expired
+        TokenCache cache = TokenCache.builder().build();
+        String token = token("user", Duration.ofHours(-1));
+        cache.authenticate(token, verify(token), REJECTED);
+        cache.authenticate(token, verify(token), REJECTED);
+        assertEquals(2, verified.get());
+
+        // Capped by maxTtl
+        cache = TokenCache.builder().maxTtl(Duration.ofMillis(100)).build();
+        token = token("user", Duration.ofHours(1));
+        cache.authenticate(token, verify(token), REJECTED);
+        cache.authenticate(token, verify(token), REJECTED);
+        assertEquals(3, verified.get());
+        Thread.sleep(150);
+        cache.authenticate(token, verify(token), REJECTED);
+        assertEquals(4, verified.get());
+    }
+
+    @Test
+    void rejected() {
+        TokenCache cache = TokenCache.builder().build();
+        Supplier<AuthenticatedToken> failing = fail(new AuthenticationException("Failed verification"));
+
+        assertThrows(AuthenticationException.class, () -> cache.authenticate("bad", failing, REJECTED));
+        AuthenticationException exception = assertThrows(AuthenticationException.class, () -> cache.authenticate("bad", failing, REJECTED));
+        assertEquals(401, exception.getCode());
+        assertEquals("Failed verification", exception.toMeta(false).getError().getMessage());
+        assertEquals(1, verified.get());
+        assertEquals(1, cache.getNegativeHits());
+
+        // Rethrown as its own type
+        Supplier<AuthenticatedToken> malformed = fail(new CodeException(403));
+        assertThrows(CodeException.class, () -> cache.authenticate("malformed", malformed, REJECTED));
+        CodeException code = assertThrows(CodeException.class, () -> cache.authenticate("malformed", malformed, REJECTED));
+        assertEquals(403, code.getCode());
+        assertEquals(2, verified.get());
+    }
+
+    @Test
+    void transientNotCached() {
+        TokenCache cache = TokenCache.builder().build();
+        Supplier<AuthenticatedToken> failing = fail(new AuthenticationException("Could not retrieve jwks from issuer"));
+
+        assertThrows(AuthenticationException.class, () -> cache.authenticate("token", failing, TRANSIENT));
+        assertThrows(AuthenticationException.class, () -> cache.authenticate("token", failing, TRANSIENT));
+        assertEquals(2, verified.get());
+        assertEquals(0, cache.getNegativeHits());
+        assertEquals(0, cache.size());
+
+        // Verified once the issuer is back
+        String token = token("user", Duration.ofHours(1));
+        assertEquals("user", cache.authenticate(token, verify(token), TRANSIENT).getSubject());
+    }
+
+    @Test
+    void rejection() {
+        TokenAuthenticator<AuthenticatedToken> authenticator = new TokenAuthenticator<>() {
+            @Override
+            public AuthenticatedToken authenticate(DecodedJWT decodedJwt) {
+                return new AuthenticatedToken(decodedJwt);
+            }
+        };
+
+        // Typed by the cause, not the message
+        assertTrue(authenticator.isRejection(new AuthenticationException("Failed verification", new TokenExpiredException("expired"))));
+        assertTrue(authenticator.isRejection(new AuthenticationException("Changed message", new TokenExpiredException("expired"))));
+        assertFalse(authenticator.isRejection(new AuthenticationException("Failed verification")));
+        assertFalse(authenticator.isRejection(new AuthenticationException("Could not retrieve jwks from issuer", new IllegalStateException())));
+    }
+
+    @Test
+    void rejectionExpired() throws InterruptedException {
+        TokenCache cache = TokenCache.builder().negativeTtl(Duration.ofMillis(100)).build();
+        Supplier<AuthenticatedToken> failing = fail(new AuthenticationException("Failed verification"));
+
+        assertThrows(AuthenticationException.class, () -> cache.authenticate("bad", failing, REJECTED));
+        assertThrows(AuthenticationException.class, () -> cache.authenticate("bad", failing, REJECTED));
+        assertEquals(1, verified.get());
+        Thread.sleep(150);
+        assertThrows(AuthenticationException.class, () -> cache.authenticate("bad", failing, REJECTED));
+        assertEquals(2, verified.get());
+
+        TokenCache disabled = TokenCache.builder().negativeTtl(Duration.ZERO).build();
+        assertThrows(AuthenticationException.class, () -> disabled.authenticate("bad", failing, REJECTED));
+        assertThrows(AuthenticationException.class, () -> disabled.authenticate("bad", failing, REJECTED));
+        assertEquals(4, verified.get());
+    }
+
+    @Test
+    void bounded() {
+        TokenCache cache = TokenCache.builder().maxEntries(10).build();
+        for (int i = 0; i < 30; i++) {
+            String token = token("user" + i, Duration.ofHours(1));
+            cache.authenticate(token, verify(token), REJECTED);
+        }
+        assertTrue(cache.size() <= 10);
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void builder() {
+        assertThrows(IllegalArgumentException.class, () -> TokenCache.builder().maxTtl(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> TokenCache.builder().negativeTtl(Duration.ofSeconds(-1)));
+        assertThrows(IllegalArgumentException.class, () -> TokenCache.builder().maxEntries(0));
+
+        // A builder reused after build does not change the cache built
+        TokenCache.Builder builder = TokenCache.builder().maxEntries(10);
+        TokenCache cache = builder.build();
+        builder.maxEntries(1000);
+        assertNotSame(cache, builder.build());
+        for (int i = 0; i < 30; i++) {
+            String token = token("user" + i, Duration.ofHours(1));
+            cache.authenticate(token, verify(token), REJECTED);
+        }
+        assertTrue(cache.size() <= 10);
+    }
+
+    private Supplier<AuthenticatedToken> verify(String token) {
+        return () -> {
+            verified.incrementAndGet();
+            return new AuthenticatedToken(JWT.decode(token));
+        };
+    }
+
+    private Supplier<AuthenticatedToken> fail(StructuredException exception) {
+        return () -> {
+            verified.incrementAndGet();
+            throw exception;
+        };
+    }
+
+    private static String token(String subject, Duration expiresIn) {
+        return JWT.create()
+                .withSubject(subject)
+                .withExpiresAt(new Date(System.currentTimeMillis() + expiresIn.toMillis()))
+                .sign(Algorithm.HMAC256("secret"));
+    }
+}
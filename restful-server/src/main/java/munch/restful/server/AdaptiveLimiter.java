@@ -0,0 +1,109 @@
+package munch.restful.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gradient concurrency limiter, the limit follows the ratio of long term latency to the latest latency.
+ * <p>
+ * While latency stays near its long term average, the limit grows by sqrt(limit) as headroom.
+ * Once latency climbs over 1.5 times the long term average, the limit shrinks, down to half per update.
+ * Limit only grows when the requests in flight are using at least half of it.
+ * <p>
+ * Acquiring is a single atomic increment. Updates are skipped if another thread is updating,
+ * request threads never wait on each other.
+ */
+final class AdaptiveLimiter {
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile int limit;
+
+    // Guarded by lock
+    private double estimatedLimit;
+    private double longRtt;
+
+    /**
+     * @param minLimit lowest limit
+     * @param maxLimit highest limit
+     */
+    AdaptiveLimiter(int minLimit, int maxLimit) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Concurrency limit must be 0 < minLimit <= maxLimit.");
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = Math.max(minLimit, Math.min(20, maxLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * @return in flight count when acquired including this request, -1 if rejected
+     */
+    int tryAcquire() {
+        int current = inflight.incrementAndGet();
+        if (current > limit) {
+            inflight.decrementAndGet();
+            rejected.increment();
+            return -1;
+        }
+        return current;
+    }
+
+    /**
+     * @param rttNanos time taken by the request
+     * @param acquired in flight count when the request was acquired
+     */
+    void release(long rttNanos, int acquired) {
+        inflight.decrementAndGet();
+        if (rttNanos <= 0 || !lock.tryLock()) return;
+
+        try {
+            update(rttNanos, acquired);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void update(double rtt, int acquired) {
+        if (longRtt == 0) {
+            longRtt = rtt;
+            return;
+        }
+
+        longRtt += (rtt - longRtt) / LONG_WINDOW;
+        // Recover baseline faster when latency drops after a sustained rise
+        if (longRtt / rtt > 2) longRtt *= 0.95;
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / rtt));
+        // App limited: no evidence the limit can go higher
+        if (gradient == 1.0 && acquired < estimatedLimit / 2) return;
+
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    int getInflight() {
+        return inflight.get();
+    }
+
+    long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,40 @@
+package munch.restful.server;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Optional binding of a field for {@link JsonCall#bind(Class)}, a field without it is bound from
+ * the query string param of the same name, optional with the field initializer as default.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BindParam {
+
+    /**
+     * @return name of param, field name if empty
+     */
+    String value() default "";
+
+    /**
+     * @return whether to bind from path param instead of query string
+     */
+    boolean path() default false;
+
+    /**
+     * @return whether a blank param is a ParamException instead of keeping the field initializer
+     */
+    boolean required() default false;
+
+    /**
+     * @return inclusive min of a number param, ParamException if below
+     */
+    long min() default Long.MIN_VALUE;
+
+    /**
+     * @return inclusive max of a number param, ParamException if above
+     */
+    long max() default Long.MAX_VALUE;
+}
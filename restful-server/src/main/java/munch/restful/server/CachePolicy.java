@@ -0,0 +1,330 @@
+package munch.restful.server;
+
+import munch.restful.core.JsonFormat;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server side cache of rendered GET JsonRoute responses.
+ * <p>
+ * Keyed by path, normalized query string and the selected request headers.
+ * Authorization and Cookie are always part of the key, a response is only served to the same caller,
+ * unless the policy is built as shared() for routes that answer every caller the same.
+ * Only 200 results are cached, async and Stream/Iterator JsonRoute are not cached.
+ * Headers the route sets, e.g. ETag, are cached with the body and replayed on a hit, Set-Cookie is never cached.
+ * Bytes are held with SoftReference, the GC evicts them under memory pressure.
+ * <p>
+ * A policy holds its own cache, keep a reference to it to invalidate entries:
+ * <pre>
+ * CachePolicy policy = CachePolicy.builder().ttl(Duration.ofMinutes(5)).shared().build();
+ * PATH("/v1", () -> GET("/countries/:id", call -> ..., policy));
+ * policy.invalidate("/countries/sg"); // or "/v1/countries/sg"
+ * </pre>
+ */
+public final class CachePolicy {
+    /**
+     * Request headers identifying the caller, part of the key unless shared
+     */
+    private static final String[] CALLER_HEADERS = {"Authorization", "Cookie"};
+
+    /**
+     * Response headers not replayed on a hit, per caller or set by the server for each response
+     */
+    private static final Set<String> UNCACHED_HEADERS = Set.of("set-cookie", "content-type", "content-length",
+            "content-encoding", "transfer-encoding", "connection", "date", "vary");
+
+    private final ConcurrentMap<String, SoftReference<Entry>> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Set<String> prefixes = ConcurrentHashMap.newKeySet();
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final String[] headers;
+
+    private CachePolicy(long ttlNanos, int maxEntries, String[] headers) {
+        this.ttlNanos = ttlNanos;
+        this.maxEntries = maxEntries;
+        this.headers = headers;
+    }
+
+    /**
+     * @return number of requests served from cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of requests not served from cache
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of entries in cache, including expired entries not yet evicted
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Invalidate all entries of the path, regardless of query string and headers.
+     * Path is resolved against the PATH group prefixes of the routes using this policy, the full path works as well.
+     *
+     * @param path request path, e.g. /countries/sg
+     */
+    public void invalidate(String path) {
+        for (String prefix : prefixes) {
+            String full = prefix + path;
+            entries.keySet().removeIf(key -> key.equals(full) || key.startsWith(full + "?") || key.startsWith(full + "\n"));
+        }
+    }
+
+    /**
+     * Invalidate all entries
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * @param route       json route to cache
+     * @param transformer to render with
+     * @param routes      the route is added to, maps exceptions of async route
+     * @param prefix      of the PATH groups the route is added in, empty if none
+     * @return spark route serving from cache
+     */
+    Route toRoute(JsonRoute route, JsonTransformer transformer, RestfulRoutes routes, String prefix) {
+        // Full path is always resolved
+        prefixes.add("");
+        prefixes.add(prefix);
+        return (request, response) -> {
+            String key = key(request);
+            Entry entry = get(key);
+            if (entry != null) {
+                hits.increment();
+                entry.headers.forEach((name, values) -> {
+                    response.raw().setHeader(name, values.get(0));
+                    for (int i = 1; i < values.size(); i++) response.raw().addHeader(name, values.get(i));
+                });
+                return write(response, entry.contentType, entry.body);
+            }
+
+            misses.increment();
+            Map<String, List<String>> before = headers(response.raw());
+            JsonResult result = route.handle(request, response);
+            if (result instanceof JsonAsyncResult) {
+                return JsonAsync.suspend((JsonAsyncResult) result, routes, request, response, transformer);
+            }
+            if (result.getCode() != 200 || result instanceof JsonStreamResult) {
+                return JsonStream.render(result, request, response, transformer);
+            }
+
+            JsonFormat format = JsonFormat.fromAccept(request.headers("Accept"));
+            if (format.isBinary()) response.type(format.getMediaType());
+            byte[] body = transformer.toBytes(JsonFields.apply(result, request), format);
+            Map<String, List<String>> set = headers(response.raw());
+            set.entrySet().removeIf(header -> header.getValue().equals(before.get(header.getKey())));
+            put(key, new Entry(body, response.raw().getContentType(), set, System.nanoTime() + ttlNanos));
+            return write(response, null, body);
+        };
+    }
+
+    private static String write(Response response, String contentType, byte[] body) throws IOException {
+        if (contentType != null) response.raw().setContentType(contentType);
+        response.raw().getOutputStream().write(body);
+        RestfulHandler.written(response.raw());
+        return "";
+    }
+
+    /**
+     * @param response to read from
+     * @return cacheable headers of the response
+     */
+    private static Map<String, List<String>> headers(HttpServletResponse response) {
+        Map<String, List<String>> headers = new HashMap<>();
+        for (String name : response.getHeaderNames()) {
+            if (UNCACHED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) continue;
+            headers.put(name, new ArrayList<>(response.getHeaders(name)));
+        }
+        return headers;
+    }
+
+    /**
+     * @param request to create key with
+     * @return path?sorted query\nheader:value, \nformat if binary
+     */
+    String key(Request request) {
+        StringBuilder builder = new StringBuilder(request.pathInfo());
+
+        String query = request.queryString();
+        if (query != null && !query.isEmpty()) {
+            String[] params = query.split("&");
+            Arrays.sort(params);
+            builder.append('?');
+            for (String param : params) {
+                if (param.isEmpty()) continue;
+                if (builder.charAt(builder.length() - 1) != '?') builder.append('&');
+                builder.append(param);
+            }
+        }
+
+        for (String header : headers) {
+            builder.append('\n').append(header).append(':');
+            String value = request.headers(header);
+            if (value != null) builder.append(value);
+        }
+
+        JsonFormat format = JsonFormat.fromAccept(request.headers("Accept"));
+        if (format.isBinary()) builder.append('\n').append(format.name());
+        return builder.toString();
+    }
+
+    private Entry get(String key) {
+        SoftReference<Entry> reference = entries.get(key);
+        if (reference == null) return null;
+
+        Entry entry = reference.get();
+        if (entry == null || entry.isExpired(System.nanoTime())) {
+            entries.remove(key, reference);
+            return null;
+        }
+        return entry;
+    }
+
+    private void put(String key, Entry entry) {
+        entries.put(key, new SoftReference<>(entry));
+        if (entries.size() > maxEntries) evict();
+    }
+
+    /**
+     * Removes expired or collected entries, then the entries expiring soonest until 90% of max entries.
+     */
+    private synchronized void evict() {
+        if (entries.size() <= maxEntries) return;
+
+        long now = System.nanoTime();
+        List<Map.Entry<String, Long>> alive = new ArrayList<>(entries.size());
+        entries.forEach((key, reference) -> {
+            Entry entry = reference.get();
+            if (entry == null || entry.isExpired(now)) {
+                entries.remove(key, reference);
+            } else {
+                alive.add(Map.entry(key, entry.expiresAt));
+            }
+        });
+
+        int excess = entries.size() - (maxEntries - maxEntries / 10);
+        if (excess <= 0) return;
+
+        alive.sort(Comparator.comparingLong(Map.Entry::getValue));
+        for (int i = 0; i < excess && i < alive.size(); i++) {
+            entries.remove(alive.get(i).getKey());
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] body;
+        private final String contentType;
+        private final Map<String, List<String>> headers;
+        private final long expiresAt;
+
+        private Entry(byte[] body, String contentType, Map<String, List<String>> headers, long expiresAt) {
+            this.body = body;
+            this.contentType = contentType;
+            this.headers = headers;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private long ttlNanos = Duration.ofMinutes(1).toNanos();
+        private int maxEntries = 1000;
+        private String[] headers = new String[0];
+        private boolean shared;
+
+        private Builder() {
+        }
+
+        /**
+         * @param ttl time to live of each entry, defaults to 1 minute
+         * @return Builder
+         */
+        public Builder ttl(Duration ttl) {
+            if (ttl.isNegative() || ttl.isZero()) throw new IllegalArgumentException("ttl must be positive.");
+            this.ttlNanos = ttl.toNanos();
+            return this;
+        }
+
+        /**
+         * @param maxEntries max number of entries in the cache, defaults to 1000
+         * @return Builder
+         */
+        public Builder maxEntries(int maxEntries) {
+            if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be positive.");
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * @param headers request headers that are part of the key, e.g. Accept-Language, in addition to Authorization and Cookie
+         * @return Builder
+         */
+        public Builder headers(String... headers) {
+            this.headers = headers.clone();
+            return this;
+        }
+
+        /**
+         * Authorization and Cookie are not part of the key, a response is served to every caller.
+         * Only for routes that answer every caller the same, e.g. public reference data.
+         *
+         * @return Builder
+         */
+        public Builder shared() {
+            this.shared = true;
+            return this;
+        }
+
+        /**
+         * @return new policy with its own cache, changes to the builder after do not apply to it
+         */
+        public CachePolicy build() {
+            Set<String> keyed = new LinkedHashSet<>();
+            if (!shared) keyed.addAll(Arrays.asList(CALLER_HEADERS));
+            for (String header : headers) {
+                // Header names are case insensitive, Authorization is not keyed twice
+                if (keyed.stream().noneMatch(header::equalsIgnoreCase)) keyed.add(header);
+            }
+            return new CachePolicy(ttlNanos, maxEntries, keyed.toArray(new String[0]));
+        }
+    }
+}
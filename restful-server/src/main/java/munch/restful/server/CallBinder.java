@@ -0,0 +1,208 @@
+package munch.restful.server;
+
+import munch.restful.core.exception.ParamException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds query string & path params of a JsonCall into a new instance of a class.
+ * <p>
+ * Fields, parsers & setters are resolved once per class and cached in a ClassValue, on the first bind or
+ * at route registration with JsonService.bind(Class...). Binding a request
+ * only parses each param and invokes the precompiled setter. Every non static, non final, non transient field
+ * is bound, a blank param keeps the field initializer unless required. A param that cannot be parsed,
+ * is out of bounds or is not a constant of the enum is a ParamException.
+ */
+final class CallBinder<T> {
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<CallBinder<?>> BINDERS = new ClassValue<CallBinder<?>>() {
+        @Override
+        protected CallBinder<?> computeValue(Class<?> type) {
+            return new CallBinder<>(type);
+        }
+    };
+
+    private static final ClassValue<Parser> PARSERS = new ClassValue<Parser>() {
+        @Override
+        protected Parser computeValue(Class<?> type) {
+            return parser(type);
+        }
+    };
+
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final Binding[] bindings;
+
+    private CallBinder(Class<T> type) {
+        this.type = type;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        try {
+            Constructor<T> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(type.getSimpleName() + " requires a no-arg constructor for bind()", e);
+        }
+
+        List<Binding> bindings = new ArrayList<>();
+        for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || Modifier.isTransient(modifiers)) continue;
+                if (field.isSynthetic()) continue;
+                bindings.add(new Binding(lookup, field));
+            }
+        }
+        this.bindings = bindings.toArray(new Binding[0]);
+    }
+
+    /**
+     * @param type to bind into
+     * @return cached binder of type
+     * @throws IllegalStateException if type cannot be bound
+     */
+    @SuppressWarnings("unchecked")
+    static <T> CallBinder<T> of(Class<T> type) {
+        return (CallBinder<T>) BINDERS.get(type);
+    }
+
+    /**
+     * @param type to parse into
+     * @return cached parser of type, null if type is not supported
+     */
+    static Parser parserOf(Class<?> type) {
+        return PARSERS.get(type);
+    }
+
+    /**
+     * @param call to bind params from
+     * @return new instance of type with params bound
+     * @throws ParamException if a param is missing or invalid
+     */
+    T bind(JsonCall call) {
+        Object object;
+        try {
+            object = constructor.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to construct " + type.getSimpleName() + " for bind()", e);
+        }
+
+        for (Binding binding : bindings) {
+            binding.bind(call, object);
+        }
+        return type.cast(object);
+    }
+
+    private static Parser parser(Class<?> type) {
+        if (type == String.class) return value -> value;
+        if (type == Integer.class || type == int.class) return Integer::valueOf;
+        if (type == Long.class || type == long.class) return Long::valueOf;
+        if (type == Double.class || type == double.class) return Double::valueOf;
+        if (type == Boolean.class || type == boolean.class) return Boolean::valueOf;
+
+        if (type.isEnum()) {
+            Map<String, Object> constants = new HashMap<>();
+            for (Object constant : type.getEnumConstants()) {
+                constants.put(((Enum<?>) constant).name(), constant);
+            }
+            return value -> {
+                Object constant = constants.get(value);
+                if (constant == null) throw new IllegalArgumentException(value);
+                return constant;
+            };
+        }
+        return null;
+    }
+
+    /**
+     * String to typed value, throws IllegalArgumentException if the value cannot be parsed
+     */
+    @FunctionalInterface
+    interface Parser {
+        Object parse(String value);
+    }
+
+    private static final class Binding {
+        private final String name;
+        private final boolean path;
+        private final boolean required;
+        private final boolean bounded;
+        private final long min;
+        private final long max;
+        private final Parser parser;
+        private final MethodHandle setter;
+
+        private Binding(MethodHandles.Lookup lookup, Field field) {
+            BindParam param = field.getAnnotation(BindParam.class);
+            this.name = param == null || param.value().isEmpty() ? field.getName() : param.value();
+            this.path = param != null && param.path();
+            this.required = param != null && param.required();
+            this.min = param == null ? Long.MIN_VALUE : param.min();
+            this.max = param == null ? Long.MAX_VALUE : param.max();
+            this.bounded = min != Long.MIN_VALUE || max != Long.MAX_VALUE;
+
+            Class<?> type = field.getType();
+            String description = field.getDeclaringClass().getSimpleName() + "." + field.getName();
+            this.parser = parserOf(type);
+            if (parser == null) {
+                throw new IllegalStateException(description + " of " + type.getSimpleName() + " is not supported for bind()");
+            }
+            if (bounded && (type == boolean.class || !type.isPrimitive() && !Number.class.isAssignableFrom(type))) {
+                throw new IllegalStateException(description + " is bounded but not a number");
+            }
+
+            try {
+                field.setAccessible(true);
+                this.setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(description + " is not accessible for bind()", e);
+            }
+        }
+
+        private void bind(JsonCall call, Object object) {
+            String value = path ? call.pathString(name, null) : call.queryString(name, null);
+            if (StringUtils.isBlank(value)) {
+                if (required) throw new ParamException(name);
+                return;
+            }
+
+            Object parsed;
+            try {
+                parsed = parser.parse(value);
+            } catch (IllegalArgumentException e) {
+                throw new ParamException(name);
+            }
+            if (bounded && !inBounds((Number) parsed)) throw new ParamException(name);
+
+            try {
+                setter.invokeExact(object, parsed);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private boolean inBounds(Number number) {
+            if (number instanceof Double) {
+                double value = number.doubleValue();
+                return value >= min && value <= max;
+            }
+            long value = number.longValue();
+            return value >= min && value <= max;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package munch.restful.server;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses json responses with the encoding negotiated from Accept-Encoding while they are written.
+ * <p>
+ * Bytes are held until minSize is reached, smaller bodies are written as is.
+ * After that, bytes are compressed straight into the jetty response buffer, no compressed copy of the body is kept.
+ * Body ends on flushBuffer() or close() of the output stream.
+ */
+final class CompressingResponse extends HttpServletResponseWrapper {
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    private final String encoding;
+    private final int minSize;
+    private final int level;
+
+    private CompressingStream stream;
+    private PrintWriter writer;
+
+    /**
+     * @param response jetty response
+     * @param encoding negotiated encoding, gzip or deflate
+     * @param minSize  min body size in bytes to compress
+     * @param level    deflater compression level
+     */
+    CompressingResponse(HttpServletResponse response, String encoding, int minSize, int level) {
+        super(response);
+        this.encoding = encoding;
+        this.minSize = minSize;
+        this.level = level;
+        response.addHeader("Vary", "Accept-Encoding");
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (stream == null) stream = new CompressingStream();
+        return stream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        finish();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (stream != null) stream.reset();
+        writer = null;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        if (stream != null) stream.reset();
+        writer = null;
+    }
+
+    /**
+     * End the body, buffered bytes are written and compression is finished
+     *
+     * @throws IOException if the underlying response failed
+     */
+    void finish() throws IOException {
+        if (writer != null) writer.flush();
+        if (stream != null) stream.finish();
+    }
+
+    /**
+     * @param acceptEncoding header value of the request
+     * @return gzip or deflate, null if neither is accepted
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) return null;
+
+        double gzip = -1, deflate = -1, any = 0;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase();
+            double quality = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+
+            switch (coding) {
+                case GZIP:
+                case "x-gzip":
+                    gzip = quality;
+                    break;
+                case DEFLATE:
+                    deflate = quality;
+                    break;
+                case "*":
+                    any = quality;
+                    break;
+            }
+        }
+
+        // * only stands in for an encoding that is not listed
+        if (gzip < 0) gzip = any;
+        if (deflate < 0) deflate = any;
+        if (gzip > 0 && gzip >= deflate) return GZIP;
+        if (deflate > 0) return DEFLATE;
+        return null;
+    }
+
+    /**
+     * @param etag quoted etag
+     * @return etag without the encoding suffix added when compressed
+     */
+    static String stripEncoding(String etag) {
+        if (etag.endsWith("-" + GZIP + "\"")) return etag.substring(0, etag.length() - GZIP.length() - 2) + '"';
+        if (etag.endsWith("-" + DEFLATE + "\"")) return etag.substring(0, etag.length() - DEFLATE.length() - 2) + '"';
+        return etag;
+    }
+
+    /**
+     * Only json bodies are compressed, the decision is made once minSize is reached or the body ends
+     */
+    private boolean shouldCompress() {
+        if (getHeader("Content-Encoding") != null) return false;
+
+        String contentType = getContentType();
+        return contentType != null && contentType.contains("json");
+    }
+
+    private final class CompressingStream extends ServletOutputStream {
+        private ByteArrayOutputStream buffer;
+        private ServletOutputStream raw;
+        private OutputStream out;
+        private DeflaterOutputStream compressor;
+        private Deflater deflater;
+        private boolean finished;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (finished) throw new IOException("Response body is already finished.");
+
+            if (out != null) {
+                out.write(bytes, offset, length);
+                return;
+            }
+
+            if (buffer == null) buffer = new ByteArrayOutputStream(Math.min(minSize, 8192));
+            buffer.write(bytes, offset, length);
+            if (buffer.size() >= minSize) start(true);
+        }
+
+        /**
+         * Chooses between compressed or raw body, buffered bytes are written into it
+         */
+        private void start(boolean compress) throws IOException {
+            raw = CompressingResponse.super.getOutputStream();
+            if (compress && shouldCompress()) {
+                setHeader("Content-Encoding", encoding);
+                // Strong ETag must differ between encodings of the same body
+                String etag = getHeader(JsonETag.ETAG);
+                if (etag != null && etag.endsWith("\"")) {
+                    setHeader(JsonETag.ETAG, etag.substring(0, etag.length() - 1) + "-" + encoding + "\"");
+                }
+                compressor = createCompressor(raw);
+                out = compressor;
+            } else {
+                out = raw;
+            }
+
+            if (buffer != null) {
+                buffer.writeTo(out);
+                buffer = null;
+            }
+        }
+
+        /**
+         * Compressor is closed to release the deflater when the body ends, raw stream is not closed with it.
+         * Deflater is kept to be released on reset, the compressor is not closed then as the body is discarded.
+         */
+        private DeflaterOutputStream createCompressor(OutputStream raw) throws IOException {
+            OutputStream unclosed = new FilterOutputStream(raw) {
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    out.write(bytes, offset, length);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    out.flush();
+                }
+            };
+
+            if (encoding.equals(GZIP)) {
+                return new GZIPOutputStream(unclosed, 8192, true) {
+                    {
+                        def.setLevel(level);
+                        deflater = def;
+                    }
+                };
+            }
+            deflater = new Deflater(level);
+            return new DeflaterOutputStream(unclosed, deflater, 8192, true) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    def.end();
+                }
+            };
+        }
+
+        /**
+         * Bytes under minSize are held until the body ends
+         */
+        @Override
+        public void flush() throws IOException {
+            if (out != null) out.flush();
+        }
+
+        private void finish() throws IOException {
+            if (finished) return;
+            finished = true;
+
+            if (out == null) {
+                if (buffer == null) return;
+                start(false);
+            }
+
+            if (compressor != null) {
+                compressor.close();
+            } else {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            CompressingResponse.super.getOutputStream().close();
+        }
+
+        private void reset() {
+            if (compressor != null) {
+                setHeader("Content-Encoding", null);
+                String etag = getHeader(JsonETag.ETAG);
+                if (etag != null) setHeader(JsonETag.ETAG, stripEncoding(etag));
+            }
+            if (deflater != null) deflater.end();
+            buffer = null;
+            raw = null;
+            out = null;
+            compressor = null;
+            deflater = null;
+            finished = false;
+        }
+
+        @Override
+        public boolean isReady() {
+            return compressor != null || raw == null || raw.isReady();
+        }
+
+        /**
+         * Compressor writes in blocking mode, with a WriteListener the body is written as is, uncompressed
+         *
+         * @throws IllegalStateException if compression already started
+         */
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            if (compressor != null) throw new IllegalStateException("Response body is already compressed.");
+
+            try {
+                if (out == null) start(false);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            raw.setWriteListener(writeListener);
+        }
+    }
+}
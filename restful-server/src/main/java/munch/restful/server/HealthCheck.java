@@ -0,0 +1,16 @@
+package munch.restful.server;
+
+/**
+ * A named health check of a dependency, e.g. a DynamoDB table or SQS queue.
+ * Run on a background schedule by RestfulServer, never on the request of a probe.
+ *
+ * @see RestfulServer#withHealthCheck(String, java.time.Duration, HealthCheck)
+ */
+@FunctionalInterface
+public interface HealthCheck {
+
+    /**
+     * @throws Exception if unhealthy, the message is reported in the health check response
+     */
+    void check() throws Exception;
+}
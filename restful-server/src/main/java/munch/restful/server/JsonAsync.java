@@ -0,0 +1,199 @@
+package munch.restful.server;
+
+import munch.restful.core.exception.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spark.Request;
+import spark.RequestResponseFactory;
+import spark.Response;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Suspends the servlet request (Servlet 3 async) until the CompletionStage returned by a JsonRoute completes.
+ * The request thread is released while waiting, the completed value is rendered & written in a jetty thread.
+ * <p>
+ * The completed value is converted the same way as JsonRoute,
+ * exceptions are mapped by the exception handlers of the RestfulServer the route is added to.
+ */
+final class JsonAsync {
+    private static final Logger logger = LoggerFactory.getLogger(JsonAsync.class);
+
+    /**
+     * Request attribute of the System.nanoTime() deadline to wait until instead of the default async timeout, e.g. batch sub requests
+     */
+    static final String DEADLINE_ATTRIBUTE = JsonAsync.class.getName() + ".deadline";
+
+    private JsonAsync() {
+    }
+
+    /**
+     * If the server is not started with RestfulServer or the stage is already completed,
+     * the value is waited for in the request thread instead, until the deadline attribute or for the default async timeout.
+     *
+     * @param result      async result of JsonRoute
+     * @param routes      the route is added to, for its exception handlers
+     * @param request     spark request
+     * @param response    spark response
+     * @param transformer to render completed JsonResult with
+     * @return rendered String or empty String if suspended
+     * @throws Exception exception of the completed stage if not suspended
+     */
+    static String suspend(JsonAsyncResult result, RestfulRoutes routes, Request request, Response response, JsonTransformer transformer) throws Exception {
+        CompletableFuture<?> future = result.getStage().toCompletableFuture();
+        if (future.isDone() || !(response.raw() instanceof RestfulHandler.SuspendableResponse)) {
+            Object value = get(future, timeoutMillis(request));
+            return JsonStream.render(JsonRoute.result(response, value), request, response, transformer);
+        }
+
+        RestfulHandler.SuspendableResponse suspendable = (RestfulHandler.SuspendableResponse) response.raw();
+        AsyncContext context = request.raw().startAsync(request.raw(), suspendable.getAsyncResponse());
+        context.setTimeout(suspendable.getAsyncTimeoutMillis());
+        suspendable.suspend();
+
+        // Written directly into jetty response, spark response is done with the request thread
+        Response asyncResponse = RequestResponseFactory.create((HttpServletResponse) context.getResponse());
+        AtomicBoolean completed = new AtomicBoolean();
+
+        context.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                if (!completed.compareAndSet(false, true)) return;
+
+                future.cancel(true);
+                writeException(timeout(suspendable.getAsyncTimeoutMillis()), routes, request, asyncResponse);
+                complete(context);
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        // Completed in the thread of the stage, rendering & writing is dispatched to the jetty thread pool
+        future.whenComplete((value, throwable) -> {
+            if (!completed.compareAndSet(false, true)) return;
+
+            Runnable complete = () -> {
+                try {
+                    if (throwable != null) throw unwrap(throwable);
+                    String body = JsonStream.render(JsonRoute.result(asyncResponse, value), request, asyncResponse, transformer);
+                    write(body, asyncResponse);
+                } catch (Exception e) {
+                    writeException(e, routes, request, asyncResponse);
+                } finally {
+                    complete(context);
+                }
+            };
+
+            try {
+                suspendable.getExecutor().execute(complete);
+            } catch (RejectedExecutionException e) {
+                // Thread pool queue is full, written in the thread of the stage instead of never
+                complete.run();
+            }
+        });
+        return "";
+    }
+
+    /**
+     * Body written by the route, by a stream or an exception handler is flushed before the response is completed,
+     * a compressed body is only finished by flushBuffer().
+     *
+     * @param context to complete
+     */
+    private static void complete(AsyncContext context) {
+        try {
+            context.getResponse().flushBuffer();
+        } catch (IOException e) {
+            // Aborted stream or client gone, nothing more can be written
+            logger.debug("Async JsonRoute response cannot be flushed", e);
+        } finally {
+            context.complete();
+        }
+    }
+
+    /**
+     * @return millis until the deadline attribute of the request, else the default async timeout
+     */
+    private static long timeoutMillis(Request request) {
+        Object deadline = request.raw().getAttribute(DEADLINE_ATTRIBUTE);
+        if (!(deadline instanceof Long)) return RestfulHandler.DEFAULT_ASYNC_TIMEOUT_MILLIS;
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis((Long) deadline - System.nanoTime()));
+    }
+
+    private static Object get(CompletableFuture<?> future, long timeoutMillis) throws Exception {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (java.util.concurrent.TimeoutException e) {
+            future.cancel(true);
+            throw timeout(timeoutMillis);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        }
+    }
+
+    private static TimeoutException timeout(long timeoutMillis) {
+        String message = "JsonRoute did not complete in " + timeoutMillis + "ms.";
+        return new TimeoutException(504, new java.util.concurrent.TimeoutException(message));
+    }
+
+    private static Exception unwrap(Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        if (throwable instanceof Exception) return (Exception) throwable;
+        return new CompletionException(throwable);
+    }
+
+    /**
+     * Map exception with the handlers of the routes, same as a synchronous route
+     *
+     * @param exception to map
+     * @param routes    with exception handlers
+     * @param request   spark request
+     * @param response  spark response to write into
+     */
+    static void writeException(Exception exception, RestfulRoutes routes, Request request, Response response) {
+        try {
+            if (!routes.handle(exception, request, response)) {
+                logger.error("Async JsonRoute exception not handled", exception);
+                response.status(500);
+                return;
+            }
+
+            write(response.body(), response);
+        } catch (Exception e) {
+            logger.error("Async JsonRoute exception cannot be written", e);
+        }
+    }
+
+    private static void write(String body, Response response) throws IOException {
+        if (body == null || body.isEmpty()) return;
+        if (response.raw().isCommitted()) return;
+
+        response.raw().getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
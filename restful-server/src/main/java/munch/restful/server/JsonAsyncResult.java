@@ -0,0 +1,21 @@
+package munch.restful.server;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Result of a JsonRoute that returned a CompletionStage, the value is converted after completion.
+ *
+ * @see JsonAsync
+ */
+final class JsonAsyncResult extends JsonResult {
+    private final CompletionStage<?> stage;
+
+    JsonAsyncResult(CompletionStage<?> stage) {
+        super(200);
+        this.stage = stage;
+    }
+
+    CompletionStage<?> getStage() {
+        return stage;
+    }
+}
@@ -0,0 +1,155 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import munch.restful.core.JsonFormat;
+import munch.restful.core.JsonUtils;
+import munch.restful.core.exception.JsonException;
+import munch.restful.core.exception.LimitException;
+import munch.restful.core.exception.ParamException;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads elements of a JSON array request body one at a time, only the current element is held in memory.
+ * <p>
+ * The body is parsed as it is read from the request input stream, over maxBytes or maxElements
+ * is a 413 LimitException thrown from the element that exceeded it. Closed at the end of the array or on error.
+ */
+final class JsonBodyIterator<T> implements Iterator<T>, Closeable {
+    private static final ObjectMapper objectMapper = JsonUtils.objectMapper;
+
+    private final Class<T> clazz;
+    private final LimitedInputStream input;
+    private final JsonParser parser;
+    private final int maxElements;
+
+    private int count;
+    private JsonToken next;
+    private boolean done;
+
+    /**
+     * @param format      of body to parse
+     * @param input       request body input stream
+     * @param clazz       of each element
+     * @param maxBytes    of body
+     * @param maxElements of array
+     * @throws ParamException if body is empty or not an array
+     * @throws JsonException  if body is not valid json
+     */
+    JsonBodyIterator(JsonFormat format, InputStream input, Class<T> clazz, long maxBytes, int maxElements) {
+        this.clazz = clazz;
+        this.maxElements = maxElements;
+
+        this.input = new LimitedInputStream(input, maxBytes);
+        try {
+            this.parser = format.getFactory().createParser(this.input);
+        } catch (IOException e) {
+            throw new JsonException(e);
+        }
+
+        if (nextToken() != JsonToken.START_ARRAY) {
+            close();
+            throw new ParamException("body");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (done) return false;
+        if (next == null) next = nextToken();
+
+        if (next == JsonToken.END_ARRAY || next == null) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        if (++count > maxElements) {
+            close();
+            throw new LimitException(413, "Request body is over " + maxElements + " elements.");
+        }
+
+        next = null;
+        try {
+            return objectMapper.readValue(parser, clazz);
+        } catch (IOException | RuntimeException e) {
+            throw failed(e);
+        }
+    }
+
+    private JsonToken nextToken() {
+        try {
+            return parser.nextToken();
+        } catch (IOException | RuntimeException e) {
+            throw failed(e);
+        }
+    }
+
+    /**
+     * @return exception to throw after closing, over maxBytes is a LimitException even if wrapped by jackson databind
+     */
+    private RuntimeException failed(Exception e) {
+        close();
+        if (input.limit != null) return input.limit;
+        if (e instanceof RuntimeException) return (RuntimeException) e;
+        return new JsonException(e);
+    }
+
+    @Override
+    public void close() {
+        if (done) return;
+        done = true;
+
+        try {
+            parser.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Throws LimitException once more than maxBytes is read
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long read;
+        private LimitException limit;
+
+        private LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count(n);
+            return n;
+        }
+
+        private void count(int n) {
+            read += n;
+            if (read > maxBytes) {
+                limit = new LimitException(413, "Request body is over " + maxBytes + " bytes.");
+                throw limit;
+            }
+        }
+    }
+}
@@ -4,21 +4,32 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.exceptions.JWTDecodeException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import munch.restful.core.JsonFormat;
 import munch.restful.core.JsonUtils;
 import munch.restful.core.exception.BadRequestException;
 import munch.restful.core.exception.CodeException;
 import munch.restful.core.exception.JsonException;
+import munch.restful.core.exception.LimitException;
 import munch.restful.core.exception.ParamException;
 import org.apache.commons.lang3.EnumUtils;
 import org.apache.commons.lang3.StringUtils;
 import spark.Request;
 import spark.Response;
+import spark.embeddedserver.jetty.HttpRequestWrapper;
 
 import javax.annotation.Nullable;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Created by: Fuxing
@@ -27,7 +38,8 @@ import java.util.function.Function;
  * Project: munch-core
  */
 public class JsonCall {
-    private static final ObjectMapper objectMapper = JsonService.objectMapper;
+    private static final long DEFAULT_MAX_BODY_BYTES = 64 * 1024 * 1024;
+    private static final int DEFAULT_MAX_BODY_ELEMENTS = 100_000;
 
     private final Request request;
     private final Response response;
@@ -78,15 +90,11 @@ public class JsonCall {
     }
 
     /**
-     * @return request body as JsonNode
+     * @return request body as JsonNode, read in the format of Content-Type
      * @throws JsonException json exception
      */
     public JsonNode bodyAsJson() {
-        try {
-            return objectMapper.readTree(request.bodyAsBytes());
-        } catch (IOException e) {
-            throw new JsonException(e);
-        }
+        return bodyFormat().readTree(request.bodyAsBytes());
     }
 
     /**
@@ -112,14 +120,18 @@ public class JsonCall {
     }
 
     /**
-     * @return request body as json object
+     * @return request body as json object, read in the format of Content-Type
      */
     public <T> T bodyAsObject(Class<T> clazz) {
-        try {
-            return objectMapper.readValue(request.bodyAsBytes(), clazz);
-        } catch (IOException e) {
-            throw new JsonException(e);
-        }
+        return bodyFormat().readValue(request.bodyAsBytes(), clazz);
+    }
+
+    /**
+     * @return format of request body, JSON unless Content-Type is a binary format
+     * @see JsonFormat#fromContentType(String)
+     */
+    public JsonFormat bodyFormat() {
+        return JsonFormat.fromContentType(request.contentType());
     }
 
     /**
@@ -140,6 +152,98 @@ public class JsonCall {
         return JsonUtils.toList(bodyAsJson(), mapper);
     }
 
+    /**
+     * Element by element iterator of a JSON array body with default limits,
+     * 64MB and 100,000 elements, see {@link #bodyAsIterator(Class, long, int)}.
+     *
+     * @param clazz of each element
+     * @param <T>   Type
+     * @return iterator of elements
+     */
+    public <T> Iterator<T> bodyAsIterator(Class<T> clazz) {
+        return bodyAsIterator(clazz, DEFAULT_MAX_BODY_BYTES, DEFAULT_MAX_BODY_ELEMENTS);
+    }
+
+    /**
+     * Element by element iterator of a JSON array body, for bulk routes to ingest in bounded memory.
+     * The body is parsed as it is read from the request, only the current element is held.
+     * Unlike {@link #bodyAsList(Class)} errors are thrown while iterating, not before.
+     *
+     * @param clazz       of each element
+     * @param maxBytes    of body, LimitException 413 if over
+     * @param maxElements of array, LimitException 413 if over
+     * @param <T>         Type
+     * @return iterator of elements
+     * @throws ParamException body is empty or not an array
+     * @throws JsonException  json exception
+     */
+    public <T> Iterator<T> bodyAsIterator(Class<T> clazz, long maxBytes, int maxElements) {
+        long length = request.raw().getContentLengthLong();
+        if (length > maxBytes) throw new LimitException(413, "Request body is over " + maxBytes + " bytes.");
+
+        try {
+            return new JsonBodyIterator<>(bodyFormat(), bodyAsInputStream(), clazz, maxBytes, maxElements);
+        } catch (IOException e) {
+            throw new JsonException(e);
+        }
+    }
+
+    /**
+     * Stream of a JSON array body with default limits, see {@link #bodyAsIterator(Class, long, int)}.
+     *
+     * @param clazz of each element
+     * @param <T>   Type
+     * @return sequential stream of elements
+     */
+    public <T> Stream<T> bodyAsStream(Class<T> clazz) {
+        return bodyAsStream(clazz, DEFAULT_MAX_BODY_BYTES, DEFAULT_MAX_BODY_ELEMENTS);
+    }
+
+    /**
+     * Stream of a JSON array body, see {@link #bodyAsIterator(Class, long, int)}.
+     *
+     * @param clazz       of each element
+     * @param maxBytes    of body, LimitException 413 if over
+     * @param maxElements of array, LimitException 413 if over
+     * @param <T>         Type
+     * @return sequential stream of elements
+     */
+    public <T> Stream<T> bodyAsStream(Class<T> clazz, long maxBytes, int maxElements) {
+        JsonBodyIterator<T> iterator = (JsonBodyIterator<T>) bodyAsIterator(clazz, maxBytes, maxElements);
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+
+    /**
+     * Spark caches the whole body in memory when its input stream is read,
+     * read from the servlet request underneath unless the body was already read through spark.
+     *
+     * @return input stream of request body
+     */
+    private InputStream bodyAsInputStream() throws IOException {
+        HttpServletRequest raw = request.raw();
+        if (raw instanceof HttpRequestWrapper) {
+            ServletInputStream input = ((HttpRequestWrapper) raw).getRequest().getInputStream();
+            if (!input.isFinished()) return input;
+        }
+        return raw.getInputStream();
+    }
+
+    /**
+     * Bind query string & path params into a new instance of clazz, see {@link BindParam}.
+     * Binding of clazz is resolved on the first call and cached, following calls don't reflect.
+     * Resolve it while the routes are added with {@link JsonService#bind(Class[])} to fail at start instead.
+     *
+     * @param clazz with no-arg constructor, fields of String, int, long, double, boolean, boxed or enum
+     * @param <T>   type
+     * @return new instance with params bound
+     * @throws ParamException        param is required but blank, not parsable or out of bounds
+     * @throws IllegalStateException clazz cannot be bound
+     */
+    public <T> T bind(Class<T> clazz) throws ParamException {
+        return CallBinder.of(clazz).bind(this);
+    }
+
     /**
      * @param name name of query string
      * @return long value from query string
@@ -309,27 +413,18 @@ public class JsonCall {
         return parseObject(name, value, clazz);
     }
 
-    @SuppressWarnings({"unchecked", "WrapperTypeMayBePrimitive"})
+    @SuppressWarnings("unchecked")
     private static <T> T parseObject(String name, String value, Class<T> clazz) {
-        try {
-            if (clazz == Long.class) {
-                Long i = Long.parseLong(value);
-                return (T) i;
-            }
-            if (clazz == Integer.class) {
-                Integer i = Integer.parseInt(value);
-                return (T) i;
-            }
-        } catch (NumberFormatException e) {
-            throw new ParamException(name);
+        CallBinder.Parser parser = CallBinder.parserOf(clazz);
+        if (parser == null) {
+            throw new IllegalStateException(clazz.getSimpleName() + " is not implemented for parseObject()");
         }
 
-        if (clazz == Boolean.class) {
-            Boolean b = Boolean.parseBoolean(value);
-            return (T) b;
+        try {
+            return (T) parser.parse(value);
+        } catch (IllegalArgumentException e) {
+            throw new ParamException(name);
         }
-
-        throw new IllegalStateException(clazz.getSimpleName() + " is not implemented for parseObject()");
     }
 
     /**
@@ -378,7 +473,7 @@ public class JsonCall {
      */
     @SuppressWarnings("unchecked")
     public <T> T pathObject(String name, T defaultValue, Class<T> clazz) {
-        String value = request.params(name);
+        String value = param(name);
         if (StringUtils.isBlank(value)) return defaultValue;
         if (clazz == String.class) return (T) value;
 
@@ -484,7 +579,7 @@ public class JsonCall {
      * @throws ParamException path param not found
      */
     public String pathString(String name) throws ParamException {
-        String value = request.params(name);
+        String value = param(name);
         if (StringUtils.isNotBlank(value)) {
             return value;
         }
@@ -497,11 +592,25 @@ public class JsonCall {
      * @return String value, or default
      */
     public String pathString(String name, String defaultValue) {
-        String value = request.params(name);
+        String value = param(name);
         if (value != null) return value;
         return defaultValue;
     }
 
+    /**
+     * @param name of path param, with or without leading ':'
+     * @return path param bound by RestfulRoutes dispatcher if dispatched, else from spark
+     */
+    @SuppressWarnings("unchecked")
+    private String param(String name) {
+        Map<String, String> params = (Map<String, String>) request.raw().getAttribute(RestfulRoutes.PARAMS_ATTRIBUTE);
+        if (params == null) return request.params(name);
+        if (name == null) return null;
+
+        if (name.startsWith(":")) name = name.substring(1);
+        return params.get(name.toLowerCase());
+    }
+
     /**
      * @param name name of header
      * @return nullable string header
@@ -525,6 +634,14 @@ public class JsonCall {
         }
     }
 
+    /**
+     * @return raw bearer token from Authorization header, null if not found
+     */
+    @Nullable
+    public String getJWTToken() {
+        return getJWTToken(this);
+    }
+
     /**
      * @param call Authorization get from header
      * @return token or null if don't exist
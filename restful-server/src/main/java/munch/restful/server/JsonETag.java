@@ -0,0 +1,116 @@
+package munch.restful.server;
+
+import munch.restful.core.JsonFormat;
+import spark.Request;
+import spark.Response;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Strong ETag for GET JsonRoute, answers If-None-Match with a body-less 304.
+ * <p>
+ * ETag is the route supplied JsonResult version if present, else the hash of the rendered body.
+ * Only 200 results are tagged, async and Stream/Iterator JsonRoute are not tagged.
+ * A version rendered in a binary format or with sparse fields is tagged with the format or fields appended,
+ * as it is a different representation.
+ */
+final class JsonETag {
+    static final String ETAG = "ETag";
+    static final String IF_NONE_MATCH = "If-None-Match";
+
+    private JsonETag() {
+    }
+
+    /**
+     * @param result      of route
+     * @param request     spark request
+     * @param response    spark response
+     * @param transformer to render with
+     * @return body, empty String if not modified or streamed
+     * @throws Exception if render failed
+     */
+    static String render(JsonResult result, Request request, Response response, JsonTransformer transformer) throws Exception {
+        if (result instanceof JsonStreamResult) return JsonStream.write((JsonStreamResult) result, request, response);
+        result = JsonFields.apply(result, request);
+        if (result.getCode() != 200) return transformer.render(result, request, response);
+
+        JsonFormat format = JsonFormat.fromAccept(request.headers("Accept"));
+        String version = result.getVersion();
+        if (version != null) {
+            if (result.getSparseFields() != null) version = version + "-" + result.getSparseFields().getValue();
+            String etag = quote(format.isBinary() ? version + "-" + format.name().toLowerCase() : version);
+            response.header(ETAG, etag);
+            if (matches(request.headers(IF_NONE_MATCH), etag)) return notModified(response);
+            return transformer.render(result, request, response);
+        }
+
+        if (format.isBinary()) response.type(format.getMediaType());
+        byte[] body = transformer.toBytes(result, format);
+        String etag = hash(body);
+        response.header(ETAG, etag);
+        if (matches(request.headers(IF_NONE_MATCH), etag)) return notModified(response);
+
+        response.raw().getOutputStream().write(body);
+        RestfulHandler.written(response.raw());
+        return "";
+    }
+
+    /**
+     * Written without a body, spark will not write a content type or body after
+     */
+    private static String notModified(Response response) {
+        response.status(304);
+        response.raw().setContentType(null);
+        RestfulHandler.written(response.raw());
+        return "";
+    }
+
+    /**
+     * @param version supplied by route
+     * @return quoted strong ETag, characters not allowed in ETag are replaced
+     */
+    static String quote(String version) {
+        StringBuilder builder = new StringBuilder(version.length() + 2).append('"');
+        for (int i = 0; i < version.length(); i++) {
+            char c = version.charAt(i);
+            // etagc = %x21 / %x23-7E, comma is replaced as it separates If-None-Match
+            builder.append(c == 0x21 || (c >= 0x23 && c <= 0x7E && c != ',') ? c : '_');
+        }
+        return builder.append('"').toString();
+    }
+
+    /**
+     * @param body rendered
+     * @return quoted strong ETag of the first 128 bits of SHA-256
+     */
+    static String hash(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Weak comparison as required for If-None-Match, encoding suffix added by CompressingResponse is ignored.
+     *
+     * @param ifNoneMatch header value, nullable
+     * @param etag        quoted etag of current result
+     * @return whether client has the current representation
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        if (ifNoneMatch.trim().equals("*")) return true;
+
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals(etag) || CompressingResponse.stripEncoding(tag).equals(etag)) return true;
+        }
+        return false;
+    }
+}
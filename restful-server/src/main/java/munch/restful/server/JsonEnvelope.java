@@ -0,0 +1,99 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes the {meta, data, next} envelope of a JsonResult with a JsonGenerator.
+ * <p>
+ * Field names and the meta block of each status code are pre-encoded once,
+ * data and next are serialized directly, no per-request Map is created.
+ */
+public final class JsonEnvelope {
+    static final SerializedString META = new SerializedString("meta");
+    static final SerializedString DATA = new SerializedString("data");
+    static final SerializedString NEXT = new SerializedString("next");
+
+    private static final SerializedString[] METAS = new SerializedString[600];
+
+    private JsonEnvelope() {
+    }
+
+    /**
+     * @param code status code
+     * @return pre-encoded meta block: {"code":code}
+     */
+    public static SerializableString meta(int code) {
+        if (code < 0 || code >= METAS.length) return createMeta(code);
+
+        SerializedString meta = METAS[code];
+        if (meta == null) {
+            // Racing threads create the same value, no lock needed
+            meta = createMeta(code);
+            METAS[code] = meta;
+        }
+        return meta;
+    }
+
+    /**
+     * Binary generators cannot write raw values, the meta block is written as an object instead
+     *
+     * @param generator to write with
+     * @param code      status code
+     * @throws IOException if generator failed
+     */
+    static void writeMeta(JsonGenerator generator, int code) throws IOException {
+        if (!generator.canWriteBinaryNatively()) {
+            generator.writeRawValue(meta(code));
+            return;
+        }
+
+        generator.writeStartObject();
+        generator.writeNumberField("code", code);
+        generator.writeEndObject();
+    }
+
+    private static SerializedString createMeta(int code) {
+        SerializedString meta = new SerializedString("{\"code\":" + code + "}");
+        // Encode eagerly so the bytes are ready for every write
+        meta.asUnquotedUTF8();
+        return meta;
+    }
+
+    /**
+     * @param generator to write with
+     * @param result    to write
+     * @throws IOException if generator failed
+     */
+    public static void write(JsonGenerator generator, JsonResult result) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(META);
+        writeMeta(generator, result.getCode());
+
+        if (result.hasData()) {
+            generator.writeFieldName(DATA);
+            JsonFields sparseFields = result.getSparseFields();
+            if (sparseFields != null) sparseFields.write(generator, result.getData());
+            else generator.writeObject(result.getData());
+        }
+
+        if (result.hasNext()) {
+            generator.writeFieldName(NEXT);
+            generator.writeObject(result.getNext());
+        }
+
+        Map<String, Object> fields = result.getFields();
+        if (fields != null) {
+            for (Map.Entry<String, Object> entry : fields.entrySet()) {
+                if (entry.getKey().equals("meta")) continue;
+                generator.writeFieldName(entry.getKey());
+                generator.writeObject(entry.getValue());
+            }
+        }
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,242 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotationIntrospectorPair;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.fasterxml.jackson.databind.ser.BeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import munch.restful.core.JsonUtils;
+import munch.restful.core.exception.ParamException;
+import org.apache.commons.lang3.StringUtils;
+import spark.Request;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Sparse fieldset of ?fields=name,images.url, only the listed fields of data are serialized.
+ * <p>
+ * Filtered inside the serializer: data is written with a copy of JsonUtils.objectMapper where every bean & map
+ * has a PropertyFilter, a field not listed is skipped before its value is read, no tree is built.
+ * A listed field includes everything under it, fields of objects in arrays are listed without index.
+ * Lists & NextNodeList are filtered per element, next and meta are never filtered, JsonNode data is written as is.
+ *
+ * @see JsonService#sparseFields()
+ */
+final class JsonFields {
+    static final String PARAM = "fields";
+    static final String ATTRIBUTE = JsonFields.class.getName();
+
+    private static final String FILTER_ID = JsonFields.class.getName();
+    private static final int MAX_CACHED = 1024;
+    private static final ConcurrentMap<String, JsonFields> CACHE = new ConcurrentHashMap<>();
+
+    private final String value;
+    private final Node root;
+
+    private JsonFields(String value, Node root) {
+        this.value = value;
+        this.root = root;
+    }
+
+    /**
+     * @param request to bind fields query param of, nothing is bound if blank
+     * @throws ParamException if fields is not valid
+     */
+    static void bind(Request request) {
+        String value = request.queryParams(PARAM);
+        if (StringUtils.isBlank(value)) return;
+        request.attribute(ATTRIBUTE, parse(value));
+    }
+
+    /**
+     * @param request with fields bound
+     * @return fields of request, null if not bound
+     */
+    static JsonFields of(Request request) {
+        return (JsonFields) request.raw().getAttribute(ATTRIBUTE);
+    }
+
+    /**
+     * @param result  to filter data of
+     * @param request with fields bound
+     * @return copy of result with fields, the same result if not bound or without data
+     */
+    static JsonResult apply(JsonResult result, Request request) {
+        JsonFields fields = of(request);
+        if (fields == null || !result.hasData() || result instanceof JsonStreamResult) return result;
+        return result.withSparseFields(fields);
+    }
+
+    /**
+     * @param value e.g. name,images.url
+     * @return parsed fields, cached
+     * @throws ParamException if a path is empty
+     */
+    static JsonFields parse(String value) {
+        JsonFields fields = CACHE.get(value);
+        if (fields != null) return fields;
+
+        Node root = new Node();
+        for (String path : value.split(",")) {
+            String[] names = path.trim().split("\\.", -1);
+            Node node = root;
+            for (int i = 0; i < names.length && node != Node.ALL; i++) {
+                String name = names[i].trim();
+                if (name.isEmpty()) throw new ParamException(PARAM);
+                node = i == names.length - 1 ? node.all(name) : node.child(name);
+            }
+        }
+
+        fields = new JsonFields(value, root);
+        if (CACHE.size() < MAX_CACHED) CACHE.putIfAbsent(value, fields);
+        return fields;
+    }
+
+    /**
+     * @return fields as requested, e.g. name,images.url
+     */
+    String getValue() {
+        return value;
+    }
+
+    /**
+     * @param generator positioned to write value at, e.g. after the data field name
+     * @param value     to write, objects within are filtered
+     * @throws IOException if generator failed
+     */
+    void write(JsonGenerator generator, Object value) throws IOException {
+        writer(generator.getOutputContext()).writeValue(generator, value);
+    }
+
+    /**
+     * @param context the value is written in, fields are resolved relative to it
+     * @return writer filtering objects written within context
+     */
+    ObjectWriter writer(JsonStreamContext context) {
+        return Mapper.objectMapper.writer(new Provider(new Filter(root, context)));
+    }
+
+    /**
+     * Copy of JsonUtils.objectMapper, taken on the first filtered write, not when JsonFields is loaded.
+     * Modules & config must be set into JsonUtils.objectMapper before the server starts serving,
+     * changes after the first filtered write are not copied.
+     */
+    private static final class Mapper {
+        private static final ObjectMapper objectMapper = create();
+
+        private static ObjectMapper create() {
+            ObjectMapper mapper = JsonUtils.objectMapper.copy();
+            // Filter id of every bean & map that has none, filter ids of @JsonFilter are kept
+            AnnotationIntrospector introspector = new NopAnnotationIntrospector() {
+                @Override
+                public Object findFilterId(Annotated annotated) {
+                    return FILTER_ID;
+                }
+            };
+            mapper.setAnnotationIntrospector(AnnotationIntrospectorPair.pair(mapper.getSerializationConfig().getAnnotationIntrospector(), introspector));
+            mapper.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            return mapper;
+        }
+    }
+
+    /**
+     * Tree of listed fields, ALL includes everything under it
+     */
+    private static final class Node {
+        private static final Node ALL = new Node();
+
+        private final Map<String, Node> children = new HashMap<>();
+
+        private Node child(String name) {
+            return children.computeIfAbsent(name, s -> new Node());
+        }
+
+        private Node all(String name) {
+            children.put(name, ALL);
+            return ALL;
+        }
+
+        private Node get(String name) {
+            return this == ALL ? ALL : children.get(name);
+        }
+    }
+
+    /**
+     * Resolves the node of the object being written from the output context, relative to the context of the value
+     */
+    private static final class Filter extends SimpleBeanPropertyFilter {
+        private final Node root;
+        private final JsonStreamContext context;
+
+        private Filter(Node root, JsonStreamContext context) {
+            this.root = root;
+            this.context = context;
+        }
+
+        @Override
+        public void serializeAsField(Object pojo, JsonGenerator generator, SerializerProvider provider, PropertyWriter writer) throws Exception {
+            Node node = node(generator.getOutputContext());
+            if (node != null && node.get(writer.getName()) != null) {
+                writer.serializeAsField(pojo, generator, provider);
+            } else if (!generator.canOmitFields()) {
+                writer.serializeAsOmittedField(pojo, generator, provider);
+            }
+        }
+
+        /**
+         * @param current context of the object or array being written
+         * @return node of its fields, null if not listed
+         */
+        private Node node(JsonStreamContext current) {
+            JsonStreamContext parent = current.getParent();
+            if (parent == null || parent == context) return root;
+
+            Node node = node(parent);
+            if (node == null || parent.inArray()) return node;
+            return node.get(parent.getCurrentName());
+        }
+    }
+
+    /**
+     * Provides the filter of a write, filters of @JsonFilter ids from the FilterProvider of JsonUtils.objectMapper
+     */
+    private static final class Provider extends FilterProvider {
+        private final Filter filter;
+        private final FilterProvider fallback;
+
+        private Provider(Filter filter) {
+            this.filter = filter;
+            this.fallback = JsonUtils.objectMapper.getSerializationConfig().getFilterProvider();
+        }
+
+        /**
+         * Deprecated lookup without the value to filter, served by findPropertyFilter
+         */
+        @Override
+        @Deprecated
+        public BeanPropertyFilter findFilter(Object filterId) {
+            PropertyFilter filter = findPropertyFilter(filterId, null);
+            return filter instanceof BeanPropertyFilter ? (BeanPropertyFilter) filter : null;
+        }
+
+        @Override
+        public PropertyFilter findPropertyFilter(Object filterId, Object valueToFilter) {
+            if (FILTER_ID.equals(filterId)) return filter;
+            return fallback == null ? null : fallback.findPropertyFilter(filterId, valueToFilter);
+        }
+    }
+}
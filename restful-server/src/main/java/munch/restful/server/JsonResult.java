@@ -3,9 +3,12 @@ package munch.restful.server;
 import munch.restful.core.NextNodeList;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
+ * data and next are held as fields, only other named fields are put into a map.
+ * <p>
  * Created by: Fuxing
  * Date: 4/6/18
  * Time: 1:31 PM
@@ -13,29 +16,147 @@ import java.util.Map;
  */
 public class JsonResult {
     private final int code;
-    private Map<String, Object> map;
+
+    private boolean hasData;
+    private Object data;
+    private boolean hasNext;
+    private Object next;
+    private Map<String, Object> fields;
+    private String version;
+    private JsonFields sparseFields;
 
     protected JsonResult(int code, Map<String, Object> map) {
         this.code = code;
-        this.map = map;
+        if (map != null) map.forEach(this::put);
+    }
+
+    protected JsonResult(int code) {
+        this.code = code;
     }
 
     protected int getCode() {
         return code;
     }
 
+    /**
+     * Since data and next are held as fields, this returns a new map on every call,
+     * changes made to it are not reflected in the response. Use put() to change the result,
+     * getData(), getNext() & getFields() to read it without allocating.
+     *
+     * @return copy of all fields in the result
+     * @deprecated the map is no longer the backing store of the result, use put() to change it
+     */
+    @Deprecated
     protected Map<String, Object> getMap() {
+        return toMap();
+    }
+
+    /**
+     * @return new map of all fields in the result
+     */
+    Map<String, Object> toMap() {
+        Map<String, Object> map = fields == null ? new HashMap<>() : new HashMap<>(fields);
+        if (hasData) map.put("data", data);
+        if (hasNext) map.put("next", next);
         return map;
     }
 
+    /**
+     * @return whether data is put, data can be null
+     */
+    protected boolean hasData() {
+        return hasData;
+    }
+
+    protected Object getData() {
+        return data;
+    }
+
+    /**
+     * @return whether next is put, next can be null
+     */
+    protected boolean hasNext() {
+        return hasNext;
+    }
+
+    protected Object getNext() {
+        return next;
+    }
+
+    /**
+     * @return other fields that are not data or next, nullable
+     */
+    protected Map<String, Object> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return version of the result for ETag, nullable
+     */
+    protected String getVersion() {
+        return version;
+    }
+
+    /**
+     * Version of the data, e.g. updatedMillis. Used as the ETag of GET routes with etag enabled,
+     * instead of hashing the rendered body. Not rendered into the body.
+     *
+     * @param version of data, changes whenever the data changes
+     * @return JsonResult for chaining
+     * @see JsonService#GET(String, boolean, JsonRoute)
+     */
+    public JsonResult version(String version) {
+        this.version = version;
+        return this;
+    }
+
+    /**
+     * @return sparse fieldset to filter data with, nullable
+     */
+    JsonFields getSparseFields() {
+        return sparseFields;
+    }
+
+    /**
+     * Results can be shared by routes, fields of a request are set on a copy
+     *
+     * @param sparseFields to filter data with
+     * @return copy of result with sparse fields
+     */
+    JsonResult withSparseFields(JsonFields sparseFields) {
+        JsonResult result = new JsonResult(code);
+        result.hasData = hasData;
+        result.data = data;
+        result.hasNext = hasNext;
+        result.next = next;
+        result.fields = fields;
+        result.version = version;
+        result.sparseFields = sparseFields;
+        return result;
+    }
+
     /**
      * @param name   of field
      * @param object to put
      * @return JsonResult for chaining
      */
     public JsonResult put(String name, Object object) {
-        map.put(name, object);
-        return this;
+        switch (name) {
+            case "data":
+                this.hasData = true;
+                this.data = object;
+                return this;
+
+            case "next":
+                this.hasNext = true;
+                this.next = object;
+                return this;
+
+            default:
+                if (fields == null) fields = new LinkedHashMap<>();
+                fields.put(name, object);
+                return this;
+        }
     }
 
     public static JsonResult ok(NextNodeList list) {
@@ -68,7 +189,7 @@ public class JsonResult {
      * @return JsonResult with custom status code
      */
     public static JsonResult of(int code) {
-        return new JsonResult(code, new HashMap<>());
+        return new JsonResult(code);
     }
 
     /**
@@ -89,7 +210,7 @@ public class JsonResult {
     public String toString() {
         return "JsonResult{" +
                 "code=" + code +
-                ", map=" + map +
+                ", map=" + toMap() +
                 '}';
     }
 }
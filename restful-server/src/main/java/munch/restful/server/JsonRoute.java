@@ -5,6 +5,10 @@ import spark.Request;
 import spark.Response;
 import spark.Route;
 
+import java.util.Iterator;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Stream;
+
 /**
  * Lambda Route interface
  * <p>
@@ -30,6 +34,9 @@ public interface JsonRoute extends Route {
      * @see JsonResult auto convert into {meta: {}, contents of JsonResult}
      * @see Object auto convert into {data: 'Object', meta: {}}
      * @see NextNodeList auto convert into {data: [], next: {}, meta: {}}
+     * @see java.util.concurrent.CompletableFuture suspend request until completed, then convert like above
+     * @see java.util.stream.Stream written element by element into {data: [], meta: {}} or application/x-ndjson
+     * @see Iterator same as Stream, closed after if AutoCloseable
      */
     @Override
     default JsonResult handle(Request request, Response response) throws Exception {
@@ -41,6 +48,20 @@ public interface JsonRoute extends Route {
      */
     static JsonResult handle(Request request, Response response, Handler handler) throws Exception {
         Object result = handler.handle(new JsonCall(request, response));
+        if (result instanceof CompletionStage) {
+            return new JsonAsyncResult((CompletionStage<?>) result);
+        }
+        return result(response, result);
+    }
+
+    /**
+     * Convert the result of a route into JsonResult, async routes are converted after completion
+     *
+     * @param response spark response for status and content type
+     * @param result   returned by route
+     * @return JsonResult
+     */
+    static JsonResult result(Response response, Object result) {
         response.type(APP_JSON);
 
         if (result instanceof JsonResult) {
@@ -55,6 +76,15 @@ public interface JsonRoute extends Route {
             return jsonResult;
         }
 
+        if (result instanceof Stream) {
+            return new JsonStreamResult(((Stream<?>) result).iterator(), (Stream<?>) result);
+        }
+
+        if (result instanceof Iterator) {
+            AutoCloseable closeable = result instanceof AutoCloseable ? (AutoCloseable) result : null;
+            return new JsonStreamResult((Iterator<?>) result, closeable);
+        }
+
         if (result == null) {
             response.status(404);
             return JsonResult.notFound();
@@ -2,14 +2,19 @@ package munch.restful.server;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import munch.restful.core.JsonUtils;
+import spark.Request;
+import spark.Response;
+import spark.Route;
 import spark.RouteGroup;
-import spark.Spark;
 
 /**
  * Created By: Fuxing Loh
  * Date: 8/2/2017
  * Time: 2:29 PM
  * Project: munch-core
+ * <p>
+ * Routes are registered into the spark Service of the RestfulServer starting the service,
+ * the static Spark singleton if started outside of a RestfulServer.
  *
  * @see munch.restful.core.RestfulMeta for structure for meta
  */
@@ -19,7 +24,12 @@ public interface JsonService extends RestfulService {
     JsonTransformer toJson = new JsonTransformer();
 
     /**
-     * Override for custom transformer
+     * Streaming transformer, JsonResult is written directly into the response OutputStream
+     */
+    JsonTransformer toJsonStream = new JsonTransformer(true);
+
+    /**
+     * Override for custom transformer, return toJsonStream for streaming render mode
      *
      * @return default toJson transformer for json service to use
      */
@@ -27,12 +37,103 @@ public interface JsonService extends RestfulService {
         return toJson;
     }
 
+    /**
+     * Override to return true for routes of this service to accept ?fields=name,images.url,
+     * only the listed fields of data are serialized, e.g. for mobile clients using a few fields of large documents.
+     *
+     * @return whether fields query param is applied, default false
+     * @see JsonFields
+     */
+    default boolean sparseFields() {
+        return false;
+    }
+
+    /**
+     * Resolve the binders of classes the routes bind with JsonCall.bind(Class) while the routes are added.
+     * A binder is otherwise resolved on the first request binding the class, the class is not known before,
+     * a class that cannot be bound fails the start of the server instead of its first request.
+     * <pre>
+     * bind(Search.class);
+     * GET("/places/search", call -> call.bind(Search.class));
+     * </pre>
+     *
+     * @param classes bound by the routes of this service
+     * @throws IllegalStateException if a class cannot be bound
+     * @see JsonCall#bind(Class)
+     */
+    default void bind(Class<?>... classes) {
+        for (Class<?> clazz : classes) {
+            CallBinder.of(clazz);
+        }
+    }
+
+    /**
+     * @param route json route
+     * @return route binding the fields query param before it is handled, if sparse fields is enabled
+     */
+    private JsonRoute bindFields(JsonRoute route) {
+        if (!sparseFields()) return route;
+
+        return new JsonRoute() {
+            @Override
+            public Object handle(JsonCall call) throws Exception {
+                return route.handle(call);
+            }
+
+            @Override
+            public JsonResult handle(Request request, Response response) throws Exception {
+                JsonFields.bind(request);
+                return route.handle(request, response);
+            }
+        };
+    }
+
+    /**
+     * @param method http method of route
+     * @param path   path of route
+     * @param route  json route
+     * @return spark route rendered with toJson(), String or streamed
+     */
+    private Route toRoute(String method, String path, JsonRoute route) {
+        return toRoute(method, path, route, false);
+    }
+
+    /**
+     * @param method http method of route
+     * @param path   path of route
+     * @param route  json route
+     * @param etag   whether to tag result with ETag and answer If-None-Match
+     * @return spark route rendered with toJson(), String or streamed
+     */
+    private Route toRoute(String method, String path, JsonRoute route, boolean etag) {
+        JsonRoute bound = bindFields(route);
+        JsonTransformer transformer = toJson();
+        RestfulRoutes routes = RestfulRoutes.current();
+        String template = routes.template(method, path);
+        return RestfulLimiter.wrap(template, (request, response) -> {
+            JsonResult result = bound.handle(request, response);
+            if (result instanceof JsonAsyncResult) {
+                return JsonAsync.suspend((JsonAsyncResult) result, routes, request, response, transformer);
+            }
+            if (etag) return JsonETag.render(result, request, response, transformer);
+            return JsonStream.render(result, request, response, transformer);
+        });
+    }
+
     /**
      * @param path   path for before filter, accepts wildcards
      * @param filter json filter
      */
     default void BEFORE(String path, JsonFilter filter) {
-        Spark.before(path, filter);
+        RestfulRoutes.current().before(path, filter);
+    }
+
+    /**
+     * @param path   path for after filter, accepts wildcards
+     * @param filter json filter
+     */
+    default void AFTER(String path, JsonFilter filter) {
+        RestfulRoutes.current().after(path, filter);
     }
 
     /**
@@ -40,7 +141,7 @@ public interface JsonService extends RestfulService {
      * @param routeGroup route
      */
     default void PATH(String path, RouteGroup routeGroup) {
-        Spark.path(path, routeGroup);
+        RestfulRoutes.current().path(path, routeGroup);
     }
 
     /**
@@ -50,7 +151,35 @@ public interface JsonService extends RestfulService {
      * @param route json route
      */
     default void GET(String path, JsonRoute route) {
-        Spark.get(path, route, toJson());
+        RestfulRoutes.current().add("GET", path, toRoute("GET", path, route));
+    }
+
+    /**
+     * Map route for HTTP Get, with strong ETag if enabled.
+     * ETag is the version of JsonResult if supplied, else the hash of the rendered body.
+     * If-None-Match that matches is answered with 304 without body.
+     *
+     * @param path  the path
+     * @param etag  whether to tag 200 results with ETag
+     * @param route json route
+     * @see JsonResult#version(String)
+     */
+    default void GET(String path, boolean etag, JsonRoute route) {
+        RestfulRoutes.current().add("GET", path, toRoute("GET", path, route, etag));
+    }
+
+    /**
+     * Map route for HTTP Get, rendered 200 responses are cached with the policy.
+     *
+     * @param path   the path
+     * @param route  json route
+     * @param policy cache policy, holds the cache of the route
+     * @see CachePolicy
+     */
+    default void GET(String path, JsonRoute route, CachePolicy policy) {
+        RestfulRoutes routes = RestfulRoutes.current();
+        String template = routes.template("GET", path);
+        routes.add("GET", path, RestfulLimiter.wrap(template, policy.toRoute(bindFields(route), toJson(), routes, routes.prefix())));
     }
 
     /**
@@ -60,7 +189,7 @@ public interface JsonService extends RestfulService {
      * @param route json route
      */
     default void POST(String path, JsonRoute route) {
-        Spark.post(path, route, toJson());
+        RestfulRoutes.current().add("POST", path, toRoute("POST", path, route));
     }
 
     /**
@@ -71,7 +200,7 @@ public interface JsonService extends RestfulService {
      * @param route      json node route
      */
     default void POST(String path, String acceptType, JsonRoute route) {
-        Spark.post(path, acceptType, route, toJson);
+        RestfulRoutes.current().add("POST", path, acceptType, toRoute("POST", path, route));
     }
 
     /**
@@ -81,7 +210,7 @@ public interface JsonService extends RestfulService {
      * @param route json route
      */
     default void PUT(String path, JsonRoute route) {
-        Spark.put(path, route, toJson());
+        RestfulRoutes.current().add("PUT", path, toRoute("PUT", path, route));
     }
 
     /**
@@ -92,7 +221,7 @@ public interface JsonService extends RestfulService {
      * @param route      json node route
      */
     default void PUT(String path, String acceptType, JsonRoute route) {
-        Spark.put(path, acceptType, route, toJson);
+        RestfulRoutes.current().add("PUT", path, acceptType, toRoute("PUT", path, route));
     }
 
     /**
@@ -102,7 +231,7 @@ public interface JsonService extends RestfulService {
      * @param route json route
      */
     default void DELETE(String path, JsonRoute route) {
-        Spark.delete(path, route, toJson());
+        RestfulRoutes.current().add("DELETE", path, toRoute("DELETE", path, route));
     }
 
     /**
@@ -112,7 +241,7 @@ public interface JsonService extends RestfulService {
      * @param route json route
      */
     default void HEAD(String path, JsonRoute route) {
-        Spark.head(path, route, toJson());
+        RestfulRoutes.current().add("HEAD", path, toRoute("HEAD", path, route));
     }
 
     /**
@@ -122,7 +251,7 @@ public interface JsonService extends RestfulService {
      * @param route json route
      */
     default void PATCH(String path, JsonRoute route) {
-        Spark.patch(path, route, toJson());
+        RestfulRoutes.current().add("PATCH", path, toRoute("PATCH", path, route));
     }
 
     /**
@@ -0,0 +1,148 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import munch.restful.core.JsonFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the elements of a Stream or Iterator result as they are iterated, the body is never materialized.
+ * <p>
+ * Written as {"meta":{"code":200},"data":[...]} or as application/x-ndjson, one element per line,
+ * if the request accepts it. A binary format negotiated with {@link JsonFormat#fromAccept(String)} writes the same envelope.
+ * Elements are filtered with the sparse fields of the request, if bound.
+ * Without a content length jetty sends it with chunked transfer encoding,
+ * flushed after the first element and then at most every 200ms.
+ * <p>
+ * An exception before the response is committed is mapped as usual, nothing is written.
+ * After that the status is already sent, the connection is aborted for the client to see an incomplete body.
+ */
+final class JsonStream {
+    private static final Logger logger = LoggerFactory.getLogger(JsonStream.class);
+
+    static final String NDJSON = "application/x-ndjson";
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private JsonStream() {
+    }
+
+    /**
+     * @param result      of route
+     * @param request     spark request
+     * @param response    spark response
+     * @param transformer to render result with if not a stream result
+     * @return rendered body, empty String if streamed
+     * @throws Exception if render failed
+     */
+    static String render(JsonResult result, Request request, Response response, JsonTransformer transformer) throws Exception {
+        if (result instanceof JsonStreamResult) return write((JsonStreamResult) result, request, response);
+        return transformer.render(JsonFields.apply(result, request), request, response);
+    }
+
+    /**
+     * @param result   stream result to write
+     * @param request  spark request, for Accept header
+     * @param response spark response to write into
+     * @return empty String, for spark to mark body as set
+     * @throws Exception of iterator if response is not yet committed
+     */
+    static String write(JsonStreamResult result, Request request, Response response) throws Exception {
+        String accept = request.headers("Accept");
+        JsonFormat format = JsonFormat.fromAccept(accept);
+        boolean ndjson = !format.isBinary() && accepts(accept);
+        HttpServletResponse raw = response.raw();
+        raw.setStatus(200);
+        if (format.isBinary()) raw.setContentType(format.getMediaType());
+        else raw.setContentType(ndjson ? NDJSON + "; charset=utf-8" : JsonRoute.APP_JSON);
+
+        try {
+            OutputStream output = raw.getOutputStream();
+            // Output is only flushed here, binary generators flush their target on close
+            try (JsonGenerator generator = format.getFactory().createGenerator(JsonTransformer.unflushed(output), JsonEncoding.UTF8)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+                if (ndjson) generator.setRootValueSeparator(null);
+
+                if (!ndjson) {
+                    generator.writeStartObject();
+                    generator.writeFieldName(JsonEnvelope.META);
+                    JsonEnvelope.writeMeta(generator, 200);
+                    generator.writeFieldName(JsonEnvelope.DATA);
+                    generator.writeStartArray();
+                }
+
+                JsonFields fields = JsonFields.of(request);
+                ObjectWriter writer = fields != null ? fields.writer(generator.getOutputContext()) : null;
+
+                Iterator<?> iterator = result.getIterator();
+                long flushedAt = 0;
+                while (iterator.hasNext()) {
+                    if (writer != null) writer.writeValue(generator, iterator.next());
+                    else generator.writeObject(iterator.next());
+                    if (ndjson) generator.writeRaw('\n');
+
+                    long now = System.nanoTime();
+                    if (flushedAt == 0 || now - flushedAt >= FLUSH_INTERVAL_NANOS) {
+                        // Stream flush, flushBuffer() would end a compressed body
+                        generator.flush();
+                        output.flush();
+                        flushedAt = now;
+                    }
+                }
+
+                if (!ndjson) {
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                }
+            }
+            // Finished before the first flush is not committed, AFTER filters can still set headers
+            if (raw.isCommitted()) output.flush();
+            else RestfulHandler.written(raw);
+            return "";
+        } catch (Exception e) {
+            if (!raw.isCommitted()) {
+                raw.resetBuffer();
+                throw e;
+            }
+
+            logger.error("Stream result failed after response is committed, aborting", e);
+            abort(request, e);
+            return "";
+        } finally {
+            close(result.getCloseable());
+        }
+    }
+
+    /**
+     * @param accept Accept header of request, nullable
+     * @return whether ndjson is accepted
+     */
+    private static boolean accepts(String accept) {
+        return accept != null && accept.contains(NDJSON);
+    }
+
+    private static void abort(Request request, Exception exception) {
+        org.eclipse.jetty.server.Request base = org.eclipse.jetty.server.Request.getBaseRequest(request.raw());
+        if (base != null) base.getHttpChannel().abort(exception);
+    }
+
+    private static void close(AutoCloseable closeable) {
+        if (closeable == null) return;
+
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            logger.warn("Stream result failed to close", e);
+        }
+    }
+}
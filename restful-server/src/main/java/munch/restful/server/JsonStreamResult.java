@@ -0,0 +1,31 @@
+package munch.restful.server;
+
+import java.util.Iterator;
+
+/**
+ * Result of a JsonRoute that returned a Stream or Iterator, elements are written as they are iterated.
+ *
+ * @see JsonStream
+ */
+final class JsonStreamResult extends JsonResult {
+    private final Iterator<?> iterator;
+    private final AutoCloseable closeable;
+
+    /**
+     * @param iterator  of elements
+     * @param closeable to close after iterating, nullable
+     */
+    JsonStreamResult(Iterator<?> iterator, AutoCloseable closeable) {
+        super(200);
+        this.iterator = iterator;
+        this.closeable = closeable;
+    }
+
+    Iterator<?> getIterator() {
+        return iterator;
+    }
+
+    AutoCloseable getCloseable() {
+        return closeable;
+    }
+}
@@ -1,13 +1,26 @@
 package munch.restful.server;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SegmentedStringWriter;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import munch.restful.core.JsonFormat;
 import munch.restful.core.JsonUtils;
 import munch.restful.core.RestfulMeta;
+import munch.restful.core.exception.JsonException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import spark.Request;
+import spark.Response;
 import spark.ResponseTransformer;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 /**
@@ -33,20 +46,66 @@ public class JsonTransformer implements ResponseTransformer {
     public static final String Meta200String = JsonUtils.toString(Meta200);
     public static final String Meta404String = JsonUtils.toString(Meta404);
 
+    private final boolean streaming;
+    private final boolean mapOverride = overridesToString(getClass());
+
+    public JsonTransformer() {
+        this(false);
+    }
+
+    /**
+     * @param streaming whether JsonResult is written directly into the response OutputStream
+     * @see JsonTransformer#stream(JsonResult, Response)
+     */
+    public JsonTransformer(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     /**
+     * @return whether this transformer streams into the response instead of rendering to String
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Result is written with {@link #write(JsonResult, JsonGenerator)} into a recycled buffer,
+     * {@link #toString(Map)} is only used if a subclass overrides it.
+     *
      * @param result to convert to string
      * @return converted to string
      */
     public String render(JsonResult result) {
-        if (result.getMap() == null || result.getMap().isEmpty()) {
+        if (mapOverride && result.getSparseFields() == null) {
+            return renderMap(result);
+        }
+
+        if (!result.hasData() && !result.hasNext() && result.getFields() == null) {
+            if (result.getCode() == 200) return Meta200String;
+            if (result.getCode() == 404) return Meta404String;
+        }
+
+        JsonFactory factory = objectMapper.getFactory();
+        // Same recycled buffers as ObjectMapper.writeValueAsString
+        SegmentedStringWriter writer = new SegmentedStringWriter(factory._getBufferRecycler());
+        try (JsonGenerator generator = factory.createGenerator(writer)) {
+            write(result, generator);
+        } catch (IOException e) {
+            throw new JsonException(e);
+        }
+        return writer.getAndClear();
+    }
+
+    /**
+     * Compatibility with subclasses that override {@link #toString(Map)}
+     */
+    private String renderMap(JsonResult result) {
+        Map<String, Object> map = result.toMap();
+        if (map.isEmpty()) {
             if (result.getCode() == 200) return Meta200String;
             if (result.getCode() == 404) return Meta404String;
-            return JsonUtils.toString(
-                    Map.of("meta", Map.of("code", result.getCode()))
-            );
         }
 
-        Map<String, Object> map = result.getMap();
         map.put("meta", Map.of("code", result.getCode()));
         return toString(map);
     }
@@ -54,6 +113,9 @@ public class JsonTransformer implements ResponseTransformer {
     /**
      * Override this method for custom serialization.
      * - e.g. for simplifying objects
+     * <p>
+     * Overriding this makes the String render mode build a Map of the result on every request,
+     * override {@link #write(JsonResult, JsonGenerator)} instead.
      *
      * @param map to convert to string
      * @return JSON represented in String
@@ -62,6 +124,155 @@ public class JsonTransformer implements ResponseTransformer {
         return JsonUtils.toString(map);
     }
 
+    /**
+     * @param result   to render
+     * @param response spark response to stream into if streaming
+     * @return rendered String, or empty String if streamed
+     * @throws Exception if render failed
+     */
+    public String render(JsonResult result, Response response) throws Exception {
+        if (streaming) return stream(result, response);
+        return render((Object) result);
+    }
+
+    /**
+     * Render in the format negotiated from the Accept header, binary formats are always streamed.
+     * Binary formats are written with {@link #write(JsonResult, JsonGenerator)}, not {@link #toString(Map)}.
+     *
+     * @param result   to render
+     * @param request  spark request, for Accept header
+     * @param response spark response to stream into
+     * @return rendered String, or empty String if streamed
+     * @throws Exception if render failed
+     * @see JsonFormat#fromAccept(String)
+     */
+    public String render(JsonResult result, Request request, Response response) throws Exception {
+        JsonFormat format = JsonFormat.fromAccept(request.headers("Accept"));
+        if (!format.isBinary()) return render(result, response);
+
+        response.type(format.getMediaType());
+        write(result, format, response.raw().getOutputStream());
+        RestfulHandler.written(response.raw());
+        return "";
+    }
+
+    /**
+     * Serialize {meta, data, next} straight into the raw response OutputStream with a JsonGenerator,
+     * no intermediate String or byte[] of the body is created.
+     * <p>
+     * The response is not flushed, headers can still be set by AFTER filters until the body outgrows the buffer.
+     *
+     * @param result   to write
+     * @param response spark response to write into
+     * @return empty string, for spark to mark body as set
+     * @throws IOException if the response stream failed
+     */
+    public String stream(JsonResult result, Response response) throws IOException {
+        write(result, response.raw().getOutputStream());
+        RestfulHandler.written(response.raw());
+        return "";
+    }
+
+    /**
+     * @param result to render
+     * @return rendered body in UTF-8 bytes, with the same serialization as the render mode
+     * @throws IOException if render failed
+     */
+    public byte[] toBytes(JsonResult result) throws IOException {
+        if (!streaming) return render(result).getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        write(result, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * @param result to render
+     * @param format to render in
+     * @return rendered body in format
+     * @throws IOException if render failed
+     */
+    public byte[] toBytes(JsonResult result, JsonFormat format) throws IOException {
+        if (!format.isBinary()) return toBytes(result);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        write(result, format, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * @param result to write
+     * @param output to write into, will not be closed
+     * @throws IOException if output stream failed
+     */
+    public void write(JsonResult result, OutputStream output) throws IOException {
+        write(result, JsonFormat.JSON, output);
+    }
+
+    /**
+     * @param result to write
+     * @param format to write in
+     * @param output to write into, will not be closed
+     * @throws IOException if output stream failed
+     */
+    public void write(JsonResult result, JsonFormat format, OutputStream output) throws IOException {
+        // Binary generators flush the target on close regardless of FLUSH_PASSED_TO_STREAM
+        if (format.isBinary()) output = unflushed(output);
+
+        try (JsonGenerator generator = format.getFactory().createGenerator(output, JsonEncoding.UTF8)) {
+            // Output is owned by the container, only flush into it when the generator buffer is full
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            write(result, generator);
+        }
+    }
+
+    /**
+     * Override this method for custom streaming serialization.
+     *
+     * @param result    to write
+     * @param generator to write with
+     * @throws IOException if generator failed
+     * @see JsonEnvelope#write(JsonGenerator, JsonResult)
+     */
+    protected void write(JsonResult result, JsonGenerator generator) throws IOException {
+        JsonEnvelope.write(generator, result);
+    }
+
+    /**
+     * Flushing the container output stream commits the response, headers set after are dropped
+     *
+     * @param output to write into
+     * @return output that ignores flush() and close()
+     */
+    static OutputStream unflushed(OutputStream output) {
+        return new FilterOutputStream(output) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static boolean overridesToString(Class<?> type) {
+        for (Class<?> clazz = type; clazz != JsonTransformer.class; clazz = clazz.getSuperclass()) {
+            try {
+                clazz.getDeclaredMethod("toString", Map.class);
+                return true;
+            } catch (NoSuchMethodException ignored) {
+            }
+        }
+        return false;
+    }
+
     /**
      * @see JsonResult
      * @see JsonRoute
@@ -0,0 +1,119 @@
+package munch.restful.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear latency histogram in microseconds.
+ * <p>
+ * Each power of 2 is split into 8 linear buckets, recorded values are within 12.5% of the reported percentile.
+ * Buckets are LongAdder, concurrent request threads do not contend on the same counter.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    // Up to 2^36 micros, ~19 hours
+    private static final int MAX_EXPONENT = 36;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos latency to record
+     */
+    void record(long nanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        buckets[index(micros)].increment();
+        sum.add(micros);
+        max.accumulate(micros);
+    }
+
+    static int index(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @param index of bucket
+     * @return highest micros value recorded into the bucket
+     */
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+
+    /**
+     * Counters are read one by one while requests are still recorded, the snapshot is approximate.
+     *
+     * @return snapshot of the histogram
+     */
+    Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        return new Snapshot(counts, total, sum.sum(), max.get());
+    }
+
+    static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        /**
+         * @param percentile 0 to 100
+         * @return latency in micros at percentile, 0 if nothing is recorded
+         */
+        long percentile(double percentile) {
+            if (count == 0) return 0;
+
+            long rank = (long) Math.ceil(percentile / 100.0 * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) return Math.min(upperBound(i), max);
+            }
+            return max;
+        }
+
+        long getMean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        long getMax() {
+            return max;
+        }
+    }
+}
@@ -0,0 +1,782 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import munch.restful.core.JsonUtils;
+import munch.restful.core.exception.BadRequestException;
+import munch.restful.core.exception.ExceptionParser;
+import munch.restful.core.exception.LimitException;
+import munch.restful.core.exception.ParamException;
+import munch.restful.core.exception.TimeoutException;
+import munch.restful.core.exception.ValidationException;
+import org.eclipse.jetty.http.HttpFields;
+import spark.FilterImpl;
+import spark.HaltException;
+import spark.Request;
+import spark.RequestResponseFactory;
+import spark.Response;
+import spark.Route;
+import spark.route.HttpMethod;
+import spark.routematch.RouteMatch;
+import spark.utils.urldecoding.UrlDecode;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batch route of RestfulServer, runs an array of sub requests against the routes of the server in parallel
+ * and answers with their envelopes in the same order, one HTTP round trip instead of one for each.
+ * <pre>
+ * POST /batch
+ * [
+ *     {"method": "GET", "path": "/users/123"},
+ *     {"method": "GET", "path": "/users/123/places", "query": {"size": "20"}},
+ *     {"method": "POST", "path": "/events", "body": {"type": "view"}}
+ * ]
+ *
+ * {
+ *     "meta": {"code": 200},
+ *     "data": [
+ *         {"meta": {"code": 200}, "data": {...}},
+ *         {"meta": {"code": 200}, "data": [...], "next": {...}},
+ *         {"meta": {"code": 400, "error": {...}}}
+ *     ]
+ * }
+ * </pre>
+ * Sub requests inherit the headers of the batch request, e.g. Authorization, their response headers and cookies are dropped.
+ * Conditional headers, e.g. If-None-Match, and headers of the batch body or connection, e.g. Content-Length, are not inherited.
+ * Sub requests always accept JSON, the batch envelope is JSON regardless of the format the batch request accepts.
+ * Each is matched against the routes added through RestfulRoutes, passes through the before and after filters added through
+ * RestfulRoutes the same as spark, is mapped with the exception handlers of the server,
+ * limited by the concurrency limiter and recorded in metrics under its own route.
+ * Filters added to the spark Service directly are not seen by RestfulRoutes, they must be added through JsonService instead.
+ * <p>
+ * Sub requests queue for the threads of the batch up to maxSize for each thread, a batch not fitting is rejected with 429.
+ * Sub requests not completed in time are interrupted and answered with 504.
+ */
+final class RestfulBatch {
+    private static final String ATTRIBUTE = RestfulBatch.class.getName();
+
+    private final RestfulRoutes routes;
+    private final RestfulMetrics metrics;
+    private final Route notFound;
+    private final int maxSize;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param routes        to match sub requests against
+     * @param metrics       to record sub requests into
+     * @param notFound      route answering sub requests without a matching route
+     * @param maxSize       max sub requests in a batch
+     * @param threads       running sub requests, shared by all batches, queuing up to maxSize each
+     * @param timeoutMillis of a batch, sub requests not completed are interrupted and answered with 504
+     */
+    RestfulBatch(RestfulRoutes routes, RestfulMetrics metrics, Route notFound, int maxSize, int threads, long timeoutMillis) {
+        this.routes = routes;
+        this.metrics = metrics;
+        this.notFound = notFound;
+        this.maxSize = maxSize;
+        this.timeoutMillis = timeoutMillis;
+
+        // Exception classes register with ExceptionParser in their static block while ExceptionParser loads them in its own,
+        // sub requests throwing for the first time in parallel would deadlock on class initialization
+        try {
+            Class.forName(ExceptionParser.class.getName());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxSize * threads), runnable -> {
+            Thread thread = new Thread(runnable, "restful-batch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param template of batch route for metrics
+     * @return batch route
+     */
+    Route toRoute(String template) {
+        return (request, response) -> {
+            request.attribute(RestfulMetrics.ROUTE_ATTRIBUTE, template);
+            if (request.raw().getAttribute(ATTRIBUTE) != null) {
+                throw new BadRequestException("Batch request cannot be nested.");
+            }
+
+            JsonNode items = new JsonCall(request, response).bodyAsJson(true);
+            if (!items.isArray()) throw new ParamException("body");
+            if (items.size() == 0 || items.size() > maxSize) {
+                throw new ValidationException("body", "size must be 1 to " + maxSize + " sub requests");
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            List<FutureTask<String>> tasks = new ArrayList<>(items.size());
+            try {
+                for (JsonNode item : items) {
+                    FutureTask<String> task = new FutureTask<>(() -> execute(item, request.raw(), response.raw(), deadline));
+                    executor.execute(task);
+                    tasks.add(task);
+                }
+            } catch (RejectedExecutionException e) {
+                cancel(tasks);
+                throw new LimitException(429, "Batch queue is full, batch rejected.");
+            }
+
+            StringBuilder builder = new StringBuilder("{\"meta\":{\"code\":200},\"data\":[");
+            try {
+                for (int i = 0; i < tasks.size(); i++) {
+                    if (i > 0) builder.append(',');
+                    FutureTask<String> task = tasks.get(i);
+                    try {
+                        builder.append(task.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+                    } catch (java.util.concurrent.TimeoutException e) {
+                        // Interrupted for the thread to be freed, the envelope it renders after is dropped
+                        task.cancel(true);
+                        builder.append(timeout(items.get(i), request.raw(), response.raw()));
+                    } catch (ExecutionException e) {
+                        // Exceptions are answered by execute, only errors are thrown
+                        if (e.getCause() instanceof Error) throw (Error) e.getCause();
+                        throw e;
+                    }
+                }
+            } finally {
+                cancel(tasks);
+            }
+
+            response.type(JsonRoute.APP_JSON);
+            return builder.append("]}").toString();
+        };
+    }
+
+    /**
+     * @param tasks to interrupt if running, or remove from the queue if not started
+     */
+    private void cancel(List<FutureTask<String>> tasks) {
+        for (FutureTask<String> task : tasks) {
+            if (task.cancel(true)) executor.remove(task);
+        }
+    }
+
+    /**
+     * Stop running sub requests
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param deadline System.nanoTime() the batch is answered by, async results are waited for until it
+     * @return rendered envelope of sub request
+     */
+    private String execute(JsonNode item, HttpServletRequest batchRequest, HttpServletResponse batchResponse, long deadline) {
+        long start = System.nanoTime();
+        BatchRequest raw = new BatchRequest(batchRequest, item);
+        raw.setAttribute(JsonAsync.DEADLINE_ATTRIBUTE, deadline);
+        BatchResponse rawResponse = new BatchResponse(batchResponse);
+
+        RouteTree.Match match = raw.path == null ? null : routes.find(raw.method, raw.path, raw.getHeader("Accept"));
+        String uri = raw.path != null ? raw.path : "/";
+        Request request = RequestResponseFactory.create(new RouteMatch(match != null ? match.route : null, match != null ? match.template : uri, uri, null), raw);
+        Response response = RequestResponseFactory.create(rawResponse);
+
+        Object body;
+        try {
+            if (raw.path == null) throw new ParamException("path");
+            filter(HttpMethod.before, raw, response);
+            if (match == null) {
+                rawResponse.setStatus(404);
+                body = notFound.handle(request, response);
+            } else {
+                if (!match.params.isEmpty()) raw.setAttribute(RestfulRoutes.PARAMS_ATTRIBUTE, match.params);
+                body = match.route.handle(request, response);
+            }
+
+            // Same as spark, a body set by after filters replaces the body of the route
+            filter(HttpMethod.after, raw, response);
+            if (response.body() != null) body = response.body();
+        } catch (HaltException e) {
+            rawResponse.setStatus(e.statusCode());
+            body = e.body();
+        } catch (Exception e) {
+            body = handle(e, request, response);
+        }
+
+        Object route = raw.attributes.get(RestfulMetrics.ROUTE_ATTRIBUTE);
+        if (route != null) metrics.record((String) route, rawResponse.status, System.nanoTime() - start);
+        return envelope(rawResponse, body != null ? body : response.body());
+    }
+
+    /**
+     * Run the filters matching the sub request the same as spark, each with the path params of its own path
+     */
+    private void filter(HttpMethod type, BatchRequest raw, Response response) throws Exception {
+        for (RouteMatch match : routes.filters(type, raw.path, raw.getHeader("Accept"))) {
+            FilterImpl filter = (FilterImpl) match.getTarget();
+            filter.handle(RequestResponseFactory.create(match, raw), response);
+        }
+    }
+
+    /**
+     * @return rendered 504 envelope of sub request not completed
+     */
+    private String timeout(JsonNode item, HttpServletRequest batchRequest, HttpServletResponse batchResponse) {
+        BatchRequest raw = new BatchRequest(batchRequest, item);
+        BatchResponse rawResponse = new BatchResponse(batchResponse);
+        String uri = raw.path != null ? raw.path : "/";
+        Request request = RequestResponseFactory.create(new RouteMatch(null, uri, uri, null), raw);
+        Response response = RequestResponseFactory.create(rawResponse);
+
+        String message = "Sub request did not complete in " + timeoutMillis + "ms.";
+        Object body = handle(new TimeoutException(504, new java.util.concurrent.TimeoutException(message)), request, response);
+        return envelope(rawResponse, body);
+    }
+
+    /**
+     * @return body written by the exception handlers of the server, empty with 500 if not handled
+     */
+    private Object handle(Exception exception, Request request, Response response) {
+        if (!routes.handle(exception, request, response)) response.status(500);
+        return response.body();
+    }
+
+    /**
+     * @return body of sub request as envelope, written or returned by the route, meta with status if empty
+     */
+    private static String envelope(BatchResponse response, Object body) {
+        response.flushBuffer();
+        if (response.output.size() > 0) return new String(response.output.toByteArray(), StandardCharsets.UTF_8);
+        if (body != null && !body.toString().isEmpty()) return body.toString();
+        return "{\"meta\":{\"code\":" + response.status + "}}";
+    }
+
+    /**
+     * Sub request over the batch request, attributes are its own and fall back to the batch request, e.g. limiter.
+     */
+    private static final class BatchRequest extends HttpServletRequestWrapper {
+        private static final Set<String> UNINHERITED_HEADERS = Set.of("accept", "content-type", "content-length",
+                "content-encoding", "transfer-encoding", "connection", "keep-alive", "te", "trailer", "upgrade", "expect",
+                "if-none-match", "if-modified-since", "if-match", "if-unmodified-since", "if-range");
+
+        private final String method;
+        private final String path;
+        private final String queryString;
+        private final Map<String, String[]> parameters = new LinkedHashMap<>();
+        private final byte[] body;
+        private final Map<String, Object> attributes = new HashMap<>();
+
+        private BatchRequest(HttpServletRequest request, JsonNode item) {
+            super(request);
+            this.attributes.put(ATTRIBUTE, Boolean.TRUE);
+            this.method = item.path("method").asText("GET").toUpperCase();
+
+            String path = item.path("path").isTextual() ? item.path("path").asText() : null;
+            StringBuilder query = new StringBuilder();
+            if (path != null) {
+                int index = path.indexOf('?');
+                if (index >= 0) {
+                    query.append(path, index + 1, path.length());
+                    path = path.substring(0, index);
+                }
+                if (!path.startsWith("/")) path = null;
+            }
+            this.path = path;
+
+            Iterator<Map.Entry<String, JsonNode>> fields = item.path("query").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                Iterable<JsonNode> values = field.getValue().isArray() ? field.getValue() : List.of(field.getValue());
+                for (JsonNode value : values) {
+                    if (query.length() > 0) query.append('&');
+                    query.append(encode(field.getKey())).append('=').append(encode(value.asText()));
+                }
+            }
+            this.queryString = query.length() > 0 ? query.toString() : null;
+            if (queryString != null) parseQuery(queryString);
+
+            JsonNode body = item.get("body");
+            this.body = body == null || body.isNull() ? new byte[0] : JsonUtils.toString(body).getBytes(StandardCharsets.UTF_8);
+        }
+
+        private void parseQuery(String queryString) {
+            for (String pair : queryString.split("&")) {
+                if (pair.isEmpty()) continue;
+                int index = pair.indexOf('=');
+                String name = index >= 0 ? pair.substring(0, index) : pair;
+                String value = index >= 0 ? pair.substring(index + 1) : "";
+                addParameter(decode(name), decode(value));
+            }
+        }
+
+        private static String encode(String value) {
+            try {
+                return URLEncoder.encode(value, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static String decode(String value) {
+            try {
+                return URLDecoder.decode(value, "UTF-8");
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                return value;
+            }
+        }
+
+        private void addParameter(String name, String value) {
+            String[] values = parameters.get(name);
+            if (values == null) {
+                parameters.put(name, new String[]{value});
+            } else {
+                String[] added = new String[values.length + 1];
+                System.arraycopy(values, 0, added, 0, values.length);
+                added[values.length] = value;
+                parameters.put(name, added);
+            }
+        }
+
+        @Override
+        public String getMethod() {
+            return method;
+        }
+
+        @Override
+        public String getRequestURI() {
+            return path;
+        }
+
+        @Override
+        public StringBuffer getRequestURL() {
+            StringBuffer url = super.getRequestURL();
+            url.setLength(url.length() - super.getRequestURI().length());
+            return url.append(path);
+        }
+
+        @Override
+        public String getPathInfo() {
+            return path == null ? null : UrlDecode.path(path);
+        }
+
+        @Override
+        public String getServletPath() {
+            return "";
+        }
+
+        @Override
+        public String getQueryString() {
+            return queryString;
+        }
+
+        @Override
+        public String getParameter(String name) {
+            String[] values = parameters.get(name);
+            return values != null ? values[0] : null;
+        }
+
+        @Override
+        public Map<String, String[]> getParameterMap() {
+            return Collections.unmodifiableMap(parameters);
+        }
+
+        @Override
+        public Enumeration<String> getParameterNames() {
+            return Collections.enumeration(parameters.keySet());
+        }
+
+        @Override
+        public String[] getParameterValues(String name) {
+            return parameters.get(name);
+        }
+
+        @Override
+        public String getContentType() {
+            return body.length > 0 ? JsonRoute.APP_JSON : null;
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            switch (name.toLowerCase(Locale.ROOT)) {
+                case "content-type":
+                    return getContentType();
+                case "content-length":
+                    return body.length > 0 ? String.valueOf(body.length) : null;
+                case "accept":
+                    // Envelopes are embedded as JSON text, a binary format accepted by the batch request is not negotiated
+                    return JsonRoute.APP_JSON;
+                default:
+                    return isInherited(name) ? super.getHeader(name) : null;
+            }
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (isInherited(name)) return super.getHeaders(name);
+            String value = getHeader(name);
+            return Collections.enumeration(value != null ? List.of(value) : List.of());
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = new ArrayList<>();
+            for (String name : Collections.list(super.getHeaderNames())) {
+                if (isInherited(name)) names.add(name);
+            }
+            names.add("Accept");
+            if (body.length > 0) {
+                names.add("Content-Type");
+                names.add("Content-Length");
+            }
+            return Collections.enumeration(names);
+        }
+
+        @Override
+        public long getDateHeader(String name) {
+            return isInherited(name) ? super.getDateHeader(name) : -1;
+        }
+
+        @Override
+        public int getIntHeader(String name) {
+            String value = getHeader(name);
+            return value != null ? Integer.parseInt(value) : -1;
+        }
+
+        /**
+         * @return whether the header of the batch request applies to the sub request, false for headers describing
+         * the batch body or connection, or conditional on the batch response, e.g. If-None-Match answered with 304
+         */
+        private static boolean isInherited(String name) {
+            return !UNINHERITED_HEADERS.contains(name.toLowerCase(Locale.ROOT));
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    // Body is in memory, all of it is available right away
+                    try {
+                        if (input.available() > 0) readListener.onDataAvailable();
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) {
+                    return input.read(bytes, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            Object value = attributes.get(name);
+            return value != null ? value : super.getAttribute(name);
+        }
+
+        @Override
+        public Enumeration<String> getAttributeNames() {
+            return Collections.enumeration(attributes.keySet());
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            if (value == null) attributes.remove(name);
+            else attributes.put(name, value);
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            attributes.remove(name);
+        }
+
+        @Override
+        public boolean isAsyncSupported() {
+            return false;
+        }
+
+        @Override
+        public boolean isAsyncStarted() {
+            return false;
+        }
+    }
+
+    /**
+     * Sub response buffered in memory, nothing is written into the batch response, including headers and cookies.
+     */
+    private static final class BatchResponse extends HttpServletResponseWrapper {
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private final HttpFields headers = new HttpFields();
+        private int status = 200;
+        private String contentType;
+        private Locale locale = Locale.getDefault();
+        private PrintWriter writer;
+
+        private BatchResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void setStatus(int status) {
+            this.status = status;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void setStatus(int status, String message) {
+            this.status = status;
+        }
+
+        @Override
+        public int getStatus() {
+            return status;
+        }
+
+        @Override
+        public void sendError(int status) {
+            this.status = status;
+        }
+
+        @Override
+        public void sendError(int status, String message) {
+            this.status = status;
+        }
+
+        @Override
+        public void sendRedirect(String location) {
+            this.status = 302;
+            headers.put("Location", location);
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            headers.put(name, value);
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            headers.add(name, value);
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            headers.putLongField(name, value);
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            headers.add(name, String.valueOf(value));
+        }
+
+        @Override
+        public void setDateHeader(String name, long date) {
+            headers.putDateField(name, date);
+        }
+
+        @Override
+        public void addDateHeader(String name, long date) {
+            headers.addDateField(name, date);
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+            // Dropped the same as headers
+        }
+
+        @Override
+        public boolean containsHeader(String name) {
+            return headers.containsKey(name);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return headers.get(name);
+        }
+
+        @Override
+        public Collection<String> getHeaders(String name) {
+            return headers.getValuesList(name);
+        }
+
+        @Override
+        public Collection<String> getHeaderNames() {
+            return headers.getFieldNamesCollection();
+        }
+
+        @Override
+        public void setContentType(String contentType) {
+            this.contentType = contentType;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public void setCharacterEncoding(String charset) {
+        }
+
+        @Override
+        public String getCharacterEncoding() {
+            return "utf-8";
+        }
+
+        @Override
+        public void setLocale(Locale locale) {
+            this.locale = locale;
+        }
+
+        @Override
+        public Locale getLocale() {
+            return locale;
+        }
+
+        @Override
+        public void setContentLength(int length) {
+        }
+
+        @Override
+        public void setContentLengthLong(long length) {
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    // Written in memory, always possible
+                    try {
+                        writeListener.onWritePossible();
+                    } catch (IOException e) {
+                        writeListener.onError(e);
+                    }
+                }
+
+                @Override
+                public void write(int b) {
+                    output.write(b);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) {
+                    output.write(bytes, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public PrintWriter getWriter() {
+            if (writer == null) writer = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), true);
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() {
+            if (writer != null) writer.flush();
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return false;
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (writer != null) writer.flush();
+            output.reset();
+        }
+
+        @Override
+        public void reset() {
+            resetBuffer();
+            headers.clear();
+            status = 200;
+            contentType = null;
+        }
+
+        @Override
+        public void setBufferSize(int size) {
+        }
+
+        @Override
+        public int getBufferSize() {
+            return output.size();
+        }
+    }
+}
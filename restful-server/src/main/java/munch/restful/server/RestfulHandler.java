@@ -0,0 +1,243 @@
+package munch.restful.server;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * Jetty handler wrapping spark for RestfulServer, records RestfulMetrics of every request,
+ * provides the concurrency limiter to routes and compresses responses if enabled.
+ * Counts requests in flight, including async requests until completed, for RestfulServer to drain on stop.
+ */
+class RestfulHandler extends HandlerWrapper {
+    static final long DEFAULT_ASYNC_TIMEOUT_MILLIS = 30_000;
+
+    long asyncTimeoutMillis = DEFAULT_ASYNC_TIMEOUT_MILLIS;
+    RestfulMetrics metrics;
+    RestfulLimiter limiter;
+
+    // Compression is disabled if minSize is negative
+    int compressionMinSize = -1;
+    int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile boolean stopping;
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+        long start = System.nanoTime();
+        inflight.incrementAndGet();
+        // Clients on persistent connections reconnect elsewhere after this response
+        if (stopping) response.setHeader("Connection", "close");
+
+        CompressingResponse compressing = compress(request, response);
+        boolean warmUp = isWarmUp(baseRequest);
+        if (limiter != null && limiter.isEnabled() && !warmUp) request.setAttribute(RestfulLimiter.ATTRIBUTE, limiter);
+        try {
+            HttpServletResponse wrapped = compressing != null ? compressing : response;
+            super.handle(target, baseRequest, request, new SuspendableResponse(wrapped, asyncTimeoutMillis, getServer().getThreadPool()));
+
+            // Async JsonRoute finishes the body when completed
+            if (compressing != null && !request.isAsyncStarted()) compressing.finish();
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new InflightListener(inflight));
+            } else {
+                inflight.decrementAndGet();
+            }
+
+            if (metrics != null && !warmUp) {
+                if (request.isAsyncStarted()) {
+                    request.getAsyncContext().addListener(new MetricsListener(metrics, request, response, start));
+                } else {
+                    record(metrics, request, response, start);
+                }
+            }
+        }
+    }
+
+    /**
+     * Responses after are sent with Connection: close
+     */
+    void setStopping() {
+        this.stopping = true;
+    }
+
+    /**
+     * @return number of requests in flight
+     */
+    int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * @param deadlineNanos System.nanoTime() to wait until
+     * @return number of requests still in flight, 0 if drained before deadline
+     * @throws InterruptedException if interrupted while waiting
+     */
+    int awaitDrained(long deadlineNanos) throws InterruptedException {
+        while (inflight.get() > 0 && System.nanoTime() - deadlineNanos < 0) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return inflight.get();
+    }
+
+    /**
+     * @return whether request is replayed by RestfulWarmUp, not recorded nor limited
+     */
+    private static boolean isWarmUp(Request baseRequest) {
+        return baseRequest.getHttpChannel().getConnector() instanceof LocalConnector;
+    }
+
+    /**
+     * @return CompressingResponse if enabled and accepted by the request
+     */
+    private CompressingResponse compress(HttpServletRequest request, HttpServletResponse response) {
+        if (compressionMinSize < 0) return null;
+        if (request.getMethod().equals("HEAD")) return null;
+
+        String encoding = CompressingResponse.negotiate(request.getHeader("Accept-Encoding"));
+        if (encoding == null) return null;
+        return new CompressingResponse(response, encoding, compressionMinSize, compressionLevel);
+    }
+
+    private static void record(RestfulMetrics metrics, HttpServletRequest request, HttpServletResponse response, long start) {
+        String route = (String) request.getAttribute(RestfulMetrics.ROUTE_ATTRIBUTE);
+        metrics.record(route, response.getStatus(), System.nanoTime() - start);
+    }
+
+    /**
+     * Async JsonRoute are recorded when completed
+     */
+    private static final class MetricsListener implements AsyncListener {
+        private final RestfulMetrics metrics;
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final long start;
+
+        private MetricsListener(RestfulMetrics metrics, HttpServletRequest request, HttpServletResponse response, long start) {
+            this.metrics = metrics;
+            this.request = request;
+            this.response = response;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(metrics, request, response, start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    /**
+     * Async requests are in flight until completed, including by timeout or error
+     */
+    private static final class InflightListener implements AsyncListener {
+        private final AtomicInteger inflight;
+
+        private InflightListener(AtomicInteger inflight) {
+            this.inflight = inflight;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            inflight.decrementAndGet();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    /**
+     * Body written into the response by the route is not flushed, the response stays uncommitted for
+     * AFTER filters to set headers. Spark must not write its own body after it, as it would wrap
+     * a compressed body in gzip again.
+     *
+     * @param response raw response the body is written into
+     */
+    static void written(HttpServletResponse response) {
+        if (response instanceof SuspendableResponse) ((SuspendableResponse) response).written();
+    }
+
+    /**
+     * Once suspended or written, spark sees the response as committed and will not write or close it,
+     * the async route writes into the underlying response when completed.
+     */
+    static final class SuspendableResponse extends HttpServletResponseWrapper {
+        private final long asyncTimeoutMillis;
+        private final Executor executor;
+        private volatile boolean suspended;
+        private volatile boolean written;
+
+        SuspendableResponse(HttpServletResponse response, long asyncTimeoutMillis, Executor executor) {
+            super(response);
+            this.asyncTimeoutMillis = asyncTimeoutMillis;
+            this.executor = executor;
+        }
+
+        /**
+         * @return response for async context to write into after the request thread has returned
+         */
+        HttpServletResponse getAsyncResponse() {
+            return (HttpServletResponse) getResponse();
+        }
+
+        long getAsyncTimeoutMillis() {
+            return asyncTimeoutMillis;
+        }
+
+        /**
+         * AsyncContext.start() requires a servlet ContextHandler which spark does not have
+         *
+         * @return thread pool of the jetty server, for the async route to write in when completed
+         */
+        Executor getExecutor() {
+            return executor;
+        }
+
+        void suspend() {
+            this.suspended = true;
+        }
+
+        void written() {
+            this.written = true;
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return suspended || written || super.isCommitted();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import munch.restful.core.JsonUtils;
+import munch.restful.core.RestfulMeta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spark.Response;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Composite health of RestfulServer, each named check runs on its own schedule in the background
+ * and the health route only reads the last aggregate.
+ * <p>
+ * Healthy when every check passed on its last run. A check that has not completed its first run,
+ * threw or did not complete within its timeout is unhealthy. The response body is rendered when a check
+ * result changes, not on every probe. Always unhealthy while the server is warming up or stopping.
+ */
+final class RestfulHealth {
+    private static final Logger logger = LoggerFactory.getLogger(RestfulHealth.class);
+    private static final Status WARMING_UP = new Status(503, JsonUtils.toString(JsonUtils.wrap("meta", JsonUtils.objectMapper.valueToTree(
+            RestfulMeta.builder().code(503).errorType("ServerWarmingUp").errorMessage("Server is warming up.").build()))));
+
+    private final Map<String, Check> checks = new LinkedHashMap<>();
+    private ScheduledExecutorService scheduler;
+    private ExecutorService workers;
+
+    private volatile Status status = new Status(200, JsonTransformer.Meta200String);
+    private volatile boolean empty = true;
+    private volatile boolean stopping;
+    private volatile boolean warmingUp;
+
+    /**
+     * @param name     of check, unique
+     * @param interval between runs
+     * @param timeout  of each run, a run over it is unhealthy
+     * @param check    to run
+     */
+    synchronized void add(String name, Duration interval, Duration timeout, HealthCheck check) {
+        if (checks.containsKey(name)) throw new IllegalArgumentException("Health check " + name + " is already registered.");
+        if (interval.isNegative() || interval.isZero()) throw new IllegalArgumentException("interval must be positive.");
+        if (timeout.isNegative() || timeout.isZero()) throw new IllegalArgumentException("timeout must be positive.");
+
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(daemon("restful-health"));
+            workers = Executors.newCachedThreadPool(daemon("restful-health-check"));
+        }
+
+        Check state = new Check(name, timeout, check);
+        checks.put(name, state);
+        empty = false;
+        update();
+
+        scheduler.scheduleWithFixedDelay(() -> run(state), 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        logger.info("Registered health check: {} every {}", name, interval);
+    }
+
+    /**
+     * @return whether the server is stopping, health is failing regardless of checks
+     */
+    boolean isStopping() {
+        return stopping;
+    }
+
+    /**
+     * @return whether the server is warming up, health is failing regardless of checks
+     */
+    boolean isWarmingUp() {
+        return warmingUp;
+    }
+
+    /**
+     * @param warmingUp whether health is failing for the server to warm up
+     */
+    void setWarmingUp(boolean warmingUp) {
+        if (this.warmingUp && !warmingUp) logger.info("Warm-up completed, health is no longer gated.");
+        this.warmingUp = warmingUp;
+    }
+
+    /**
+     * @param response to set status & content type of
+     * @return rendered aggregate of last results, plain 200 meta if no check is registered
+     */
+    String respond(Response response) {
+        if (empty && !stopping && !warmingUp) return JsonTransformer.Meta200String;
+
+        Status status = warmingUp && !stopping ? WARMING_UP : this.status;
+        response.status(status.code);
+        response.type(JsonRoute.APP_JSON);
+        return status.body;
+    }
+
+    /**
+     * Fail health regardless of checks and stop running them, for the load balancer to stop sending requests
+     */
+    synchronized void stop() {
+        stopping = true;
+        this.status = new Status(503, JsonUtils.toString(JsonUtils.wrap("meta", JsonUtils.objectMapper.valueToTree(
+                RestfulMeta.builder().code(503).errorType("ServerStopping").errorMessage("Server is stopping.").build()))));
+
+        if (scheduler == null) return;
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void run(Check check) {
+        // Previous run is stuck past its timeout, already reported unhealthy
+        if (!check.running.compareAndSet(false, true)) return;
+
+        long start = System.nanoTime();
+        CompletableFuture.runAsync(() -> {
+            try {
+                check.check.check();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                check.running.set(false);
+            }
+        }, workers).orTimeout(check.timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((ignored, throwable) -> {
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            check.complete(throwable == null ? null : message(throwable, check.timeout), millis);
+            update();
+        });
+    }
+
+    private static String message(Throwable throwable, Duration timeout) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) throwable = throwable.getCause();
+        if (throwable instanceof TimeoutException) return "Timed out after " + timeout.toMillis() + "ms.";
+        if (throwable.getMessage() != null) return throwable.getMessage();
+        return throwable.getClass().getSimpleName();
+    }
+
+    /**
+     * Render the aggregate of last results
+     */
+    private synchronized void update() {
+        if (stopping) return;
+
+        List<String> failed = new ArrayList<>();
+        ObjectNode checksNode = JsonUtils.objectMapper.createObjectNode();
+        checks.forEach((name, check) -> {
+            Result result = check.result;
+            if (!result.healthy) failed.add(name);
+
+            ObjectNode node = checksNode.putObject(name).put("healthy", result.healthy);
+            if (result.checkedAt > 0) node.put("checkedAt", result.checkedAt).put("millis", result.millis);
+            if (result.error != null) node.put("error", result.error);
+        });
+
+        RestfulMeta.Builder meta = RestfulMeta.builder().code(failed.isEmpty() ? 200 : 503);
+        if (!failed.isEmpty()) {
+            meta.errorType("HealthCheckFailed").errorMessage("Health check failed: " + String.join(", ", failed));
+        }
+
+        ObjectNode node = JsonUtils.objectMapper.createObjectNode();
+        node.set("meta", JsonUtils.objectMapper.valueToTree(meta.build()));
+        node.putObject("data").set("checks", checksNode);
+
+        Status status = new Status(failed.isEmpty() ? 200 : 503, JsonUtils.toString(node));
+        if (this.status.code != status.code) {
+            logger.info("Health changed to {}: {}", status.code, failed.isEmpty() ? "all healthy" : String.join(", ", failed));
+        }
+        this.status = status;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Check {
+        private final String name;
+        private final Duration timeout;
+        private final HealthCheck check;
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        private volatile Result result = new Result(false, "Pending first check.", 0, 0);
+
+        private Check(String name, Duration timeout, HealthCheck check) {
+            this.name = name;
+            this.timeout = timeout;
+            this.check = check;
+        }
+
+        private void complete(String error, long millis) {
+            if (error != null && result.healthy) logger.warn("Health check {} failed: {}", name, error);
+            result = new Result(error == null, error, System.currentTimeMillis(), millis);
+        }
+    }
+
+    private static final class Result {
+        private final boolean healthy;
+        private final String error;
+        private final long checkedAt;
+        private final long millis;
+
+        private Result(boolean healthy, String error, long checkedAt, long millis) {
+            this.healthy = healthy;
+            this.error = error;
+            this.checkedAt = checkedAt;
+            this.millis = millis;
+        }
+    }
+
+    private static final class Status {
+        private final int code;
+        private final String body;
+
+        private Status(int code, String body) {
+            this.code = code;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package munch.restful.server;
+
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spark.embeddedserver.jetty.JettyServerFactory;
+
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded Jetty server factory for RestfulServer, configures the worker thread pool and the connector.
+ */
+class RestfulJettyFactory implements JettyServerFactory {
+    private static final Logger logger = LoggerFactory.getLogger(RestfulJettyFactory.class);
+
+    int minThreads = -1;
+    int maxThreads = -1;
+    int idleTimeoutMillis = -1;
+    int queueSize = -1;
+    boolean virtualThreads = false;
+    long asyncTimeoutMillis = RestfulHandler.DEFAULT_ASYNC_TIMEOUT_MILLIS;
+    RestfulMetrics metrics;
+    RestfulLimiter limiter;
+    int compressionMinSize = -1;
+    int compressionLevel = -1;
+
+    // Connector, -1 for spark or jetty default
+    boolean http2 = false;
+    int acceptors = -1;
+    int selectors = -1;
+    int acceptQueueSize = -1;
+    int connectorIdleTimeoutMillis = -1;
+    boolean tcpNoDelay = true;
+    int requestHeaderSize = -1;
+    int responseHeaderSize = -1;
+    int outputBufferSize = -1;
+
+    // Set once spark has created the server
+    volatile Server server;
+    volatile RestfulHandler handler;
+
+    /**
+     * @param maxThreads          max threads set through Spark.threadPool, used if not set in RestfulServer
+     * @param minThreads          min threads set through Spark.threadPool, used if not set in RestfulServer
+     * @param threadTimeoutMillis idle timeout set through Spark.threadPool, used if not set in RestfulServer
+     * @return created Jetty Server
+     */
+    @Override
+    public Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+        return create(createThreadPool(maxThreads, minThreads, threadTimeoutMillis));
+    }
+
+    @Override
+    public Server create(ThreadPool threadPool) {
+        RestfulJettyServer server = new RestfulJettyServer(threadPool, this);
+        if (metrics != null) metrics.setThreadPool(server.getThreadPool());
+        this.server = server;
+        return server;
+    }
+
+    /**
+     * Same defaults as spark: min 8 threads and 60 seconds idle timeout, queue is unbounded.
+     *
+     * @return ThreadPool for jetty, null for jetty default
+     */
+    ThreadPool createThreadPool(int sparkMaxThreads, int sparkMinThreads, int sparkIdleTimeoutMillis) {
+        if (virtualThreads) return new VirtualThreadPool(newVirtualThreadExecutor());
+
+        int max = maxThreads > 0 ? maxThreads : sparkMaxThreads;
+        int min = minThreads > 0 ? minThreads : sparkMinThreads;
+        int idleTimeout = idleTimeoutMillis > 0 ? idleTimeoutMillis : sparkIdleTimeoutMillis;
+        if (max <= 0 && queueSize <= 0) return null;
+
+        max = max > 0 ? max : 200;
+        min = min > 0 ? min : 8;
+        idleTimeout = idleTimeout > 0 ? idleTimeout : 60000;
+
+        // Jobs over the queue bound are rejected and the connection is closed by jetty
+        BlockingQueue<Runnable> queue = queueSize > 0 ? new BlockingArrayQueue<>(Math.min(min, queueSize), min, queueSize) : null;
+        QueuedThreadPool threadPool = new QueuedThreadPool(max, min, idleTimeout, queue);
+        threadPool.setName("restful-server");
+        return threadPool;
+    }
+
+    /**
+     * @return whether the connector spark creates is replaced
+     */
+    boolean isConnectorConfigured() {
+        return http2 || acceptors >= 0 || selectors >= 0 || acceptQueueSize >= 0 || connectorIdleTimeoutMillis >= 0
+                || !tcpNoDelay || requestHeaderSize > 0 || responseHeaderSize > 0 || outputBufferSize > 0;
+    }
+
+    /**
+     * Acceptor and selector counts are fixed when a ServerConnector is constructed,
+     * the connector spark creates is replaced with one on the same host and port.
+     *
+     * @param server jetty server
+     * @param spark  connector created by spark
+     * @return configured connector
+     */
+    ServerConnector createConnector(Server server, ServerConnector spark) {
+        // Spark creates its HttpConfiguration with forwarded request customizer, it is kept
+        HttpConnectionFactory sparkHttp = spark.getConnectionFactory(HttpConnectionFactory.class);
+        HttpConfiguration config = sparkHttp != null ? new HttpConfiguration(sparkHttp.getHttpConfiguration()) : new HttpConfiguration();
+        if (requestHeaderSize > 0) config.setRequestHeaderSize(requestHeaderSize);
+        if (responseHeaderSize > 0) config.setResponseHeaderSize(responseHeaderSize);
+        if (outputBufferSize > 0) config.setOutputBufferSize(outputBufferSize);
+
+        List<ConnectionFactory> factories = new ArrayList<>();
+        factories.add(new HttpConnectionFactory(config));
+        // HTTP/1.1 connections upgrade to h2c, or start with the HTTP/2 preface for prior knowledge
+        if (http2) factories.add(new HTTP2CServerConnectionFactory(config));
+
+        RestfulConnector connector = new RestfulConnector(server, acceptors, selectors, factories.toArray(new ConnectionFactory[0]));
+        connector.setHost(spark.getHost());
+        connector.setPort(spark.getPort());
+        connector.setSoLingerTime(spark.getSoLingerTime());
+        connector.setIdleTimeout(connectorIdleTimeoutMillis >= 0 ? connectorIdleTimeoutMillis : spark.getIdleTimeout());
+        if (acceptQueueSize >= 0) connector.setAcceptQueueSize(acceptQueueSize);
+        connector.tcpNoDelay = tcpNoDelay;
+        return connector;
+    }
+
+    /**
+     * Virtual threads require Java 21, this library is compiled against Java 9 hence the reflection.
+     *
+     * @return executor that starts a new virtual thread for each task
+     * @throws IllegalStateException if the runtime does not support virtual threads
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later.", e);
+        }
+    }
+
+    /**
+     * Validate early, spark exits the JVM if the embedded server fails to ignite.
+     *
+     * @throws IllegalStateException if the runtime does not support virtual threads
+     */
+    static void requireVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later.", e);
+        }
+    }
+
+    /**
+     * Jetty 9.4.8 only has the deprecated ExecutorThreadPool to adapt an Executor, which reports -1 threads.
+     * Virtual threads are not pooled, thread counts are unavailable and not reported in metrics.
+     */
+    static final class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+        private final ExecutorService executor;
+
+        private VirtualThreadPool(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable job) {
+            executor.execute(job);
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+            executor.shutdown();
+        }
+
+        @Override
+        public void join() throws InterruptedException {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * @return -1, unavailable
+         */
+        @Override
+        public int getThreads() {
+            return -1;
+        }
+
+        /**
+         * @return -1, unavailable
+         */
+        @Override
+        public int getIdleThreads() {
+            return -1;
+        }
+
+        /**
+         * @return false, a new virtual thread is started for each job
+         */
+        @Override
+        public boolean isLowOnThreads() {
+            return false;
+        }
+    }
+
+    /**
+     * Jetty 9.4.8 always sets TCP_NODELAY on accepted sockets
+     */
+    private static final class RestfulConnector extends ServerConnector {
+        private boolean tcpNoDelay = true;
+
+        private RestfulConnector(Server server, int acceptors, int selectors, ConnectionFactory... factories) {
+            super(server, acceptors, selectors, factories);
+        }
+
+        @Override
+        protected void configure(Socket socket) {
+            super.configure(socket);
+            if (tcpNoDelay) return;
+
+            try {
+                socket.setTcpNoDelay(false);
+            } catch (SocketException e) {
+                logger.debug("Failed to set TCP_NODELAY", e);
+            }
+        }
+    }
+
+    /**
+     * Spark sets its handler into the server after it is created, it is wrapped with RestfulHandler here.
+     * Spark sets its connector the same way, it is replaced if RestfulServer configured the connector.
+     */
+    private static final class RestfulJettyServer extends Server {
+        private final RestfulJettyFactory factory;
+
+        private RestfulJettyServer(ThreadPool threadPool, RestfulJettyFactory factory) {
+            super(threadPool);
+            this.factory = factory;
+        }
+
+        @Override
+        public void setHandler(Handler handler) {
+            if (handler == null || handler instanceof RestfulHandler) {
+                super.setHandler(handler);
+                return;
+            }
+
+            RestfulHandler restfulHandler = new RestfulHandler();
+            restfulHandler.asyncTimeoutMillis = factory.asyncTimeoutMillis;
+            restfulHandler.metrics = factory.metrics;
+            restfulHandler.limiter = factory.limiter;
+            restfulHandler.compressionMinSize = factory.compressionMinSize;
+            restfulHandler.compressionLevel = factory.compressionLevel;
+            restfulHandler.setHandler(handler);
+            super.setHandler(restfulHandler);
+            factory.handler = restfulHandler;
+        }
+
+        @Override
+        public void setConnectors(Connector[] connectors) {
+            if (connectors != null && connectors.length == 1 && factory.isConnectorConfigured()
+                    && connectors[0] instanceof ServerConnector
+                    && connectors[0].getConnectionFactory(SslConnectionFactory.class) == null) {
+                connectors = new Connector[]{factory.createConnector(this, (ServerConnector) connectors[0])};
+            }
+            super.setConnectors(connectors);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package munch.restful.server;
+
+import munch.restful.core.exception.LimitException;
+import spark.Route;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Adaptive concurrency limits of RestfulServer, a server wide limit with per route overrides.
+ * <p>
+ * RestfulHandler puts the limiter of the server into the request, JsonService routes acquire from it.
+ * Requests over the limit are rejected right away with 429 LimitException.
+ * Requests are limited after they are taken off the jetty thread pool queue, queuing is bounded by the pool only.
+ * Routes not registered through JsonService, e.g. withHealth, are not limited.
+ */
+final class RestfulLimiter {
+    static final String ATTRIBUTE = RestfulLimiter.class.getName();
+
+    private final ConcurrentMap<String, AdaptiveLimiter> routes = new ConcurrentHashMap<>();
+    private volatile AdaptiveLimiter defaultLimiter;
+
+    /**
+     * @param minLimit lowest limit of all routes without override
+     * @param maxLimit highest limit of all routes without override
+     */
+    void setDefault(int minLimit, int maxLimit) {
+        this.defaultLimiter = new AdaptiveLimiter(minLimit, maxLimit);
+    }
+
+    /**
+     * @param route    template, e.g. "GET /users/:id"
+     * @param minLimit lowest limit of route
+     * @param maxLimit highest limit of route
+     */
+    void setRoute(String route, int minLimit, int maxLimit) {
+        routes.put(route, new AdaptiveLimiter(minLimit, maxLimit));
+    }
+
+    boolean isEnabled() {
+        return defaultLimiter != null || !routes.isEmpty();
+    }
+
+    private AdaptiveLimiter get(String route) {
+        AdaptiveLimiter limiter = routes.get(route);
+        return limiter != null ? limiter : defaultLimiter;
+    }
+
+    /**
+     * @param template route template
+     * @param route    to limit
+     * @return route tagged with its template for metrics, acquires from the limiter of the server before handling
+     */
+    static Route wrap(String template, Route route) {
+        return (request, response) -> {
+            request.attribute(RestfulMetrics.ROUTE_ATTRIBUTE, template);
+            RestfulLimiter restfulLimiter = (RestfulLimiter) request.raw().getAttribute(ATTRIBUTE);
+            AdaptiveLimiter limiter = restfulLimiter != null ? restfulLimiter.get(template) : null;
+            if (limiter == null) return route.handle(request, response);
+
+            int acquired = limiter.tryAcquire();
+            if (acquired < 0) {
+                throw new LimitException(429, "Concurrency limit of " + limiter.getLimit() + " reached, request rejected.");
+            }
+
+            long start = System.nanoTime();
+            boolean async = false;
+            try {
+                Object body = route.handle(request, response);
+                HttpServletRequest raw = request.raw();
+                if (raw.isAsyncStarted()) {
+                    raw.getAsyncContext().addListener(new ReleaseListener(limiter, start, acquired));
+                    async = true;
+                }
+                return body;
+            } finally {
+                if (!async) limiter.release(System.nanoTime() - start, acquired);
+            }
+        };
+    }
+
+    /**
+     * @return limit, in flight & rejected count of each limiter
+     */
+    Map<String, AdaptiveLimiter> getLimiters() {
+        Map<String, AdaptiveLimiter> limiters = new TreeMap<>(routes);
+        AdaptiveLimiter defaultLimiter = this.defaultLimiter;
+        if (defaultLimiter != null) limiters.put("default", defaultLimiter);
+        return limiters;
+    }
+
+    /**
+     * Async JsonRoute hold the permit until completed
+     */
+    private static final class ReleaseListener implements AsyncListener {
+        private final AdaptiveLimiter limiter;
+        private final long start;
+        private final int acquired;
+
+        private ReleaseListener(AdaptiveLimiter limiter, long start, int acquired) {
+            this.limiter = limiter;
+            this.start = start;
+            this.acquired = acquired;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limiter.release(System.nanoTime() - start, acquired);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import munch.restful.core.JsonUtils;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request count, status code buckets & latency histogram of each registered route template,
+ * plus jetty thread pool saturation. Recorded by RestfulHandler for every request since the server started,
+ * except requests replayed by RestfulWarmUp.
+ * <p>
+ * Requests are keyed by "METHOD /path/:param", requests that did not reach a JsonService route,
+ * e.g. not found or rejected by a before filter, are keyed as "unmatched".
+ */
+public final class RestfulMetrics {
+    static final String ROUTE_ATTRIBUTE = RestfulMetrics.class.getName() + ".route";
+    static final String UNMATCHED = "unmatched";
+
+    private static final String[] STATUS_NAMES = {"other", "1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private final ConcurrentMap<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    private volatile ThreadPool threadPool;
+    private volatile RestfulLimiter limiter;
+
+    RestfulMetrics() {
+    }
+
+    void setThreadPool(ThreadPool threadPool) {
+        this.threadPool = threadPool;
+    }
+
+    void setLimiter(RestfulLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    /**
+     * @param route  template of route, null if unmatched
+     * @param status code of response
+     * @param nanos  time taken
+     */
+    void record(String route, int status, long nanos) {
+        if (route == null) route = UNMATCHED;
+
+        RouteMetrics metrics = routes.get(route);
+        if (metrics == null) {
+            metrics = routes.computeIfAbsent(route, s -> new RouteMetrics());
+        }
+        metrics.record(status, nanos);
+    }
+
+    /**
+     * Latency is in milliseconds, threadPool is {virtual: true} with virtual threads as thread counts are unavailable.
+     * <pre>
+     * {
+     *     routes: {"GET /users/:id": {count: 10, status: {"2xx": 9, "4xx": 1}, latency: {p50: 1.2, p90: 2.3, p99: 4.1, p999: 4.1, mean: 1.4, max: 4.1}}},
+     *     threadPool: {threads: 12, idle: 4, busy: 8, max: 200, queue: 0, utilization: 0.04},
+     *     limits: {"default": {limit: 20, inflight: 3, rejected: 0}}
+     * }
+     * </pre>
+     *
+     * @return snapshot of all metrics
+     */
+    public ObjectNode snapshot() {
+        ObjectNode node = JsonUtils.objectMapper.createObjectNode();
+
+        ObjectNode routesNode = node.putObject("routes");
+        Map<String, RouteMetrics> sorted = new TreeMap<>(routes);
+        sorted.forEach((route, metrics) -> metrics.write(routesNode.putObject(route)));
+
+        ThreadPool threadPool = this.threadPool;
+        if (threadPool != null) {
+            writeThreadPool(node.putObject("threadPool"), threadPool);
+        }
+
+        RestfulLimiter limiter = this.limiter;
+        if (limiter != null && limiter.isEnabled()) {
+            ObjectNode limitsNode = node.putObject("limits");
+            limiter.getLimiters().forEach((route, adaptive) -> {
+                limitsNode.putObject(route)
+                        .put("limit", adaptive.getLimit())
+                        .put("inflight", adaptive.getInflight())
+                        .put("rejected", adaptive.getRejected());
+            });
+        }
+        return node;
+    }
+
+    private static void writeThreadPool(ObjectNode node, ThreadPool threadPool) {
+        if (threadPool instanceof RestfulJettyFactory.VirtualThreadPool) {
+            // Thread counts are unavailable, virtual threads are not pooled
+            node.put("virtual", true);
+            return;
+        }
+
+        node.put("threads", threadPool.getThreads());
+        node.put("idle", threadPool.getIdleThreads());
+        node.put("lowOnThreads", threadPool.isLowOnThreads());
+
+        if (threadPool instanceof QueuedThreadPool) {
+            QueuedThreadPool queued = (QueuedThreadPool) threadPool;
+            node.put("busy", queued.getBusyThreads());
+            node.put("max", queued.getMaxThreads());
+            node.put("queue", queued.getQueueSize());
+            node.put("utilization", (double) queued.getBusyThreads() / queued.getMaxThreads());
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static final class RouteMetrics {
+        private final LongAdder[] status = new LongAdder[STATUS_NAMES.length];
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private RouteMetrics() {
+            for (int i = 0; i < status.length; i++) {
+                status[i] = new LongAdder();
+            }
+        }
+
+        private void record(int code, long nanos) {
+            int bucket = code / 100;
+            status[bucket > 0 && bucket < status.length ? bucket : 0].increment();
+            latency.record(nanos);
+        }
+
+        private void write(ObjectNode node) {
+            LatencyHistogram.Snapshot snapshot = latency.snapshot();
+            node.put("count", snapshot.getCount());
+
+            ObjectNode statusNode = node.putObject("status");
+            for (int i = 0; i < status.length; i++) {
+                long count = status[i].sum();
+                if (count > 0) statusNode.put(STATUS_NAMES[i], count);
+            }
+
+            ObjectNode latencyNode = node.putObject("latency");
+            latencyNode.put("p50", millis(snapshot.percentile(50)));
+            latencyNode.put("p90", millis(snapshot.percentile(90)));
+            latencyNode.put("p99", millis(snapshot.percentile(99)));
+            latencyNode.put("p999", millis(snapshot.percentile(99.9)));
+            latencyNode.put("mean", millis(snapshot.getMean()));
+            latencyNode.put("max", millis(snapshot.getMax()));
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package munch.restful.server;
+
+import spark.ExceptionHandler;
+import spark.Filter;
+import spark.FilterImpl;
+import spark.HaltException;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+import spark.RouteGroup;
+import spark.Service;
+import spark.Spark;
+import spark.route.HttpMethod;
+import spark.route.Routes;
+import spark.routematch.RouteMatch;
+import spark.utils.SparkUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes of a RestfulServer, on its own spark Service or the static Spark singleton.
+ * Tracks the path prefixes of spark route groups, spark does not expose the route template a request matched.
+ * Routes are registered from a single thread when the server starts,
+ * JsonService registers into the routes of the server starting it, see current().
+ * <p>
+ * Spark 2.7 shares a single ExceptionMapper across every Service and clears it when any Service stops,
+ * exceptions thrown by routes added here are mapped by the exception handlers of these routes instead.
+ * <p>
+ * Routes are also compiled into a RouteTree, for RestfulBatch to match sub requests,
+ * filters are also kept in spark Routes of their own, for RestfulBatch to run them on sub requests.
+ * Once dispatching, routes are only added to the RouteTree instead of spark.
+ * Spark matches a request by testing every registered route, with a catch all route for each method
+ * spark only has a handful of routes to test, and the catch all does a single lookup in the tree.
+ * Plain spark routes are not in the tree, only those added before the catch all are matched, see catchAll().
+ */
+final class RestfulRoutes {
+    static final String PARAMS_ATTRIBUTE = RestfulRoutes.class.getName() + ".params";
+
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "PATCH", "HEAD"};
+
+    /**
+     * Routes of the static Spark singleton
+     */
+    private static final RestfulRoutes SPARK = new RestfulRoutes(null);
+    private static final ThreadLocal<RestfulRoutes> CURRENT = new ThreadLocal<>();
+
+    private final Service service;
+    private final Deque<String> prefixes = new ArrayDeque<>();
+    private final List<Registration> registrations = new ArrayList<>();
+    private final List<FilterRegistration> filterRegistrations = new ArrayList<>();
+    private final Map<Class<?>, ExceptionHandler<Exception>> exceptions = new ConcurrentHashMap<>();
+
+    private volatile boolean dispatching;
+    private boolean dispatched;
+    private volatile RouteTree tree;
+    private volatile Routes filters;
+
+    private RestfulRoutes(Service service) {
+        this.service = service;
+    }
+
+    /**
+     * @param service spark service, null for the static Spark singleton
+     * @return routes of service
+     */
+    static RestfulRoutes of(Service service) {
+        if (service == null) return SPARK;
+        return new RestfulRoutes(service);
+    }
+
+    /**
+     * @return routes of the RestfulServer starting its routers on this thread, else of the static Spark singleton
+     */
+    static RestfulRoutes current() {
+        RestfulRoutes routes = CURRENT.get();
+        return routes != null ? routes : SPARK;
+    }
+
+    /**
+     * @param runnable to run with this as current() routes
+     */
+    void run(Runnable runnable) {
+        RestfulRoutes previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            runnable.run();
+        } finally {
+            if (previous == null) CURRENT.remove();
+            else CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Same as Spark.path, with the prefix tracked
+     *
+     * @param path       prefix
+     * @param routeGroup routes to add with the prefix
+     */
+    void path(String path, RouteGroup routeGroup) {
+        prefixes.addLast(path);
+        try {
+            if (service == null) Spark.path(path, routeGroup);
+            else service.path(path, routeGroup);
+        } finally {
+            prefixes.removeLast();
+        }
+    }
+
+    /**
+     * @param method http method
+     * @param path   of route
+     * @return route template, e.g. "GET /v1/users/:id"
+     */
+    String template(String method, String path) {
+        return method + " " + fullPath(path);
+    }
+
+    /**
+     * @return prefix of the current route groups, empty if none
+     */
+    String prefix() {
+        return fullPath("");
+    }
+
+    private String fullPath(String path) {
+        if (prefixes.isEmpty()) return path;
+        return String.join("", prefixes) + path;
+    }
+
+    /**
+     * Dispatch all routes added after through the RouteTree, must be called outside of any route group.
+     * The catch all routes are only added to spark by catchAll().
+     */
+    synchronized void dispatch() {
+        if (!prefixes.isEmpty()) throw new IllegalStateException("dispatch() cannot be called within a route group.");
+        dispatching = true;
+    }
+
+    /**
+     * Add the catch all route of each method to spark, once all routers are started.
+     * Spark matches routes in the order added, plain spark routes added before, e.g. by a RestfulService
+     * that is not a JsonService, are matched before the catch all instead of being shadowed by it.
+     * Plain spark routes added after are never matched.
+     */
+    synchronized void catchAll() {
+        if (!dispatching || dispatched) return;
+        for (String method : METHODS) {
+            spark(method, "*", null, dispatcher(method));
+        }
+        dispatched = true;
+    }
+
+    /**
+     * @param method http method
+     * @param path   of route, within current route group
+     * @param route  to add
+     */
+    void add(String method, String path, Route route) {
+        add(method, path, null, route);
+    }
+
+    /**
+     * @param method     http method
+     * @param path       of route, within current route group
+     * @param acceptType of route, nullable for spark default
+     * @param route      to add
+     */
+    void add(String method, String path, String acceptType, Route route) {
+        route = guard(route);
+        synchronized (this) {
+            registrations.add(new Registration(method, fullPath(path), acceptType != null ? acceptType : "*/*", route));
+            tree = null;
+        }
+
+        if (!dispatching) spark(method, path, acceptType, route);
+    }
+
+    /**
+     * Match a route added here the same way as the dispatcher, whether dispatching or not.
+     *
+     * @param method http method
+     * @param path   raw request path, not decoded
+     * @param accept Accept header of request, nullable
+     * @return matched route with bound path params, null if none
+     */
+    RouteTree.Match find(String method, String path, String accept) {
+        return tree().find(method, path, accept);
+    }
+
+    /**
+     * @param path   for before filter, null for all paths
+     * @param filter to add
+     */
+    void before(String path, Filter filter) {
+        addFilter(HttpMethod.before, path, filter);
+        if (service == null) {
+            if (path == null) Spark.before(filter);
+            else Spark.before(path, filter);
+        } else {
+            if (path == null) service.before(filter);
+            else service.before(path, filter);
+        }
+    }
+
+    /**
+     * @param path   for after filter, null for all paths
+     * @param filter to add
+     */
+    void after(String path, Filter filter) {
+        addFilter(HttpMethod.after, path, filter);
+        if (service == null) {
+            if (path == null) Spark.after(filter);
+            else Spark.after(path, filter);
+        } else {
+            if (path == null) service.after(filter);
+            else service.after(path, filter);
+        }
+    }
+
+    private synchronized void addFilter(HttpMethod type, String path, Filter filter) {
+        filterRegistrations.add(new FilterRegistration(type, path != null ? fullPath(path) : SparkUtils.ALL_PATHS, filter));
+        filters = null;
+    }
+
+    /**
+     * Match filters added here the same way as spark.
+     *
+     * @param type   HttpMethod.before or HttpMethod.after
+     * @param path   raw request path, not decoded
+     * @param accept Accept header of request, nullable
+     * @return matched filters in the order added, the target of each is a FilterImpl
+     */
+    List<RouteMatch> filters(HttpMethod type, String path, String accept) {
+        Routes filters = this.filters;
+        if (filters == null) {
+            synchronized (this) {
+                if (this.filters == null) {
+                    Routes built = Routes.create();
+                    for (FilterRegistration registration : filterRegistrations) {
+                        built.add(registration.type, registration.filter);
+                    }
+                    this.filters = built;
+                }
+                filters = this.filters;
+            }
+        }
+        return filters.findMultiple(type, path, accept);
+    }
+
+    void notFound(Route route) {
+        if (service == null) Spark.notFound(route);
+        else service.notFound(route);
+    }
+
+    /**
+     * Exception handler of routes added here, also registered in spark for exceptions thrown by filters
+     *
+     * @param exceptionClass to handle, including subclasses without their own handler
+     * @param handler        to handle with
+     * @param <T>            type of exception
+     */
+    @SuppressWarnings("unchecked")
+    <T extends Exception> void exception(Class<T> exceptionClass, ExceptionHandler<? super T> handler) {
+        exceptions.put(exceptionClass, (exception, request, response) -> handler.handle((T) exception, request, response));
+        if (service == null) Spark.exception(exceptionClass, handler);
+        else service.exception(exceptionClass, handler);
+    }
+
+    /**
+     * @param exception to handle with the handler of its closest class
+     * @param request   spark request
+     * @param response  spark response
+     * @return whether a handler is registered for the exception
+     */
+    boolean handle(Exception exception, Request request, Response response) {
+        for (Class<?> type = exception.getClass(); type != null; type = type.getSuperclass()) {
+            ExceptionHandler<Exception> handler = exceptions.get(type);
+            if (handler != null) {
+                handler.handle(exception, request, response);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param route to map exceptions of
+     * @return route with exceptions mapped by handlers of these routes, body written by the handler is returned
+     */
+    private Route guard(Route route) {
+        return (request, response) -> {
+            try {
+                return route.handle(request, response);
+            } catch (HaltException e) {
+                throw e;
+            } catch (Exception e) {
+                if (!handle(e, request, response)) throw e;
+                // Null is answered as not found by spark
+                String body = response.body();
+                return body != null ? body : "";
+            }
+        };
+    }
+
+    void port(int port) {
+        if (service == null) Spark.port(port);
+        else service.port(port);
+    }
+
+    /**
+     * @return port, the bound port if started with 0
+     * @throws IllegalStateException when not initialized
+     */
+    int port() {
+        if (service == null) return Spark.port();
+        return service.port();
+    }
+
+    void awaitInitialization() {
+        if (service == null) Spark.awaitInitialization();
+        else service.awaitInitialization();
+    }
+
+    /**
+     * Stop spark, routes are cleared
+     */
+    void stop() {
+        synchronized (this) {
+            registrations.clear();
+            filterRegistrations.clear();
+            tree = null;
+            filters = null;
+            dispatching = false;
+            dispatched = false;
+        }
+
+        if (service == null) Spark.stop();
+        else service.stop();
+    }
+
+    private void spark(String method, String path, String acceptType, Route route) {
+        if (service != null) {
+            service(method, path, acceptType, route);
+            return;
+        }
+
+        if (acceptType != null) {
+            if (method.equals("POST")) Spark.post(path, acceptType, route);
+            else if (method.equals("PUT")) Spark.put(path, acceptType, route);
+            else throw new IllegalArgumentException(method + " with acceptType is not supported.");
+            return;
+        }
+
+        switch (method) {
+            case "GET":
+                Spark.get(path, route);
+                break;
+            case "POST":
+                Spark.post(path, route);
+                break;
+            case "PUT":
+                Spark.put(path, route);
+                break;
+            case "DELETE":
+                Spark.delete(path, route);
+                break;
+            case "PATCH":
+                Spark.patch(path, route);
+                break;
+            case "HEAD":
+                Spark.head(path, route);
+                break;
+            default:
+                throw new IllegalArgumentException(method + " is not supported.");
+        }
+    }
+
+    private void service(String method, String path, String acceptType, Route route) {
+        if (acceptType != null) {
+            if (method.equals("POST")) service.post(path, acceptType, route);
+            else if (method.equals("PUT")) service.put(path, acceptType, route);
+            else throw new IllegalArgumentException(method + " with acceptType is not supported.");
+            return;
+        }
+
+        switch (method) {
+            case "GET":
+                service.get(path, route);
+                break;
+            case "POST":
+                service.post(path, route);
+                break;
+            case "PUT":
+                service.put(path, route);
+                break;
+            case "DELETE":
+                service.delete(path, route);
+                break;
+            case "PATCH":
+                service.patch(path, route);
+                break;
+            case "HEAD":
+                service.head(path, route);
+                break;
+            default:
+                throw new IllegalArgumentException(method + " is not supported.");
+        }
+    }
+
+    /**
+     * @param method http method of catch all
+     * @return catch all route, null body for spark to answer not found
+     */
+    private Route dispatcher(String method) {
+        return (request, response) -> {
+            RouteTree tree = tree();
+            String uri = request.raw().getRequestURI();
+            String accept = request.headers("Accept");
+
+            RouteTree.Match match = tree.find(method, uri, accept);
+            if (match == null) {
+                // Same as spark, HEAD without route is answered with an empty body if GET route exists
+                if (method.equals("HEAD") && tree.find("GET", uri, accept) != null) return "";
+                return null;
+            }
+
+            if (!match.params.isEmpty()) request.raw().setAttribute(PARAMS_ATTRIBUTE, match.params);
+            return match.route.handle(request, response);
+        };
+    }
+
+    private RouteTree tree() {
+        RouteTree tree = this.tree;
+        if (tree != null) return tree;
+
+        synchronized (this) {
+            if (this.tree == null) {
+                RouteTree built = new RouteTree();
+                for (Registration registration : registrations) {
+                    built.add(registration.method, registration.path, registration.acceptType, registration.route);
+                }
+                this.tree = built;
+            }
+            return this.tree;
+        }
+    }
+
+    private static final class FilterRegistration {
+        private final HttpMethod type;
+        private final FilterImpl filter;
+
+        private FilterRegistration(HttpMethod type, String path, Filter filter) {
+            this.type = type;
+            this.filter = new FilterImpl(path, "*/*") {
+                @Override
+                public void handle(Request request, Response response) throws Exception {
+                    filter.handle(request, response);
+                }
+            };
+        }
+    }
+
+    private static final class Registration {
+        private final String method;
+        private final String path;
+        private final String acceptType;
+        private final Route route;
+
+        private Registration(String method, String path, String acceptType, Route route) {
+            this.method = method;
+            this.path = path;
+            this.acceptType = acceptType;
+            this.route = route;
+        }
+    }
+}
@@ -8,19 +8,36 @@ import com.typesafe.config.ConfigFactory;
 import munch.restful.core.JsonUtils;
 import munch.restful.core.RestfulMeta;
 import munch.restful.core.exception.*;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.NetworkConnector;
+import org.eclipse.jetty.server.Server;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import spark.Request;
 import spark.Response;
-import spark.Spark;
+import spark.Service;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
 
 import java.net.SocketTimeoutException;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
+import java.util.zip.Deflater;
 
 /**
+ * Runs on the static Spark singleton by default, or on its own spark Service for more than one server in a JVM,
+ * e.g. an admin port for health and metrics with its own thread pool apart from the traffic port:
+ * <pre>
+ * new RestfulServer(Service.ignite(), services).withThreadPool(8, 200, Duration.ofSeconds(60), 0).start(8080);
+ * new RestfulServer(Service.ignite()).withThreadPool(2, 8, Duration.ofSeconds(60), 0).start(8081)
+ *         .withHealth().withMetrics();
+ * </pre>
+ * Each server has its own jetty thread pool, metrics, limiter and health.
+ * <p>
  * Created by: Fuxing
  * Date: 9/12/2016
  * Time: 6:47 PM
@@ -30,6 +47,8 @@ public class RestfulServer {
     protected static final Logger logger = LoggerFactory.getLogger(RestfulServer.class);
     protected static final ObjectMapper objectMapper = JsonService.objectMapper;
     protected static final String DEFAULT_HEALTH_PATH = "/health/check";
+    protected static final String DEFAULT_METRICS_PATH = "/health/metrics";
+    protected static final String DEFAULT_BATCH_PATH = "/batch";
 
     protected static final Set<String> MUTED_TYPE = Set.of(
             AuthenticationException.class.getName(),
@@ -41,15 +60,37 @@ public class RestfulServer {
             UnavailableException.class.getName()
     );
 
+    private static final Object STARTING = new Object();
+
     private final RestfulService[] routers;
+    private final RestfulRoutes routes;
+    private final RestfulJettyFactory jettyFactory = new RestfulJettyFactory();
+    private final RestfulMetrics metrics = new RestfulMetrics();
+    private final RestfulLimiter limiter = new RestfulLimiter();
+    private final RestfulHealth health = new RestfulHealth();
+    private RestfulBatch batch;
+    private RestfulWarmUp warmUp;
     private boolean started = false;
     private boolean debug = true;
+    private boolean dispatcher = false;
 
     /**
      * @param routers array of routes for spark server to route with
      */
     public RestfulServer(RestfulService... routers) {
+        this((Service) null, routers);
+    }
+
+    /**
+     * @param service spark service to run on instead of the static Spark singleton, e.g. Service.ignite()
+     * @param routers array of routes for spark server to route with
+     */
+    public RestfulServer(Service service, RestfulService... routers) {
         this.routers = routers;
+        this.routes = RestfulRoutes.of(service);
+        this.jettyFactory.metrics = metrics;
+        this.jettyFactory.limiter = limiter;
+        this.metrics.setLimiter(limiter);
     }
 
     /**
@@ -88,47 +129,64 @@ public class RestfulServer {
      * }
      * </pre>
      *
-     * @param port port to run server with
+     * @param port port to run server with, 0 for any free port
      */
     public void start(int port) {
-        // Setup port
-        Spark.port(port);
+        if (warmUp != null) health.setWarmingUp(true);
+
+        // Spark looks up the jetty factory when it initializes, servers are started one at a time
+        synchronized (STARTING) {
+            routes.run(() -> start0(port));
+            routes.awaitInitialization();
+        }
+        logger.info("Started Spark Server on port: {}", getPort());
+        this.started = true;
+        if (warmUp != null) warmUp.start(jettyFactory.server, health);
+    }
+
+    private void start0(int port) {
+        // Setup jetty thread pool & port
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, new EmbeddedJettyFactory(jettyFactory));
+        routes.port(port);
 
         // Logging Setup
         logger.info("Path logging is registered to trace.");
         // Because it is trace, to activate logging
         // set munch.restful.server.RestfulServer to trace
-        Spark.before((request, response) -> {
+        routes.before(null, (request, response) -> {
             if (!request.pathInfo().equals(DEFAULT_HEALTH_PATH)) {
                 logger.trace("{}: {}", request.requestMethod(), request.pathInfo());
             }
         });
 
         // Setup all routers
+        if (dispatcher) routes.dispatch();
         setupRouters();
+        // After the routers, plain spark routes they added are matched before the catch all
+        if (dispatcher) routes.catchAll();
 
         // Default handler for not found
-        Spark.notFound((req, res) -> {
-            res.header("content-type", JsonRoute.APP_JSON);
-
-            String path = req.pathInfo();
-            return JsonUtils.toString(objectMapper.createObjectNode()
-                    .set("meta", objectMapper.valueToTree(RestfulMeta.builder()
-                            .code(404)
-                            .errorType("EndpointNotFound")
-                            .errorMessage("Requested " + path + " endpoint is not registered.")
-                            .build())));
-        });
+        routes.notFound(RestfulServer::notFound);
         logger.info("Registered http 404 not found json response.");
 
         // Handle all expected exceptions
         handleException();
-        logger.info("Started Spark Server on port: {}", port);
-        this.started = true;
+    }
+
+    private static String notFound(Request request, Response response) {
+        response.header("content-type", JsonRoute.APP_JSON);
+
+        String path = request.pathInfo();
+        return JsonUtils.toString(objectMapper.createObjectNode()
+                .set("meta", objectMapper.valueToTree(RestfulMeta.builder()
+                        .code(404)
+                        .errorType("EndpointNotFound")
+                        .errorMessage("Requested " + path + " endpoint is not registered.")
+                        .build())));
     }
 
     /**
-     * Setup all the routers by starting them
+     * Setup all the routers by starting them, JsonService routes are registered into the spark service of this server
      */
     protected void setupRouters() {
         for (RestfulService router : routers) {
@@ -144,9 +202,10 @@ public class RestfulServer {
      */
     protected void handleException() {
         logger.info("Adding exception handling for CodeException.");
-        Spark.exception(CodeException.class, (exception, request, response) -> {
-            int code = ((CodeException) exception).getCode();
+        routes.exception(CodeException.class, (exception, request, response) -> {
+            int code = exception.getCode();
             try {
+                resetBuffer(response);
                 response.status(code);
                 ObjectNode nodes = objectMapper.createObjectNode();
                 nodes.putObject("meta").put("code", code);
@@ -158,19 +217,19 @@ public class RestfulServer {
         });
 
         logger.info("Adding exception handling for StructuredException.");
-        Spark.exception(StructuredException.class, (exception, request, response) -> {
-            List<String> sources = ((StructuredException) exception).getSources();
+        routes.exception(StructuredException.class, (exception, request, response) -> {
+            List<String> sources = exception.getSources();
             logger.warn("Structured exception thrown from sources: {}", sources, exception);
-            handleException(new JsonCall(request, response), (StructuredException) exception);
+            handleException(new JsonCall(request, response), exception);
         });
 
         logger.info("Adding exception handling for TimeoutException.");
-        Spark.exception(SocketTimeoutException.class, (exception, request, response) -> {
+        routes.exception(SocketTimeoutException.class, (exception, request, response) -> {
             handleException(new JsonCall(request, response), new TimeoutException(exception));
         });
 
         logger.info("Adding exception handling for all Exception.");
-        Spark.exception(Exception.class, (exception, request, response) -> {
+        routes.exception(Exception.class, (exception, request, response) -> {
             try {
                 if (mapException(exception)) return;
                 // Unknown exception
@@ -202,12 +261,13 @@ public class RestfulServer {
     protected void handleException(JsonCall call, StructuredException exception) {
         try {
             Response response = call.response();
+            resetBuffer(response);
             response.status(exception.getCode());
-            RestfulMeta restfulMeta = exception.toMeta();
+            // If debug mode is disabled, stacktrace is not created
+            RestfulMeta restfulMeta = exception.toMeta(debug);
             if (!debug && restfulMeta.getError() != null) {
-                // If debug mode is disabled, stacktrace and source will be removed
+                // If debug mode is disabled, source will be removed
                 // Exception will still be logged
-                restfulMeta.getError().setStacktrace(null);
                 restfulMeta.getError().setSources(null);
 
                 // Mute message for theses error type
@@ -225,6 +285,67 @@ public class RestfulServer {
         }
     }
 
+    /**
+     * Partially streamed body that is not yet committed is discarded before the error is written.
+     *
+     * @param response to reset
+     */
+    protected static void resetBuffer(Response response) {
+        if (!response.raw().isCommitted()) {
+            response.raw().resetBuffer();
+        }
+    }
+
+    /**
+     * Stop gracefully, in order:
+     * <ol>
+     * <li>Health fails with 503 for the load balancer to stop sending requests</li>
+     * <li>Connectors are closed, no new connection is accepted,
+     * responses on open connections are sent with Connection: close</li>
+     * <li>Wait for requests in flight, including async requests, to complete until timeout</li>
+     * <li>Jetty is stopped, requests still in flight are aborted</li>
+     * </ol>
+     *
+     * @param timeout to wait for requests in flight to drain
+     * @return number of requests still in flight at timeout, 0 if all drained
+     * @throws IllegalStateException when the server is not started
+     */
+    public int stop(Duration timeout) {
+        if (!started) throw new IllegalStateException("RestfulServer is not started.");
+        long deadline = System.nanoTime() + timeout.toNanos();
+        logger.info("Stopping Spark Server, draining requests for {}", timeout);
+        health.stop();
+
+        Server server = jettyFactory.server;
+        RestfulHandler handler = jettyFactory.handler;
+        handler.setStopping();
+        for (Connector connector : server.getConnectors()) {
+            if (connector instanceof NetworkConnector) ((NetworkConnector) connector).close();
+        }
+
+        int remaining;
+        try {
+            remaining = handler.awaitDrained(deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            remaining = handler.getInflight();
+        }
+        if (remaining > 0) logger.warn("Stopping with {} requests still in flight after {}", remaining, timeout);
+
+        try {
+            server.stop();
+        } catch (Exception e) {
+            logger.error("Jetty stop Exception:", e);
+        }
+
+        // Jetty is already stopped, resets spark for routes to be registered again
+        if (batch != null) batch.shutdown();
+        routes.stop();
+        this.started = false;
+        logger.info("Stopped Spark Server");
+        return remaining;
+    }
+
     /**
      * @return true if restful server has started
      */
@@ -249,12 +370,230 @@ public class RestfulServer {
         this.debug = debug;
     }
 
+    /**
+     * Production mode: debug is disabled, stacktrace of StructuredException is not created for the response.
+     * <p>
+     * Stack capture is JVM-wide, it applies to every server and client in the process,
+     * hence it is not changed by this server. Call StructuredException.setStackless(true) once on startup
+     * for StructuredException to be cheap to throw for every bad request.
+     *
+     * @return RestfulServer
+     * @see StructuredException#setStackless(boolean)
+     */
+    public RestfulServer withProductionMode() {
+        setDebug(false);
+        return this;
+    }
+
+    /**
+     * Configure the jetty worker thread pool, must be called before start.
+     * Jetty acceptor and selector threads are taken from the same pool, max threads must leave room for them.
+     *
+     * @param minThreads  min threads kept in the pool
+     * @param maxThreads  max threads in the pool
+     * @param idleTimeout before threads above minThreads are stopped
+     * @param queueSize   max jobs waiting for a thread, jobs over it are rejected, 0 for unbounded,
+     *                    bound it with withConcurrencyLimit as the limit does not see queued requests
+     * @return RestfulServer
+     */
+    public RestfulServer withThreadPool(int minThreads, int maxThreads, Duration idleTimeout, int queueSize) {
+        jettyFactory.minThreads = minThreads;
+        jettyFactory.maxThreads = maxThreads;
+        jettyFactory.idleTimeoutMillis = (int) idleTimeout.toMillis();
+        jettyFactory.queueSize = queueSize;
+        return this;
+    }
+
+    /**
+     * Serve cleartext HTTP/2 (h2c) on the same port as HTTP/1.1, must be called before start.
+     * Clients connect with HTTP/2 prior knowledge or upgrade from HTTP/1.1,
+     * concurrent requests are then multiplexed over a single connection instead of a connection each.
+     *
+     * @return RestfulServer
+     */
+    public RestfulServer withHttp2() {
+        jettyFactory.http2 = true;
+        return this;
+    }
+
+    /**
+     * Configure the jetty connector, must be called before start.
+     * Acceptors and selectors take their threads from the worker thread pool.
+     *
+     * @param acceptors       threads accepting connections, -1 for jetty default based on cores
+     * @param selectors       threads selecting connections for io, -1 for jetty default based on cores
+     * @param acceptQueueSize backlog of connections waiting to be accepted, 0 for OS default
+     * @param idleTimeout     of a connection before it is closed
+     * @param tcpNoDelay      TCP_NODELAY of accepted connections, jetty default is true
+     * @return RestfulServer
+     */
+    public RestfulServer withConnector(int acceptors, int selectors, int acceptQueueSize, Duration idleTimeout, boolean tcpNoDelay) {
+        if (acceptors < -1 || selectors < -1) throw new IllegalArgumentException("acceptors and selectors must be -1 or more.");
+        if (acceptQueueSize < 0) throw new IllegalArgumentException("acceptQueueSize must be 0 or more.");
+        if (idleTimeout.isNegative()) throw new IllegalArgumentException("idleTimeout must not be negative.");
+
+        jettyFactory.acceptors = acceptors;
+        jettyFactory.selectors = selectors;
+        jettyFactory.acceptQueueSize = acceptQueueSize;
+        jettyFactory.connectorIdleTimeoutMillis = (int) idleTimeout.toMillis();
+        jettyFactory.tcpNoDelay = tcpNoDelay;
+        return this;
+    }
+
+    /**
+     * Configure the jetty http buffers, must be called before start, 0 to keep jetty default.
+     *
+     * @param requestHeaderSize  max size of request line and headers, jetty default is 8KB, over it is 431
+     * @param responseHeaderSize max size of response headers, jetty default is 8KB
+     * @param outputBufferSize   response body buffered before it is committed and written, jetty default is 32KB
+     * @return RestfulServer
+     */
+    public RestfulServer withBufferSizes(int requestHeaderSize, int responseHeaderSize, int outputBufferSize) {
+        if (requestHeaderSize < 0 || responseHeaderSize < 0 || outputBufferSize < 0) {
+            throw new IllegalArgumentException("Buffer sizes must be 0 or more.");
+        }
+
+        jettyFactory.requestHeaderSize = requestHeaderSize;
+        jettyFactory.responseHeaderSize = responseHeaderSize;
+        jettyFactory.outputBufferSize = outputBufferSize;
+        return this;
+    }
+
+    /**
+     * Run each request on its own virtual thread instead of a bounded pool, must be called before start.
+     * Blocking JsonRoute, e.g. calling AWS or RestfulClient, will then not cap concurrency.
+     * <p>
+     * Requires Java 21 or later at runtime.
+     *
+     * @return RestfulServer
+     * @throws IllegalStateException if the runtime does not support virtual threads
+     */
+    public RestfulServer withVirtualThreads() {
+        RestfulJettyFactory.requireVirtualThreads();
+        jettyFactory.virtualThreads = true;
+        return this;
+    }
+
+    /**
+     * Max time a JsonRoute returning CompletableFuture is suspended for, must be called before start.
+     * Defaults to 30 seconds, the future is cancelled and 504 is returned after.
+     *
+     * @param timeout of async JsonRoute
+     * @return RestfulServer
+     */
+    public RestfulServer withAsyncTimeout(Duration timeout) {
+        jettyFactory.asyncTimeoutMillis = timeout.toMillis();
+        return this;
+    }
+
+    /**
+     * Compress json responses with 1KB min size and the default compression level, must be called before start.
+     *
+     * @return RestfulServer
+     * @see RestfulServer#withCompression(int, int)
+     */
+    public RestfulServer withCompression() {
+        return withCompression(1024, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Compress json responses with gzip or deflate negotiated from Accept-Encoding, must be called before start.
+     * Responses are compressed as they are streamed, including error responses and async JsonRoute.
+     *
+     * @param minSize min body size in bytes to compress, smaller bodies are sent uncompressed
+     * @param level   compression level, 1 (fastest) to 9 (smallest), -1 for default
+     * @return RestfulServer
+     */
+    public RestfulServer withCompression(int minSize, int level) {
+        if (minSize < 0) throw new IllegalArgumentException("minSize must be 0 or more.");
+        if (level < -1 || level > 9) throw new IllegalArgumentException("level must be -1 to 9.");
+
+        jettyFactory.compressionMinSize = minSize;
+        jettyFactory.compressionLevel = level;
+        return this;
+    }
+
+    /**
+     * Adaptive concurrency limit of 10 to 200 for all JsonService routes.
+     *
+     * @return RestfulServer
+     * @see RestfulServer#withConcurrencyLimit(int, int)
+     */
+    public RestfulServer withConcurrencyLimit() {
+        return withConcurrencyLimit(10, 200);
+    }
+
+    /**
+     * Adaptive concurrency limit shared by all JsonService routes without their own limit.
+     * The limit shrinks as latency climbs above its long term average and grows back when it recovers,
+     * requests over the limit are rejected right away with 429 LimitException instead of queuing.
+     * Health check routes are not limited.
+     * <p>
+     * The limit is taken when the route runs, after the request waited in the jetty thread pool queue:
+     * a request is not shed while it queues, and the time it queued is not in the latency the limit adapts to.
+     * Under overload the queue grows without the limit shrinking, pair it with a bounded queue, e.g.
+     * withThreadPool(8, 200, Duration.ofSeconds(60), 200), for jetty to reject requests once the queue is full.
+     *
+     * @param minLimit lowest concurrency limit
+     * @param maxLimit highest concurrency limit
+     * @return RestfulServer
+     */
+    public RestfulServer withConcurrencyLimit(int minLimit, int maxLimit) {
+        limiter.setDefault(minLimit, maxLimit);
+        return this;
+    }
+
+    /**
+     * Adaptive concurrency limit of a single route, instead of the server wide limit.
+     *
+     * @param route    template of the route as in metrics, e.g. "GET /v1/users/:id"
+     * @param minLimit lowest concurrency limit
+     * @param maxLimit highest concurrency limit
+     * @return RestfulServer
+     * @see RestfulServer#withConcurrencyLimit(int, int)
+     */
+    public RestfulServer withConcurrencyLimit(String route, int minLimit, int maxLimit) {
+        limiter.setRoute(route, minLimit, maxLimit);
+        return this;
+    }
+
+    /**
+     * Match JsonService routes with a radix tree lookup instead of spark testing every route, must be called before start.
+     * Static path segments take precedence over :param segments, instead of the first registered route.
+     * Path params are bound for JsonCall path methods, spark Request.params() is empty for these routes.
+     * <p>
+     * Only routes added through JsonService are in the tree, the tree is matched by a catch all spark route of each method.
+     * Plain spark routes, e.g. of a RestfulService that is not a JsonService, must be added while the routers start:
+     * they are matched before the catch all, ahead of any JsonService route of the same path.
+     * Plain spark routes added after start are shadowed by the catch all and answered with 404.
+     *
+     * @return RestfulServer
+     */
+    public RestfulServer withDispatcher() {
+        this.dispatcher = true;
+        return this;
+    }
+
+    /**
+     * Warm-up after start, must be called before start.
+     * Health fails with 503 until the warm-up completes or times out, traffic is served meanwhile.
+     *
+     * @param warmUp types to resolve and requests to replay
+     * @return RestfulServer
+     * @see RestfulWarmUp
+     */
+    public RestfulServer withWarmUp(RestfulWarmUp warmUp) {
+        if (started) throw new IllegalStateException("Warm-up must be configured before start.");
+        this.warmUp = warmUp;
+        return this;
+    }
+
     /**
      * @return port
      * @throws IllegalStateException when the server is not started
      */
     public int getPort() {
-        return Spark.port();
+        return routes.port();
     }
 
     /**
@@ -294,21 +633,134 @@ public class RestfulServer {
     }
 
     /**
+     * Health check answers with the last results of the checks registered with withHealthCheck,
+     * 503 if any is unhealthy, always 200 if none is registered.
+     * Always 503 once the server is stopping.
+     *
      * @param path for the health check
      * @return RestfulServer
      */
     public RestfulServer withHealth(String path) {
-        return withHealth(path, call -> JsonTransformer.Meta200String);
+        return withHealth(path, call -> health.respond(call.response()));
+    }
+
+    /**
+     * @param name     of check, reported in health response
+     * @param interval between runs of check
+     * @param check    throws if unhealthy
+     * @return RestfulServer
+     * @see RestfulServer#withHealthCheck(String, Duration, Duration, HealthCheck)
+     */
+    public RestfulServer withHealthCheck(String name, Duration interval, HealthCheck check) {
+        Duration timeout = interval.compareTo(Duration.ofSeconds(5)) < 0 ? interval : Duration.ofSeconds(5);
+        return withHealthCheck(name, interval, timeout, check);
+    }
+
+    /**
+     * Named check of a dependency, run on a background thread at interval with the last result cached.
+     * The health route only reads the cached results, probes never call the dependency.
+     * Unhealthy until the first run passes, and when the last run threw or did not complete within timeout.
+     *
+     * @param name     of check, reported in health response
+     * @param interval between runs of check
+     * @param timeout  of each run
+     * @param check    throws if unhealthy
+     * @return RestfulServer
+     * @see RestfulServer#withHealth()
+     */
+    public RestfulServer withHealthCheck(String name, Duration interval, Duration timeout, HealthCheck check) {
+        health.add(name, interval, timeout, check);
+        return this;
     }
 
     /**
      * @param path  for the health check
-     * @param check function to reply with
+     * @param check function to reply with, not called while the server is warming up or stopping
      * @return RestfulServer
      */
     public RestfulServer withHealth(String path, Function<JsonCall, String> check) {
         logger.info("Registered withHealth at path: {}", path);
-        Spark.get(path, (req, res) -> check.apply(new JsonCall(req, res)));
+        String template = routes.template("GET", path);
+        routes.add("GET", path, (req, res) -> {
+            req.attribute(RestfulMetrics.ROUTE_ATTRIBUTE, template);
+            if (health.isStopping() || health.isWarmingUp()) return health.respond(res);
+            return check.apply(new JsonCall(req, res));
+        });
+        return this;
+    }
+
+    /**
+     * @return metrics of all requests served by this server
+     */
+    public RestfulMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Using default /health/metrics as path
+     *
+     * @return RestfulServer
+     * @see RestfulServer#withMetrics(String)
+     */
+    public RestfulServer withMetrics() {
+        return withMetrics(DEFAULT_METRICS_PATH);
+    }
+
+    /**
+     * Per route request count, status codes and latency percentiles, and jetty thread pool saturation.
+     *
+     * @param path for the metrics
+     * @return RestfulServer
+     * @see RestfulMetrics#snapshot() for the format of data
+     */
+    public RestfulServer withMetrics(String path) {
+        logger.info("Registered withMetrics at path: {}", path);
+        String template = routes.template("GET", path);
+        routes.add("GET", path, (req, res) -> {
+            req.attribute(RestfulMetrics.ROUTE_ATTRIBUTE, template);
+            res.type(JsonRoute.APP_JSON);
+            return JsonService.toJson.render(JsonResult.ok(metrics.snapshot()));
+        });
+        return this;
+    }
+
+    /**
+     * Batch route at /batch of up to 20 sub requests run on 8 threads, must be called after start.
+     *
+     * @return RestfulServer
+     * @see RestfulServer#withBatch(String, int, int)
+     */
+    public RestfulServer withBatch() {
+        return withBatch(DEFAULT_BATCH_PATH, 20, 8);
+    }
+
+    /**
+     * Batch route running an array of sub requests against the routes of this server, must be called after start.
+     * A client calling many routes to render a screen makes a single round trip instead:
+     * <pre>
+     * POST /batch
+     * [{"method": "GET", "path": "/users/123"}, {"path": "/places", "query": {"size": "20"}}]
+     * </pre>
+     * is answered with the envelope of each sub request in the same order, in data.
+     * Sub requests run in parallel, each is answered the same as its own request:
+     * passed through the before and after filters added through JsonService,
+     * mapped with the exception handlers of this server, concurrency limited and recorded in metrics.
+     * Sub requests not completed within the async timeout are interrupted and answered with 504.
+     *
+     * @param path    of batch route
+     * @param maxSize max sub requests in a batch, a batch over it is rejected with 400
+     * @param threads running sub requests, shared by all batches, a batch not fitting in a queue of maxSize for each thread is rejected with 429
+     * @return RestfulServer
+     * @see RestfulServer#withAsyncTimeout(Duration)
+     */
+    public RestfulServer withBatch(String path, int maxSize, int threads) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive.");
+        if (threads <= 0) throw new IllegalArgumentException("threads must be positive.");
+        if (batch != null) throw new IllegalStateException("Batch route is already registered.");
+
+        logger.info("Registered withBatch at path: {}", path);
+        batch = new RestfulBatch(routes, metrics, RestfulServer::notFound, maxSize, threads, jettyFactory.asyncTimeoutMillis);
+        routes.add("POST", path, batch.toRoute(routes.template("POST", path)));
         return this;
     }
 
@@ -339,7 +791,7 @@ public class RestfulServer {
         RestfulServer server = new RestfulServer(services) {
             @Override
             protected void setupRouters() {
-                Spark.path(prefixPath, super::setupRouters);
+                RestfulRoutes.current().path(prefixPath, super::setupRouters);
             }
         };
         server.start();
@@ -362,7 +814,7 @@ public class RestfulServer {
         RestfulServer server = new RestfulServer(services) {
             @Override
             protected void setupRouters() {
-                Spark.path(prefixPath, super::setupRouters);
+                RestfulRoutes.current().path(prefixPath, super::setupRouters);
             }
         };
         server.start(port);
@@ -0,0 +1,270 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import munch.restful.core.JsonFormat;
+import munch.restful.core.JsonUtils;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm-up of RestfulServer after start, health fails with 503 until it completes or times out.
+ * <p>
+ * Serializers & deserializers of the model types are resolved into JsonUtils.objectMapper first,
+ * then each request is replayed against the routes in-process through a jetty LocalConnector,
+ * for the JIT to compile the request path before the load balancer sends traffic.
+ * Replayed requests are not recorded in metrics nor concurrency limited.
+ * <p>
+ * Requests run against the real routes and backends, every request is replayed iterations times,
+ * 200 by default. Raise it for hot routes to reach full JIT compilation, every iteration hits the backends.
+ * Only GET and HEAD can be added with request(), other methods must opt in with unsafeRequest()
+ * and be safe to repeat, e.g. a POST search.
+ * <pre>
+ * server.withWarmUp(RestfulWarmUp.builder()
+ *         .types(Place.class, User.class)
+ *         .request("GET", "/places/123")
+ *         .unsafeRequest("POST", "/places/search", query)
+ *         .build());
+ * </pre>
+ */
+public final class RestfulWarmUp {
+    private static final Logger logger = LoggerFactory.getLogger(RestfulWarmUp.class);
+    private static final ObjectMapper objectMapper = JsonUtils.objectMapper;
+
+    private final List<Class<?>> types = new ArrayList<>();
+    private final List<WarmUpRequest> requests = new ArrayList<>();
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private int iterations = 200;
+    private long timeoutMillis = Duration.ofSeconds(60).toMillis();
+
+    private RestfulWarmUp() {
+    }
+
+    /**
+     * Run on a daemon thread, health is failing until completed or timed out
+     *
+     * @param server jetty server of RestfulServer, started
+     * @param health of RestfulServer to gate
+     */
+    void start(Server server, RestfulHealth health) {
+        Thread thread = new Thread(() -> {
+            try {
+                run(server, health);
+            } catch (Exception e) {
+                logger.error("Warm-up failed", e);
+            } finally {
+                health.setWarmingUp(false);
+            }
+        }, "restful-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run(Server server, RestfulHealth health) throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        for (Class<?> type : types) {
+            // Eager fetch resolves and caches the root serializer & deserializer of type
+            objectMapper.writerFor(type);
+            objectMapper.readerFor(type);
+        }
+        logger.info("Warm-up resolved {} types in {}ms", types.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (requests.isEmpty()) return;
+
+        LocalConnector connector = new LocalConnector(server, new HttpConnectionFactory(httpConfiguration(server)));
+        server.addConnector(connector);
+        connector.start();
+
+        Map<Integer, Integer> statuses = new TreeMap<>();
+        int count = 0;
+        try {
+            List<ByteBuffer> encoded = new ArrayList<>(requests.size());
+            for (WarmUpRequest request : requests) {
+                encoded.add(request.encode(headers));
+            }
+
+            replay:
+            for (int i = 0; i < iterations; i++) {
+                for (ByteBuffer request : encoded) {
+                    if (health.isStopping()) return;
+                    if (System.nanoTime() - deadline >= 0) {
+                        logger.warn("Warm-up timed out after {}ms, {} requests replayed", timeoutMillis, count);
+                        break replay;
+                    }
+
+                    ByteBuffer response = connector.getResponse(request.duplicate(), timeoutMillis, TimeUnit.MILLISECONDS);
+                    statuses.merge(status(response), 1, Integer::sum);
+                    count++;
+                }
+            }
+        } finally {
+            connector.stop();
+            server.removeConnector(connector);
+        }
+
+        logger.info("Warm-up replayed {} requests in {}ms, status: {}", count,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), statuses);
+    }
+
+    /**
+     * @return HttpConfiguration of the server connector, for requests to be customized the same
+     */
+    private static HttpConfiguration httpConfiguration(Server server) {
+        for (Connector connector : server.getConnectors()) {
+            HttpConnectionFactory factory = connector.getConnectionFactory(HttpConnectionFactory.class);
+            if (factory != null) return new HttpConfiguration(factory.getHttpConfiguration());
+        }
+        return new HttpConfiguration();
+    }
+
+    /**
+     * @param response raw response, e.g. HTTP/1.1 200 OK
+     * @return status code, 0 if no response within timeout
+     */
+    private static int status(ByteBuffer response) {
+        if (response == null || response.remaining() < 12) return 0;
+
+        int code = 0;
+        for (int i = 9; i < 12; i++) {
+            code = code * 10 + (response.get(response.position() + i) - '0');
+        }
+        return code;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private final RestfulWarmUp warmUp;
+
+        private Builder() {
+            warmUp = new RestfulWarmUp();
+        }
+
+        /**
+         * @param types read & written by routes, serializers & deserializers are resolved before requests are replayed
+         * @return Builder
+         */
+        public Builder types(Class<?>... types) {
+            for (Class<?> type : types) {
+                warmUp.types.add(type);
+            }
+            return this;
+        }
+
+        /**
+         * @param method GET or HEAD
+         * @param path   with query string, e.g. /places?size=20
+         * @return Builder
+         * @throws IllegalArgumentException if method is not GET or HEAD
+         */
+        public Builder request(String method, String path) {
+            String upper = method.toUpperCase();
+            if (!upper.equals("GET") && !upper.equals("HEAD")) {
+                throw new IllegalArgumentException("Only GET and HEAD can be replayed with request(), use unsafeRequest() for " + upper + ".");
+            }
+            return unsafeRequest(upper, path, null);
+        }
+
+        /**
+         * Request of any method, replayed iterations times against the real routes and backends.
+         * Must be safe to repeat, e.g. a POST search, never a route that creates or changes data.
+         *
+         * @param method http method
+         * @param path   with query string, e.g. /places/search?size=20
+         * @param body   written as json, nullable
+         * @return Builder
+         */
+        public Builder unsafeRequest(String method, String path, Object body) {
+            if (!path.startsWith("/")) throw new IllegalArgumentException("path must start with /.");
+            byte[] bytes = body == null ? null : JsonFormat.JSON.writeValueAsBytes(body);
+            warmUp.requests.add(new WarmUpRequest(method.toUpperCase(), path, bytes));
+            return this;
+        }
+
+        /**
+         * @param name  of header sent with every request, e.g. Authorization
+         * @param value of header
+         * @return Builder
+         */
+        public Builder header(String name, String value) {
+            warmUp.headers.put(name, value);
+            return this;
+        }
+
+        /**
+         * @param iterations of replaying every request, default 200
+         * @return Builder
+         */
+        public Builder iterations(int iterations) {
+            if (iterations <= 0) throw new IllegalArgumentException("iterations must be positive.");
+            warmUp.iterations = iterations;
+            return this;
+        }
+
+        /**
+         * @param timeout of warm-up, health passes after it even if not completed, default 60 seconds
+         * @return Builder
+         */
+        public Builder timeout(Duration timeout) {
+            if (timeout.isNegative() || timeout.isZero()) throw new IllegalArgumentException("timeout must be positive.");
+            warmUp.timeoutMillis = timeout.toMillis();
+            return this;
+        }
+
+        public RestfulWarmUp build() {
+            return warmUp;
+        }
+    }
+
+    private static final class WarmUpRequest {
+        private final String method;
+        private final String path;
+        private final byte[] body;
+
+        private WarmUpRequest(String method, String path, byte[] body) {
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+
+        /**
+         * @return raw HTTP/1.1 request, encoded once and replayed
+         */
+        private ByteBuffer encode(Map<String, String> headers) {
+            StringBuilder builder = new StringBuilder()
+                    .append(method).append(' ').append(path).append(" HTTP/1.1\r\n")
+                    .append("Host: localhost\r\n")
+                    .append("Connection: close\r\n");
+            headers.forEach((name, value) -> builder.append(name).append(": ").append(value).append("\r\n"));
+            if (body != null) {
+                builder.append("Content-Type: ").append(JsonRoute.APP_JSON).append("\r\n");
+                builder.append("Content-Length: ").append(body.length).append("\r\n");
+            }
+            builder.append("\r\n");
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] head = builder.toString().getBytes(StandardCharsets.UTF_8);
+            output.write(head, 0, head.length);
+            if (body != null) output.write(body, 0, body.length);
+            return ByteBuffer.wrap(output.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package munch.restful.server;
+
+import spark.Route;
+import spark.utils.MimeParse;
+import spark.utils.urldecoding.UrlDecode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Radix tree of route templates for each http method, a request is matched with a single walk down the tree.
+ * <p>
+ * Static characters are compressed into edges, a ":param" or "*" segment is a child matching one segment,
+ * a trailing "*" matches the rest of the path. Static edges are tried before params, params before wildcard,
+ * e.g. "/users/me" takes precedence over "/users/:id" regardless of the order registered.
+ * <p>
+ * Not thread safe, RestfulRoutes builds a new tree when routes are added.
+ */
+final class RouteTree {
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Map<String, Node> roots = new HashMap<>();
+    private int maxParams;
+
+    /**
+     * @param method     http method
+     * @param path       full path template, e.g. /v1/users/:id
+     * @param acceptType accept type of route, spark default is *&#47;*
+     * @param route      to dispatch to
+     */
+    void add(String method, String path, String acceptType, Route route) {
+        Node node = roots.computeIfAbsent(method, m -> new Node(""));
+        List<String> names = new ArrayList<>();
+
+        StringBuilder text = new StringBuilder();
+        String[] segments = path.split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (i > 0) text.append('/');
+
+            boolean last = i == segments.length - 1;
+            if (segment.startsWith(":") || (segment.equals("*") && !last)) {
+                node = insert(node, text.toString());
+                text.setLength(0);
+                if (node.param == null) node.param = new Node("");
+                node = node.param;
+                names.add(segment.equals("*") ? null : segment.substring(1).toLowerCase());
+            } else if (segment.equals("*")) {
+                node = insert(node, text.toString());
+                text.setLength(0);
+                if (node.wildcard == null) node.wildcard = new Node("");
+                node = node.wildcard;
+                names.add(null);
+            } else {
+                text.append(segment);
+            }
+        }
+        node = insert(node, text.toString());
+
+        if (node.entry == null) node.entry = new Entry(path, names.toArray(new String[0]));
+        node.entry.add(acceptType, route);
+        maxParams = Math.max(maxParams, names.size());
+    }
+
+    /**
+     * @param method http method
+     * @param path   raw request path, not decoded
+     * @param accept Accept header of request, nullable
+     * @return matched route with bound path params, null if none
+     */
+    Match find(String method, String path, String accept) {
+        Node root = roots.get(method);
+        if (root == null) return null;
+
+        int[] bounds = new int[maxParams * 2];
+        Entry entry = find(root, path, 0, bounds, 0);
+        if (entry == null) return null;
+
+        Route route = entry.select(accept);
+        if (route == null) return null;
+        return new Match(route, entry.template, entry.bind(path, bounds));
+    }
+
+    private static Entry find(Node node, String path, int offset, int[] bounds, int depth) {
+        if (offset == path.length()) {
+            if (node.entry != null) return node.entry;
+            if (node.wildcard != null && node.wildcard.entry != null) {
+                bounds[depth * 2] = offset;
+                bounds[depth * 2 + 1] = offset;
+                return node.wildcard.entry;
+            }
+            return null;
+        }
+
+        Node child = node.child(path.charAt(offset));
+        if (child != null && path.startsWith(child.prefix, offset)) {
+            Entry entry = find(child, path, offset + child.prefix.length(), bounds, depth);
+            if (entry != null) return entry;
+        }
+
+        if (node.param != null) {
+            int end = path.indexOf('/', offset);
+            if (end < 0) end = path.length();
+            if (end > offset) {
+                bounds[depth * 2] = offset;
+                bounds[depth * 2 + 1] = end;
+                Entry entry = find(node.param, path, end, bounds, depth + 1);
+                if (entry != null) return entry;
+            }
+        }
+
+        if (node.wildcard != null && node.wildcard.entry != null) {
+            bounds[depth * 2] = offset;
+            bounds[depth * 2 + 1] = path.length();
+            return node.wildcard.entry;
+        }
+        return null;
+    }
+
+    /**
+     * @param node to insert from
+     * @param text static text to insert
+     * @return node at the end of text
+     */
+    private static Node insert(Node node, String text) {
+        while (!text.isEmpty()) {
+            Node child = node.child(text.charAt(0));
+            if (child == null) {
+                child = new Node(text);
+                node.children = Arrays.copyOf(node.children, node.children.length + 1);
+                node.children[node.children.length - 1] = child;
+                return child;
+            }
+
+            int common = 0;
+            int max = Math.min(child.prefix.length(), text.length());
+            while (common < max && child.prefix.charAt(common) == text.charAt(common)) common++;
+            if (common < child.prefix.length()) child.split(common);
+
+            text = text.substring(common);
+            node = child;
+        }
+        return node;
+    }
+
+    private static final class Node {
+        private String prefix;
+        private Node[] children = NO_CHILDREN;
+        private Node param;
+        private Node wildcard;
+        private Entry entry;
+
+        private Node(String prefix) {
+            this.prefix = prefix;
+        }
+
+        private Node child(char c) {
+            for (Node child : children) {
+                if (child.prefix.charAt(0) == c) return child;
+            }
+            return null;
+        }
+
+        /**
+         * Split this edge at index, everything under this node moves to a new child with the rest of prefix
+         */
+        private void split(int index) {
+            Node tail = new Node(prefix.substring(index));
+            tail.children = children;
+            tail.param = param;
+            tail.wildcard = wildcard;
+            tail.entry = entry;
+
+            prefix = prefix.substring(0, index);
+            children = new Node[]{tail};
+            param = null;
+            wildcard = null;
+            entry = null;
+        }
+    }
+
+    private static final class Entry {
+        private final String template;
+        private final String[] names;
+        private final Map<String, Route> routes = new LinkedHashMap<>();
+
+        private Entry(String template, String[] names) {
+            this.template = template;
+            this.names = names;
+        }
+
+        /**
+         * Same as spark, the first route registered for an accept type is used
+         */
+        private void add(String acceptType, Route route) {
+            routes.putIfAbsent(acceptType, route);
+        }
+
+        /**
+         * @param accept Accept header, nullable
+         * @return route best matching accept, same as spark
+         */
+        private Route select(String accept) {
+            if (accept == null || routes.size() == 1 && routes.containsKey("*/*")) {
+                return routes.values().iterator().next();
+            }
+
+            String bestMatch = MimeParse.bestMatch(routes.keySet(), accept);
+            return routes.get(bestMatch);
+        }
+
+        /**
+         * @return named path params, decoded
+         */
+        private Map<String, String> bind(String path, int[] bounds) {
+            if (names.length == 0) return Collections.emptyMap();
+
+            Map<String, String> params = new HashMap<>(names.length * 2);
+            for (int i = 0; i < names.length; i++) {
+                if (names[i] == null) continue;
+                int start = bounds[i * 2];
+                params.put(names[i], UrlDecode.path(path, start, bounds[i * 2 + 1] - start));
+            }
+            return params;
+        }
+    }
+
+    static final class Match {
+        final Route route;
+        final String template;
+        final Map<String, String> params;
+
+        private Match(Route route, String template, Map<String, String> params) {
+            this.route = route;
+            this.template = template;
+            this.params = params;
+        }
+    }
+}
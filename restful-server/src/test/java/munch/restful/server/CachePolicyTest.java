@@ -0,0 +1,213 @@
+package munch.restful.server;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachePolicyTest {
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    private static final CachePolicy policy = CachePolicy.builder().ttl(Duration.ofMinutes(1)).build();
+    private static final CachePolicy headerPolicy = CachePolicy.builder().headers("X-User").build();
+    private static final CachePolicy shortPolicy = CachePolicy.builder().ttl(Duration.ofMillis(200)).build();
+    private static final CachePolicy smallPolicy = CachePolicy.builder().maxEntries(10).build();
+    private static final CachePolicy sharedPolicy = CachePolicy.builder().shared().build();
+
+    private static RestfulServer server;
+
+    @BeforeAll
+    static void start() {
+        server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                GET("/cached/:id", call -> Map.of("count", counter.incrementAndGet()), policy);
+                GET("/missing/:id", call -> {
+                    counter.incrementAndGet();
+                    return null;
+                }, policy);
+                GET("/header", call -> Map.of("count", counter.incrementAndGet()), headerPolicy);
+                GET("/short", call -> Map.of("count", counter.incrementAndGet()), shortPolicy);
+                GET("/small/:id", call -> Map.of("count", counter.incrementAndGet()), smallPolicy);
+                PATH("/v1", () -> GET("/countries/:id", call -> Map.of("count", counter.incrementAndGet()), policy));
+                GET("/shared", call -> Map.of("count", counter.incrementAndGet()), sharedPolicy);
+                GET("/etag", call -> {
+                    int count = counter.incrementAndGet();
+                    call.response().header("ETag", "\"" + count + "\"");
+                    call.response().header("X-Route", "route");
+                    return Map.of("count", count);
+                }, policy);
+                AFTER("/cached/*", call -> call.response().header("X-After", "after"));
+            }
+        });
+        server.start(0);
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(Duration.ZERO);
+    }
+
+    @BeforeEach
+    void invalidate() {
+        policy.invalidateAll();
+        headerPolicy.invalidateAll();
+        shortPolicy.invalidateAll();
+        smallPolicy.invalidateAll();
+        sharedPolicy.invalidateAll();
+    }
+
+    @Test
+    void cached() {
+        long hits = policy.getHits();
+        int first = count("/cached/1");
+        assertEquals(first, count("/cached/1"));
+        assertEquals(first, count("/cached/1"));
+        assertEquals(hits + 2, policy.getHits());
+        assertNotEquals(first, count("/cached/2"));
+    }
+
+    @Test
+    void queryNormalized() {
+        int first = count("/cached/1?a=1&b=2");
+        assertEquals(first, count("/cached/1?b=2&a=1"));
+        assertEquals(first, count("/cached/1?b=2&&a=1"));
+        assertNotEquals(first, count("/cached/1?a=1&b=3"));
+        assertNotEquals(first, count("/cached/1"));
+    }
+
+    @Test
+    void headerKeyed() {
+        int alice = count(TestHttp.get(server, "/header").header("X-User", "alice"));
+        int bob = count(TestHttp.get(server, "/header").header("X-User", "bob"));
+        int none = count(TestHttp.get(server, "/header"));
+        assertNotEquals(alice, bob);
+        assertNotEquals(alice, none);
+        assertEquals(alice, count(TestHttp.get(server, "/header").header("X-User", "alice")));
+        assertEquals(bob, count(TestHttp.get(server, "/header").header("X-User", "bob")));
+    }
+
+    @Test
+    void callerKeyed() {
+        int alice = count(TestHttp.get(server, "/cached/1").header("Authorization", "Bearer alice"));
+        int bob = count(TestHttp.get(server, "/cached/1").header("Authorization", "Bearer bob"));
+        int anonymous = count("/cached/1");
+        assertNotEquals(alice, bob);
+        assertNotEquals(alice, anonymous);
+        assertNotEquals(alice, count(TestHttp.get(server, "/cached/1").header("Cookie", "session=alice")));
+        assertEquals(alice, count(TestHttp.get(server, "/cached/1").header("Authorization", "Bearer alice")));
+    }
+
+    @Test
+    void shared() {
+        int alice = count(TestHttp.get(server, "/shared").header("Authorization", "Bearer alice"));
+        assertEquals(alice, count(TestHttp.get(server, "/shared").header("Authorization", "Bearer bob")));
+        assertEquals(alice, count("/shared"));
+    }
+
+    @Test
+    void headersReplayed() {
+        long hits = policy.getHits();
+        TestHttp.Response first = TestHttp.get(server, "/etag").send();
+        TestHttp.Response second = TestHttp.get(server, "/etag").send();
+        assertEquals(first.json().path("data").path("count").asInt(), second.json().path("data").path("count").asInt());
+        assertEquals("\"" + first.json().path("data").path("count").asInt() + "\"", first.header("ETag"));
+        assertEquals(first.header("ETag"), second.header("ETag"));
+        assertEquals("route", second.header("X-Route"));
+        assertEquals(1, policy.getHits() - hits);
+    }
+
+    @Test
+    void expired() throws InterruptedException {
+        int first = count("/short");
+        assertEquals(first, count("/short"));
+        Thread.sleep(300);
+        assertNotEquals(first, count("/short"));
+    }
+
+    @Test
+    void invalidatePath() {
+        int one = count("/cached/1");
+        int query = count("/cached/1?a=1");
+        int other = count("/cached/10");
+
+        policy.invalidate("/cached/1");
+        assertNotEquals(one, count("/cached/1"));
+        assertNotEquals(query, count("/cached/1?a=1"));
+        assertEquals(other, count("/cached/10"));
+    }
+
+    @Test
+    void invalidatePrefixed() {
+        int first = count("/v1/countries/sg");
+        assertEquals(first, count("/v1/countries/sg"));
+
+        policy.invalidate("/countries/sg");
+        int second = count("/v1/countries/sg");
+        assertNotEquals(first, second);
+
+        policy.invalidate("/v1/countries/sg");
+        assertNotEquals(second, count("/v1/countries/sg"));
+    }
+
+    @Test
+    void afterFilter() {
+        assertEquals("after", TestHttp.get(server, "/cached/1").send().header("X-After"));
+        // Served from cache
+        assertEquals("after", TestHttp.get(server, "/cached/1").send().header("X-After"));
+        assertEquals(1, policy.size());
+    }
+
+    @Test
+    void invalidateHeaderKeyed() {
+        int alice = count(TestHttp.get(server, "/header").header("X-User", "alice"));
+        headerPolicy.invalidate("/header");
+        assertNotEquals(alice, count(TestHttp.get(server, "/header").header("X-User", "alice")));
+    }
+
+    @Test
+    void notFoundNotCached() {
+        int before = counter.get();
+        assertEquals(404, TestHttp.get(server, "/missing/1").send().status);
+        assertEquals(404, TestHttp.get(server, "/missing/1").send().status);
+        assertEquals(before + 2, counter.get());
+    }
+
+    @Test
+    void bounded() {
+        for (int i = 0; i < 30; i++) {
+            count("/small/" + i);
+        }
+        assertTrue(smallPolicy.size() <= 10);
+    }
+
+    @Test
+    void builder() {
+        assertThrows(IllegalArgumentException.class, () -> CachePolicy.builder().ttl(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> CachePolicy.builder().maxEntries(0));
+
+        CachePolicy.Builder builder = CachePolicy.builder();
+        assertNotSame(builder.build(), builder.build());
+    }
+
+    private static int count(String path) {
+        return count(TestHttp.get(server, path));
+    }
+
+    private static int count(TestHttp request) {
+        TestHttp.Response response = request.send();
+        assertEquals(200, response.status);
+        return response.json().path("data").path("count").asInt();
+    }
+}
@@ -0,0 +1,160 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import munch.restful.core.exception.ParamException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CallBinderTest {
+    private static RestfulServer server;
+
+    enum Sort {
+        distance, rating
+    }
+
+    static class Paging {
+        public int size = 20;
+        public String next;
+    }
+
+    static class Search extends Paging {
+        public static final int CONSTANT = 1;
+
+        @BindParam(value = "placeId", path = true)
+        public String placeId;
+
+        @BindParam(required = true)
+        public String text;
+
+        @BindParam(min = 1, max = 100)
+        public long radius = 10;
+
+        public double lat;
+        public boolean open;
+        public Boolean verified;
+        public Sort sort = Sort.distance;
+    }
+
+    static class Unsupported {
+        public Date date;
+    }
+
+    static class BoundedText {
+        @BindParam(min = 1)
+        public String text;
+    }
+
+    static class NoConstructor {
+        public String text;
+
+        NoConstructor(String text) {
+            this.text = text;
+        }
+    }
+
+    @BeforeAll
+    static void start() {
+        server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                bind(Search.class);
+                GET("/places/:placeId/search", call -> call.bind(Search.class));
+            }
+        });
+        server.start(0);
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(Duration.ZERO);
+    }
+
+    @Test
+    void converted() {
+        JsonNode data = search("/places/p%201/search?text=chicken&size=5&next=abc&radius=100&lat=1.5&open=true&verified=false&sort=rating");
+        assertEquals("p 1", data.path("placeId").asText());
+        assertEquals("chicken", data.path("text").asText());
+        assertEquals(5, data.path("size").asInt());
+        assertEquals("abc", data.path("next").asText());
+        assertEquals(100, data.path("radius").asLong());
+        assertEquals(1.5, data.path("lat").asDouble());
+        assertTrue(data.path("open").asBoolean());
+        assertFalse(data.path("verified").asBoolean(true));
+        assertEquals("rating", data.path("sort").asText());
+    }
+
+    @Test
+    void defaults() {
+        JsonNode data = search("/places/p1/search?text=chicken&size=&radius=%20");
+        assertEquals(20, data.path("size").asInt());
+        assertEquals(10, data.path("radius").asLong());
+        assertEquals("distance", data.path("sort").asText());
+        assertTrue(data.path("next").isNull());
+        assertTrue(data.path("verified").isNull());
+        assertFalse(data.path("open").asBoolean());
+    }
+
+    @Test
+    void invalid() {
+        assertInvalid("/places/p1/search", "text");
+        assertInvalid("/places/p1/search?text=%20", "text");
+        assertInvalid("/places/p1/search?text=a&size=five", "size");
+        assertInvalid("/places/p1/search?text=a&size=99999999999", "size");
+        assertInvalid("/places/p1/search?text=a&radius=0", "radius");
+        assertInvalid("/places/p1/search?text=a&radius=101", "radius");
+        assertInvalid("/places/p1/search?text=a&lat=north", "lat");
+        assertInvalid("/places/p1/search?text=a&sort=Rating", "sort");
+    }
+
+    @Test
+    void unsupported() {
+        assertThrows(IllegalStateException.class, () -> CallBinder.of(Unsupported.class));
+        assertThrows(IllegalStateException.class, () -> CallBinder.of(BoundedText.class));
+        assertThrows(IllegalStateException.class, () -> CallBinder.of(NoConstructor.class));
+    }
+
+    @Test
+    void eager() {
+        JsonService service = new JsonService() {
+            @Override
+            public void route() {
+                bind(Search.class, NoConstructor.class);
+            }
+        };
+        assertThrows(IllegalStateException.class, service::route);
+    }
+
+    @Test
+    void cached() {
+        assertSame(CallBinder.of(Search.class), CallBinder.of(Search.class));
+        assertSame(CallBinder.parserOf(Sort.class), CallBinder.parserOf(Sort.class));
+        assertEquals(Sort.rating, CallBinder.parserOf(Sort.class).parse("rating"));
+        assertNull(CallBinder.parserOf(Date.class));
+    }
+
+    private static JsonNode search(String path) {
+        TestHttp.Response response = TestHttp.get(server, path).send();
+        assertEquals(200, response.status, response.text());
+        return response.json().path("data");
+    }
+
+    private static void assertInvalid(String path, String param) {
+        TestHttp.Response response = TestHttp.get(server, path).send();
+        assertEquals(400, response.status, path);
+        JsonNode error = response.json().path("meta").path("error");
+        assertEquals(ParamException.class.getName(), error.path("type").asText(), path);
+        assertTrue(error.path("message").asText().contains(param), path);
+    }
+}
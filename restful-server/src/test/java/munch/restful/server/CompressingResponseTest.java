@@ -0,0 +1,172 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import munch.restful.core.JsonUtils;
+import munch.restful.core.exception.ParamException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CompressingResponseTest {
+    private static final String LARGE = String.join("", Collections.nCopies(200, "compressible "));
+    // Not yet completed when returned, the request is suspended
+    private static final Executor delayed = CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS);
+
+    private static RestfulServer server;
+
+    @BeforeAll
+    static void start() {
+        server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                GET("/large", call -> Map.of("text", LARGE));
+                GET("/small", call -> Map.of("text", "small"));
+                GET("/async/stream", call -> CompletableFuture.supplyAsync(() -> IntStream.range(0, call.queryInt("size", 1))
+                        .mapToObj(i -> Map.of("text", "compressible")), delayed));
+                GET("/async/failed", call -> CompletableFuture.supplyAsync(() -> {
+                    throw new ParamException("failed");
+                }, delayed));
+            }
+        }, new JsonService() {
+            @Override
+            public JsonTransformer toJson() {
+                return toJsonStream;
+            }
+
+            @Override
+            public void route() {
+                GET("/async/large", call -> CompletableFuture.supplyAsync(() -> Map.of("text", LARGE), delayed));
+                GET("/async/small", call -> CompletableFuture.supplyAsync(() -> Map.of("text", "small"), delayed));
+            }
+        }).withCompression(1024, 6);
+        server.start(0);
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(Duration.ZERO);
+    }
+
+    @Test
+    void negotiate() {
+        assertNull(CompressingResponse.negotiate(null));
+        assertNull(CompressingResponse.negotiate(""));
+        assertNull(CompressingResponse.negotiate("identity"));
+        assertNull(CompressingResponse.negotiate("gzip;q=0"));
+        assertNull(CompressingResponse.negotiate("*;q=0"));
+
+        assertEquals("gzip", CompressingResponse.negotiate("gzip"));
+        assertEquals("gzip", CompressingResponse.negotiate("x-gzip"));
+        assertEquals("gzip", CompressingResponse.negotiate("gzip, deflate"));
+        assertEquals("gzip", CompressingResponse.negotiate("*"));
+        assertEquals("gzip", CompressingResponse.negotiate("deflate;q=0.5, gzip;q=0.5"));
+        assertEquals("deflate", CompressingResponse.negotiate("deflate"));
+        assertEquals("deflate", CompressingResponse.negotiate("gzip;q=0.4, deflate;q=0.8"));
+        assertEquals("deflate", CompressingResponse.negotiate("gzip;q=0, *"));
+        assertEquals("deflate", CompressingResponse.negotiate("gzip;q=invalid, deflate"));
+    }
+
+    @Test
+    void stripEncoding() {
+        assertEquals("\"v1\"", CompressingResponse.stripEncoding("\"v1-gzip\""));
+        assertEquals("\"v1\"", CompressingResponse.stripEncoding("\"v1-deflate\""));
+        assertEquals("\"v1-br\"", CompressingResponse.stripEncoding("\"v1-br\""));
+    }
+
+    @Test
+    void gzip() throws IOException {
+        TestHttp.Response response = TestHttp.get(server, "/large").header("Accept-Encoding", "gzip").send();
+        assertEquals(200, response.status);
+        assertEquals("gzip", response.header("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.header("Vary"));
+        assertEquals(LARGE, read(new GZIPInputStream(new ByteArrayInputStream(response.body))).path("data").path("text").asText());
+    }
+
+    @Test
+    void deflate() throws IOException {
+        TestHttp.Response response = TestHttp.get(server, "/large").header("Accept-Encoding", "deflate").send();
+        assertEquals(200, response.status);
+        assertEquals("deflate", response.header("Content-Encoding"));
+        assertEquals(LARGE, read(new InflaterInputStream(new ByteArrayInputStream(response.body))).path("data").path("text").asText());
+    }
+
+    @Test
+    void notAccepted() {
+        TestHttp.Response response = TestHttp.get(server, "/large").header("Accept-Encoding", "identity").send();
+        assertEquals(200, response.status);
+        assertNull(response.header("Content-Encoding"));
+        assertEquals(LARGE, response.json().path("data").path("text").asText());
+    }
+
+    @Test
+    void underMinSize() {
+        TestHttp.Response response = TestHttp.get(server, "/small").header("Accept-Encoding", "gzip").send();
+        assertEquals(200, response.status);
+        assertNull(response.header("Content-Encoding"));
+        assertEquals("small", response.json().path("data").path("text").asText());
+    }
+
+    @Test
+    void error() throws IOException {
+        TestHttp.Response response = TestHttp.get(server, "/missing").header("Accept-Encoding", "gzip").send();
+        assertEquals(404, response.status);
+        InputStream input = new ByteArrayInputStream(response.body);
+        if ("gzip".equals(response.header("Content-Encoding"))) input = new GZIPInputStream(input);
+        assertEquals(404, read(input).path("meta").path("code").asInt());
+    }
+
+    @Test
+    void asyncStreamed() throws IOException {
+        // Written by the transformer after the request is suspended, finished when the request completes
+        TestHttp.Response small = TestHttp.get(server, "/async/small").header("Accept-Encoding", "gzip").send();
+        assertEquals(200, small.status);
+        assertNull(small.header("Content-Encoding"));
+        assertEquals("small", small.json().path("data").path("text").asText());
+
+        TestHttp.Response large = TestHttp.get(server, "/async/large").header("Accept-Encoding", "gzip").send();
+        assertEquals(200, large.status);
+        assertEquals("gzip", large.header("Content-Encoding"));
+        assertEquals(LARGE, read(new GZIPInputStream(new ByteArrayInputStream(large.body))).path("data").path("text").asText());
+    }
+
+    @Test
+    void asyncStreamResult() throws IOException {
+        TestHttp.Response small = TestHttp.get(server, "/async/stream?size=2").header("Accept-Encoding", "gzip").send();
+        assertEquals(200, small.status);
+        assertNull(small.header("Content-Encoding"));
+        assertEquals(2, small.json().path("data").size());
+
+        TestHttp.Response large = TestHttp.get(server, "/async/stream?size=500").header("Accept-Encoding", "deflate").send();
+        assertEquals(200, large.status);
+        assertEquals("deflate", large.header("Content-Encoding"));
+        assertEquals(500, read(new InflaterInputStream(new ByteArrayInputStream(large.body))).path("data").size());
+    }
+
+    @Test
+    void asyncError() {
+        TestHttp.Response response = TestHttp.get(server, "/async/failed").header("Accept-Encoding", "gzip").send();
+        assertEquals(400, response.status);
+        assertEquals(ParamException.class.getName(), response.json().path("meta").path("error").path("type").asText());
+    }
+
+    private static JsonNode read(InputStream input) throws IOException {
+        return JsonUtils.objectMapper.readTree(input);
+    }
+}
@@ -0,0 +1,93 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonAsyncTest {
+    private static final CompletableFuture<Object> never = new CompletableFuture<>();
+    private static RestfulServer server;
+
+    @BeforeAll
+    static void start() {
+        server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                GET("/delayed", call -> complete(() -> Map.of("name", "delayed")));
+                GET("/thread", call -> complete(RenderThread::new));
+                GET("/failed", call -> CompletableFuture.failedFuture(new IllegalStateException()));
+                GET("/never", call -> never);
+            }
+        }).withAsyncTimeout(Duration.ofMillis(300));
+        server.start(0);
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(Duration.ZERO);
+    }
+
+    @Test
+    void completed() {
+        TestHttp.Response response = TestHttp.get(server, "/delayed").send();
+        assertEquals(200, response.status);
+        assertEquals("delayed", response.json().path("data").path("name").asText());
+    }
+
+    @Test
+    void renderedInServerThread() {
+        JsonNode node = TestHttp.get(server, "/thread").send().json();
+        assertNotEquals("completer", node.path("data").path("thread").asText());
+    }
+
+    @Test
+    void failed() {
+        TestHttp.Response response = TestHttp.get(server, "/failed").send();
+        assertEquals(500, response.status);
+        assertEquals(500, response.json().path("meta").path("code").asInt());
+    }
+
+    @Test
+    void timeout() {
+        TestHttp.Response response = TestHttp.get(server, "/never").send();
+        assertEquals(504, response.status);
+        assertEquals(504, response.json().path("meta").path("code").asInt());
+        assertTrue(never.isCancelled());
+    }
+
+    /**
+     * @return future completed with the value of supplier in another thread, after the route returned
+     */
+    private static <T> CompletableFuture<T> complete(Supplier<T> supplier) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            future.complete(supplier.get());
+        }, "completer").start();
+        return future;
+    }
+
+    /**
+     * Records the thread it is serialized in
+     */
+    public static final class RenderThread {
+        public String getThread() {
+            return Thread.currentThread().getName();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import munch.restful.core.JsonFormat;
+import munch.restful.core.exception.JsonException;
+import munch.restful.core.exception.LimitException;
+import munch.restful.core.exception.ParamException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonBodyIteratorTest {
+    private static RestfulServer server;
+
+    static class Item {
+        public String name;
+    }
+
+    @BeforeAll
+    static void start() {
+        server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                POST("/bulk", call -> {
+                    int count = 0;
+                    Iterator<Item> iterator = call.bodyAsIterator(Item.class, 1024, 5);
+                    while (iterator.hasNext()) {
+                        if (iterator.next().name != null) count++;
+                    }
+                    return Map.of("count", count);
+                });
+                POST("/bulk/stream", call -> Map.of("count", call.bodyAsStream(JsonNode.class, 1024, 5).count()));
+            }
+        });
+        server.start(0);
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(Duration.ZERO);
+    }
+
+    @Test
+    void bulk() {
+        String body = "[{\"name\": \"a\"}, {\"name\": \"b\"}, {\"name\": \"c\"}]";
+        assertEquals(3, post("/bulk", body).json().path("data").path("count").asInt());
+        assertEquals(3, post("/bulk/stream", body).json().path("data").path("count").asInt());
+        assertEquals(0, post("/bulk", "[]").json().path("data").path("count").asInt());
+    }
+
+    @Test
+    void overElements() {
+        String body = "[{}, {}, {}, {}, {}, {}]";
+        assertLimited(post("/bulk", body));
+        assertLimited(post("/bulk/stream", body));
+    }
+
+    @Test
+    void overBytes() {
+        String body = array(100);
+        // Rejected by Content-Length before reading, or while reading a chunked body
+        assertLimited(post("/bulk", body));
+        assertLimited(TestHttp.post(server, "/bulk").body(body).chunked().send());
+        assertLimited(TestHttp.post(server, "/bulk/stream").body(body).chunked().send());
+    }
+
+    @Test
+    void invalid() {
+        assertEquals(400, post("/bulk", "{\"name\": \"a\"}").status);
+        assertEquals(400, post("/bulk", "[{\"name\": ").status);
+        assertEquals(400, post("/bulk", "[{\"name\": \"a\"} {\"name\": \"b\"}]").status);
+    }
+
+    @Test
+    void streamed() {
+        // Elements before the limit are read, the limit is thrown from the element that exceeds it
+        JsonBodyIterator<Item> iterator = iterator(array(100), 100, 1000);
+        int read = 0;
+        try {
+            while (iterator.hasNext()) {
+                iterator.next();
+                read++;
+            }
+        } catch (LimitException e) {
+            assertEquals(413, e.getCode());
+        }
+        assertTrue(read > 0 && read < 10, "read " + read);
+        assertFalse(iterator.hasNext());
+
+        JsonBodyIterator<Item> elements = iterator(array(3), 1024, 2);
+        assertEquals("0", elements.next().name);
+        assertEquals("1", elements.next().name);
+        assertThrows(LimitException.class, elements::next);
+        assertFalse(elements.hasNext());
+    }
+
+    @Test
+    void closed() {
+        JsonBodyIterator<Item> iterator = iterator(array(1), 1024, 10);
+        assertTrue(iterator.hasNext());
+        assertEquals("0", iterator.next().name);
+        assertFalse(iterator.hasNext());
+        assertThrows(NoSuchElementException.class, iterator::next);
+
+        assertThrows(ParamException.class, () -> iterator("{}", 1024, 10));
+        assertThrows(ParamException.class, () -> iterator("", 1024, 10));
+        assertThrows(JsonException.class, () -> iterator("[{\"name\": 1}, }", 1024, 10).forEachRemaining(item -> {
+        }));
+    }
+
+    private static TestHttp.Response post(String path, String body) {
+        return TestHttp.post(server, path).body(body).send();
+    }
+
+    private static void assertLimited(TestHttp.Response response) {
+        assertEquals(413, response.status, response.text());
+        assertEquals(LimitException.class.getName(), response.json().path("meta").path("error").path("type").asText());
+    }
+
+    private static JsonBodyIterator<Item> iterator(String body, long maxBytes, int maxElements) {
+        // Read 16 bytes at a time, the same as a body arriving over the network
+        InputStream input = new FilterInputStream(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))) {
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                return super.read(bytes, offset, Math.min(length, 16));
+            }
+        };
+        return new JsonBodyIterator<>(JsonFormat.JSON, input, Item.class, maxBytes, maxElements);
+    }
+
+    private static String array(int size) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) builder.append(',');
+            builder.append("{\"name\": \"").append(i).append("\"}");
+        }
+        return builder.append(']').toString();
+    }
+}
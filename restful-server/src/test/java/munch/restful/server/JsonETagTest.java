@@ -0,0 +1,120 @@
+package munch.restful.server;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonETagTest {
+    private static final String LARGE = String.join("", Collections.nCopies(200, "compressible "));
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    private static RestfulServer server;
+
+    @BeforeAll
+    static void start() {
+        server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                GET("/hashed", true, call -> Map.of("text", LARGE));
+                GET("/versioned", true, call -> JsonResult.ok(Map.of("text", LARGE)).version("v1"));
+                GET("/changing", true, call -> Map.of("count", counter.incrementAndGet()));
+                GET("/missing", true, call -> null);
+                GET("/untagged", call -> Map.of("text", "untagged"));
+                AFTER("/*", call -> call.response().header("X-After", "after"));
+            }
+        }).withCompression(1024, 6);
+        server.start(0);
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(Duration.ZERO);
+    }
+
+    @Test
+    void hashed() {
+        TestHttp.Response response = TestHttp.get(server, "/hashed").send();
+        assertEquals(200, response.status);
+        assertEquals("after", response.header("X-After"));
+        String etag = response.header("ETag");
+        assertNotNull(etag);
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+
+        TestHttp.Response notModified = TestHttp.get(server, "/hashed").header("If-None-Match", etag).send();
+        assertEquals(304, notModified.status);
+        assertEquals(0, notModified.body.length);
+        assertEquals(etag, notModified.header("ETag"));
+        assertEquals("after", notModified.header("X-After"));
+    }
+
+    @Test
+    void versioned() {
+        TestHttp.Response response = TestHttp.get(server, "/versioned").send();
+        assertEquals("\"v1\"", response.header("ETag"));
+        assertEquals(304, TestHttp.get(server, "/versioned").header("If-None-Match", "\"v1\"").send().status);
+        assertEquals(304, TestHttp.get(server, "/versioned").header("If-None-Match", "W/\"v1\"").send().status);
+        assertEquals(304, TestHttp.get(server, "/versioned").header("If-None-Match", "\"v0\", \"v1\"").send().status);
+        assertEquals(304, TestHttp.get(server, "/versioned").header("If-None-Match", "*").send().status);
+        assertEquals(200, TestHttp.get(server, "/versioned").header("If-None-Match", "\"v0\"").send().status);
+    }
+
+    @Test
+    void changed() {
+        String etag = TestHttp.get(server, "/changing").send().header("ETag");
+        TestHttp.Response response = TestHttp.get(server, "/changing").header("If-None-Match", etag).send();
+        assertEquals(200, response.status);
+        assertNotEquals(etag, response.header("ETag"));
+    }
+
+    @Test
+    void compressed() {
+        TestHttp.Response identity = TestHttp.get(server, "/versioned").send();
+        TestHttp.Response gzip = TestHttp.get(server, "/versioned").header("Accept-Encoding", "gzip").send();
+        assertEquals("gzip", gzip.header("Content-Encoding"));
+        assertEquals("\"v1-gzip\"", gzip.header("ETag"));
+        assertNotEquals(identity.header("ETag"), gzip.header("ETag"));
+
+        // Suffixed etag matches with or without the encoding
+        assertEquals(304, TestHttp.get(server, "/versioned").header("Accept-Encoding", "gzip")
+                .header("If-None-Match", "\"v1-gzip\"").send().status);
+        assertEquals(304, TestHttp.get(server, "/versioned")
+                .header("If-None-Match", "\"v1-gzip\"").send().status);
+        assertEquals(304, TestHttp.get(server, "/versioned").header("Accept-Encoding", "deflate")
+                .header("If-None-Match", "\"v1-gzip\"").send().status);
+
+        TestHttp.Response hashed = TestHttp.get(server, "/hashed").header("Accept-Encoding", "deflate").send();
+        String etag = hashed.header("ETag");
+        assertTrue(etag.endsWith("-deflate\""));
+        assertEquals(304, TestHttp.get(server, "/hashed").header("Accept-Encoding", "deflate")
+                .header("If-None-Match", etag).send().status);
+    }
+
+    @Test
+    void notTagged() {
+        assertNull(TestHttp.get(server, "/untagged").send().header("ETag"));
+
+        TestHttp.Response missing = TestHttp.get(server, "/missing").send();
+        assertEquals(404, missing.status);
+        assertNull(missing.header("ETag"));
+    }
+
+    @Test
+    void quote() {
+        assertEquals("\"v1\"", JsonETag.quote("v1"));
+        assertEquals("\"a_b_c\"", JsonETag.quote("a,b\"c"));
+        assertFalse(JsonETag.matches(null, "\"v1\""));
+    }
+}
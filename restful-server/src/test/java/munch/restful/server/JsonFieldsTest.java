@@ -0,0 +1,172 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import munch.restful.core.JsonUtils;
+import munch.restful.core.NextNodeList;
+import munch.restful.core.exception.ParamException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonFieldsTest {
+    private static RestfulServer server;
+
+    static class Place {
+        public String name = "Chicken Rice";
+        public String description = "Long description";
+        public Location location = new Location();
+        public List<Image> images = List.of(new Image("a"), new Image("b"));
+        public Map<String, Hours> hours = Map.of("mon", new Hours(), "tue", new Hours());
+    }
+
+    static class Location {
+        public double lat = 1.3;
+        public double lng = 103.8;
+        public String address = "1 Road";
+    }
+
+    static class Image {
+        public String url;
+        public int size = 100;
+
+        Image(String url) {
+            this.url = url;
+        }
+    }
+
+    static class Hours {
+        public String open = "09:00";
+        public String close = "18:00";
+    }
+
+    @BeforeAll
+    static void start() {
+        server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public boolean sparseFields() {
+                return true;
+            }
+
+            @Override
+            public void route() {
+                GET("/place", call -> new Place());
+                GET("/places", call -> List.of(new Place(), new Place()));
+                GET("/places/next", call -> new NextNodeList<>(List.of(new Place()), "cursor", "abc"));
+                GET("/places/stream", call -> Stream.of(new Place(), new Place()));
+                GET("/map", call -> Map.of("a", Map.of("x", 1, "y", 2), "b", 2));
+                GET("/node", call -> JsonUtils.valueToTree(new Place()));
+            }
+        }, new JsonService() {
+            @Override
+            public void route() {
+                GET("/plain", call -> new Place());
+            }
+        });
+        server.start(0);
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(Duration.ZERO);
+    }
+
+    @Test
+    void nested() {
+        JsonNode data = data("/place?fields=name,location.lat");
+        assertEquals(2, data.size());
+        assertEquals("Chicken Rice", data.path("name").asText());
+        assertEquals(1, data.path("location").size());
+        assertEquals(1.3, data.path("location").path("lat").asDouble());
+
+        // A listed field includes everything under it
+        data = data("/place?fields=location");
+        assertEquals(1, data.size());
+        assertEquals(3, data.path("location").size());
+
+        // Unknown fields are skipped
+        assertEquals(0, data("/place?fields=unknown,location.unknown").path("location").size());
+    }
+
+    @Test
+    void list() {
+        JsonNode images = data("/place?fields=images.url").path("images");
+        assertEquals(2, images.size());
+        for (JsonNode image : images) {
+            assertEquals(1, image.size());
+            assertTrue(image.has("url"));
+        }
+
+        for (String path : List.of("/places", "/places/stream")) {
+            JsonNode data = data(path + "?fields=name,images.size");
+            assertEquals(2, data.size(), path);
+            for (JsonNode place : data) {
+                assertEquals(2, place.size(), path);
+                assertEquals(100, place.path("images").get(1).path("size").asInt(), path);
+                assertFalse(place.path("images").get(1).has("url"), path);
+            }
+        }
+
+        // next is never filtered
+        JsonNode node = get("/places/next?fields=name").json();
+        assertEquals(1, node.path("data").get(0).size());
+        assertEquals("abc", node.path("next").path("cursor").asText());
+    }
+
+    @Test
+    void map() {
+        JsonNode hours = data("/place?fields=hours.mon.open").path("hours");
+        assertEquals(1, hours.size());
+        assertEquals(1, hours.path("mon").size());
+        assertEquals("09:00", hours.path("mon").path("open").asText());
+
+        JsonNode data = data("/map?fields=a.x");
+        assertEquals(1, data.size());
+        assertEquals(1, data.path("a").size());
+        assertEquals(1, data.path("a").path("x").asInt());
+    }
+
+    @Test
+    void unfiltered() {
+        // JsonNode data is written as is, services without sparse fields ignore it
+        assertEquals(5, data("/node?fields=name").size());
+        assertEquals(5, data("/plain?fields=name").size());
+        assertEquals(5, data("/place?fields=").size());
+        assertEquals(200, get("/place?fields=name").json().path("meta").path("code").asInt());
+    }
+
+    @Test
+    void invalid() {
+        for (String fields : List.of("name,,images", "images.", ".url", "a..b")) {
+            TestHttp.Response response = get("/place?fields=" + fields);
+            assertEquals(400, response.status, fields);
+            assertEquals(ParamException.class.getName(), response.json().path("meta").path("error").path("type").asText());
+        }
+    }
+
+    @Test
+    void cached() {
+        assertSame(JsonFields.parse("name,images.url"), JsonFields.parse("name,images.url"));
+        assertEquals("name,images.url", JsonFields.parse("name,images.url").getValue());
+    }
+
+    private static TestHttp.Response get(String path) {
+        return TestHttp.get(server, path).send();
+    }
+
+    private static JsonNode data(String path) {
+        TestHttp.Response response = get(path);
+        assertEquals(200, response.status, response.text());
+        return response.json().path("data");
+    }
+}
@@ -0,0 +1,94 @@
+package munch.restful.server;
+
+import com.mashape.unirest.http.HttpMethod;
+import munch.restful.client.RestfulRequest;
+import munch.restful.client.RestfulResponse;
+import munch.restful.core.JsonFormat;
+import munch.restful.core.exception.ParamException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trip of RestfulRequest.format(JsonFormat) against RestfulServer.
+ */
+class JsonFormatTest {
+    private static RestfulServer server;
+
+    static class Place {
+        public String name;
+        public double lat;
+        public List<String> tags;
+    }
+
+    @BeforeAll
+    static void start() {
+        server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                POST("/echo", call -> call.bodyAsObject(Place.class));
+                GET("/places", call -> IntStream.range(0, 3).mapToObj(i -> Map.of("name", "p" + i)));
+                GET("/invalid", call -> call.queryString("name"));
+            }
+        });
+        server.start(0);
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(Duration.ZERO);
+    }
+
+    @Test
+    void echo() {
+        for (JsonFormat format : JsonFormat.values()) {
+            Place place = new Place();
+            place.name = "Café \"1\"";
+            place.lat = 1.3521;
+            place.tags = List.of("a", "b");
+
+            RestfulResponse response = request(HttpMethod.POST, "/echo").format(format).body(place).asResponse();
+            assertEquals(200, response.getStatus());
+            assertTrue(response.getHeader("Content-Type").startsWith(format.getMediaType()), format.name());
+
+            Place echo = response.asDataObject(Place.class);
+            assertEquals(place.name, echo.name, format.name());
+            assertEquals(place.lat, echo.lat, format.name());
+            assertEquals(place.tags, echo.tags, format.name());
+        }
+    }
+
+    @Test
+    void streamed() {
+        for (JsonFormat format : JsonFormat.values()) {
+            RestfulResponse response = request(HttpMethod.GET, "/places").format(format).asResponse();
+            assertTrue(response.getHeader("Content-Type").startsWith(format.getMediaType()), format.name());
+            assertEquals(200, response.getMeta().getCode());
+            assertEquals("p2", response.getDataNode().get(2).path("name").asText(), format.name());
+        }
+    }
+
+    @Test
+    void error() {
+        // Errors are answered as JSON, still parsed into the structured exception
+        for (JsonFormat format : JsonFormat.values()) {
+            ParamException exception = assertThrows(ParamException.class, () ->
+                    request(HttpMethod.GET, "/invalid").format(format).asResponse());
+            assertEquals(400, exception.getCode());
+        }
+    }
+
+    private static RestfulRequest request(HttpMethod method, String path) {
+        return new RestfulRequest(method, "http://localhost:" + server.getPort() + path);
+    }
+}
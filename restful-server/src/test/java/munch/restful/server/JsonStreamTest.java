@@ -0,0 +1,157 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import munch.restful.core.JsonUtils;
+import munch.restful.core.exception.ParamException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonStreamTest {
+    private static final Semaphore closed = new Semaphore(0);
+
+    private static RestfulServer server;
+
+    @BeforeAll
+    static void start() {
+        server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                GET("/stream", call -> IntStream.range(0, call.queryInt("size", 3))
+                        .mapToObj(i -> Map.of("id", i, "name", "n" + i))
+                        .onClose(closed::release));
+                GET("/iterator", call -> new ClosingIterator(3, -1));
+                GET("/async", call -> CompletableFuture.supplyAsync(() -> IntStream.range(0, 3).boxed()));
+                GET("/failed/before", call -> new ClosingIterator(3, 0));
+                GET("/failed/after", call -> new ClosingIterator(1000, 10));
+                GET("/empty", call -> new ClosingIterator(0, -1));
+                AFTER("/empty", call -> call.response().header("X-After", "after"));
+            }
+        });
+        server.start(0);
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(Duration.ZERO);
+    }
+
+    @Test
+    void array() throws InterruptedException {
+        closed.drainPermits();
+        TestHttp.Response response = TestHttp.get(server, "/stream").send();
+        assertEquals(200, response.status);
+        assertTrue(response.header("Content-Type").startsWith("application/json"));
+
+        JsonNode node = response.json();
+        assertEquals(200, node.path("meta").path("code").asInt());
+        assertEquals(3, node.path("data").size());
+        assertEquals("n2", node.path("data").get(2).path("name").asText());
+        assertTrue(closed.tryAcquire(5, TimeUnit.SECONDS), "stream not closed");
+
+        assertEquals(0, TestHttp.get(server, "/stream?size=0").send().json().path("data").size());
+        assertEquals(2000, TestHttp.get(server, "/stream?size=2000").send().json().path("data").size());
+    }
+
+    @Test
+    void ndjson() {
+        TestHttp.Response response = TestHttp.get(server, "/stream")
+                .header("Accept", JsonStream.NDJSON)
+                .send();
+        assertEquals(200, response.status);
+        assertTrue(response.header("Content-Type").startsWith(JsonStream.NDJSON));
+
+        String[] lines = response.text().split("\n");
+        assertEquals(3, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(i, JsonUtils.jsonToTree(lines[i]).path("id").asInt());
+        }
+    }
+
+    @Test
+    void iterator() throws InterruptedException {
+        closed.drainPermits();
+        JsonNode data = TestHttp.get(server, "/iterator").send().json().path("data");
+        assertEquals(3, data.size());
+        assertEquals(2, data.get(2).asInt());
+        assertTrue(closed.tryAcquire(5, TimeUnit.SECONDS), "iterator not closed");
+
+        data = TestHttp.get(server, "/async").send().json().path("data");
+        assertEquals(3, data.size());
+    }
+
+    @Test
+    void emptyAfterFilter() {
+        // Not committed by a flush, headers of AFTER filters are sent
+        TestHttp.Response response = TestHttp.get(server, "/empty").send();
+        assertEquals(200, response.status);
+        assertEquals("after", response.header("X-After"));
+        assertEquals(0, response.json().path("data").size());
+    }
+
+    @Test
+    void failedBeforeCommit() throws InterruptedException {
+        closed.drainPermits();
+        TestHttp.Response response = TestHttp.get(server, "/failed/before").send();
+        assertEquals(400, response.status);
+        JsonNode node = response.json();
+        assertEquals(ParamException.class.getName(), node.path("meta").path("error").path("type").asText());
+        assertTrue(node.path("data").isMissingNode());
+        assertTrue(closed.tryAcquire(5, TimeUnit.SECONDS), "iterator not closed");
+    }
+
+    @Test
+    void abortedAfterCommit() throws InterruptedException {
+        closed.drainPermits();
+        // Status is sent with the first element, the client sees an incomplete chunked body
+        assertThrows(UncheckedIOException.class, () -> TestHttp.get(server, "/failed/after").send());
+        assertTrue(closed.tryAcquire(5, TimeUnit.SECONDS), "iterator not closed");
+
+        // Server is still serving after the abort
+        assertEquals(200, TestHttp.get(server, "/stream").send().status);
+    }
+
+    /**
+     * Iterates 0 until size, throws ParamException at failAt
+     */
+    private static final class ClosingIterator implements Iterator<Integer>, AutoCloseable {
+        private final int size;
+        private final int failAt;
+        private int next;
+
+        private ClosingIterator(int size, int failAt) {
+            this.size = size;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == failAt) throw new ParamException("Failed at " + failAt + ".");
+            return next < size;
+        }
+
+        @Override
+        public Integer next() {
+            return next++;
+        }
+
+        @Override
+        public void close() {
+            closed.release();
+        }
+    }
+}
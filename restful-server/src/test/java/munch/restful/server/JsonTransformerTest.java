@@ -0,0 +1,127 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import munch.restful.core.JsonFormat;
+import munch.restful.core.JsonUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class JsonTransformerTest {
+    private static final String LARGE = String.join("", Collections.nCopies(200, "compressible "));
+
+    private static RestfulServer server;
+
+    @BeforeAll
+    static void start() {
+        server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public JsonTransformer toJson() {
+                return toJsonStream;
+            }
+
+            @Override
+            public void route() {
+                PATH("/streaming", () -> {
+                    GET("/small", call -> Map.of("text", "small"));
+                    GET("/large", call -> Map.of("text", LARGE));
+                });
+                AFTER("/streaming/*", call -> call.response().header("X-After", "streaming"));
+            }
+        }, new JsonService() {
+            @Override
+            public void route() {
+                GET("/binary", call -> Map.of("text", "binary"));
+                AFTER("/binary", call -> call.response().header("X-After", "binary"));
+            }
+        }).withCompression(1024, 6);
+        server.start(0);
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(Duration.ZERO);
+    }
+
+    @Test
+    void render() {
+        JsonTransformer transformer = new JsonTransformer();
+        JsonResult result = JsonResult.ok(List.of(Map.of("id", 1)))
+                .put("next", Map.of("cursor", "c1"))
+                .put("total", 10);
+
+        JsonNode node = JsonUtils.jsonToTree(transformer.render(result));
+        assertEquals(200, node.path("meta").path("code").asInt());
+        assertEquals(1, node.path("data").get(0).path("id").asInt());
+        assertEquals("c1", node.path("next").path("cursor").asText());
+        assertEquals(10, node.path("total").asInt());
+
+        assertSame(JsonTransformer.Meta200String, transformer.render(JsonResult.ok()));
+        assertSame(JsonTransformer.Meta404String, transformer.render(JsonResult.notFound()));
+        assertEquals("{\"meta\":{\"code\":204}}", transformer.render(JsonResult.of(204)));
+    }
+
+    @Test
+    void toStringOverride() {
+        JsonTransformer transformer = new JsonTransformer() {
+            @Override
+            protected String toString(Map<String, Object> map) {
+                map.put("overridden", true);
+                return super.toString(map);
+            }
+        };
+
+        JsonNode node = JsonUtils.jsonToTree(transformer.render(JsonResult.ok("value")));
+        assertEquals("value", node.path("data").asText());
+        assertEquals(200, node.path("meta").path("code").asInt());
+        assertEquals(true, node.path("overridden").asBoolean());
+    }
+
+    @Test
+    void streamingAfterFilter() {
+        TestHttp.Response response = TestHttp.get(server, "/streaming/small").send();
+        assertEquals(200, response.status);
+        assertEquals("streaming", response.header("X-After"));
+        assertEquals("small", response.json().path("data").path("text").asText());
+    }
+
+    @Test
+    void streamingCompressedAfterFilter() throws IOException {
+        TestHttp.Response response = TestHttp.get(server, "/streaming/large").header("Accept-Encoding", "gzip").send();
+        assertEquals(200, response.status);
+        assertEquals("gzip", response.header("Content-Encoding"));
+        assertEquals("streaming", response.header("X-After"));
+
+        // Compressed exactly once, spark must not gzip the written body again
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(response.body))) {
+            assertEquals(LARGE, JsonUtils.objectMapper.readTree(input).path("data").path("text").asText());
+        }
+    }
+
+    @Test
+    void binaryAfterFilter() throws IOException {
+        TestHttp.Response response = TestHttp.get(server, "/binary")
+                .header("Accept", JsonFormat.CBOR.getMediaType())
+                .send();
+        assertEquals(200, response.status);
+        assertEquals(JsonFormat.CBOR.getMediaType(), response.header("Content-Type"));
+        assertEquals("binary", response.header("X-After"));
+
+        JsonNode node = new ObjectMapper(JsonFormat.CBOR.getFactory()).readTree(response.body);
+        assertEquals("binary", node.path("data").path("text").asText());
+    }
+}
@@ -0,0 +1,222 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import munch.restful.core.exception.AuthenticationException;
+import munch.restful.core.exception.LimitException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+import spark.Spark;
+
+import javax.servlet.http.Cookie;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RestfulBatchTest {
+    private static final Semaphore entered = new Semaphore(0);
+    private static final Semaphore interrupted = new Semaphore(0);
+    private static final CountDownLatch release = new CountDownLatch(1);
+    private static final CompletableFuture<Object> never = new CompletableFuture<>();
+
+    private static RestfulServer server;
+
+    @BeforeAll
+    static void start() {
+        server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                BEFORE("/private/*", call -> {
+                    if (!"token".equals(call.getHeader("Authorization"))) {
+                        throw new AuthenticationException("Unauthorized.");
+                    }
+                });
+                BEFORE("/halted", call -> Spark.halt(403, "{\"meta\":{\"code\":403}}"));
+                AFTER("/after", call -> call.response().body("{\"meta\":{\"code\":200},\"data\":\"after\"}"));
+
+                GET("/private/data", call -> Map.of("name", "private"));
+                GET("/halted", call -> Map.of("name", "halted"));
+                GET("/after", call -> Map.of("name", "route"));
+                GET("/users/:id", call -> Map.of("id", call.pathString("id"), "size", call.queryInt("size", 10)));
+                GET("/query", call -> Map.of("q", call.queryString("q"), "queryString", call.request().queryString()));
+                GET("/never", call -> never);
+                GET("/etag", true, call -> Map.of("name", "etag"));
+                GET("/headers", call -> Map.of(
+                        "custom", String.valueOf(call.getHeader("X-Custom")),
+                        "ifNoneMatch", String.valueOf(call.getHeader("If-None-Match")),
+                        "contentLength", String.valueOf(call.getHeader("Content-Length")),
+                        "names", Collections.list(call.request().raw().getHeaderNames()).toString()));
+                POST("/echo", call -> call.bodyAsJson());
+                GET("/cookie", call -> {
+                    call.response().raw().addCookie(new Cookie("session", "1"));
+                    call.response().header("X-Sub", "1");
+                    return Map.of("name", "cookie");
+                });
+                GET("/blocking", call -> {
+                    entered.release();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        interrupted.release();
+                        throw e;
+                    }
+                    return Map.of("name", "blocking");
+                });
+            }
+        }).withAsyncTimeout(Duration.ofSeconds(3));
+        server.start(0);
+        server.withBatch("/batch", 4, 1);
+    }
+
+    @AfterAll
+    static void stop() {
+        release.countDown();
+        server.stop(Duration.ZERO);
+    }
+
+    @Test
+    void ordered() {
+        JsonNode data = batch("[{\"path\": \"/users/1\", \"query\": {\"size\": \"20\"}}," +
+                "{\"method\": \"POST\", \"path\": \"/echo\", \"body\": {\"a\": 1}}," +
+                "{\"path\": \"/users/2?size=5\"}," +
+                "{\"path\": \"/missing\"}]");
+        assertEquals(4, data.size());
+        assertEquals("1", data.get(0).path("data").path("id").asText());
+        assertEquals(20, data.get(0).path("data").path("size").asInt());
+        assertEquals(1, data.get(1).path("data").path("a").asInt());
+        assertEquals(5, data.get(2).path("data").path("size").asInt());
+        assertEquals(404, data.get(3).path("meta").path("code").asInt());
+    }
+
+    @Test
+    void filtered() {
+        assertEquals(401, TestHttp.get(server, "/private/data").send().status);
+
+        JsonNode data = batch("[{\"path\": \"/private/data\"}, {\"path\": \"/halted\"}, {\"path\": \"/after\"}]");
+        assertEquals(401, data.get(0).path("meta").path("code").asInt());
+        assertEquals(AuthenticationException.class.getName(), data.get(0).path("meta").path("error").path("type").asText());
+        assertTrue(data.get(0).path("data").isMissingNode());
+        assertEquals(403, data.get(1).path("meta").path("code").asInt());
+        assertTrue(data.get(1).path("data").isMissingNode());
+        assertEquals("after", data.get(2).path("data").asText());
+
+        TestHttp.Response response = TestHttp.post(server, "/batch")
+                .header("Authorization", "token")
+                .body("[{\"path\": \"/private/data\"}]")
+                .send();
+        assertEquals("private", response.json().path("data").get(0).path("data").path("name").asText());
+    }
+
+    @Test
+    void isolated() {
+        TestHttp.Response response = TestHttp.post(server, "/batch").body("[{\"path\": \"/cookie\"}]").send();
+        assertEquals(200, response.status);
+        assertEquals("cookie", response.json().path("data").get(0).path("data").path("name").asText());
+        assertNull(response.header("Set-Cookie"));
+        assertNull(response.header("X-Sub"));
+    }
+
+    @Test
+    void headers() {
+        String etag = TestHttp.get(server, "/etag").send().header("ETag");
+        assertEquals(304, TestHttp.get(server, "/etag").header("If-None-Match", etag).send().status);
+
+        // Conditional on the batch response, the sub request is answered in full
+        TestHttp.Response response = TestHttp.post(server, "/batch")
+                .header("If-None-Match", etag)
+                .header("X-Custom", "custom")
+                .body("[{\"path\": \"/etag\"}, {\"path\": \"/headers\"}]")
+                .send();
+        assertEquals(200, response.status);
+        JsonNode data = response.json().path("data");
+        assertEquals(200, data.get(0).path("meta").path("code").asInt());
+        assertEquals("etag", data.get(0).path("data").path("name").asText());
+
+        JsonNode headers = data.get(1).path("data");
+        assertEquals("custom", headers.path("custom").asText());
+        assertEquals("null", headers.path("ifNoneMatch").asText());
+        assertEquals("null", headers.path("contentLength").asText());
+        assertFalse(headers.path("names").asText().contains("If-None-Match"), headers.path("names").asText());
+    }
+
+    @Test
+    void timeout() throws InterruptedException {
+        JsonNode data = batch("[{\"path\": \"/users/1\"}, {\"path\": \"/blocking\"}]");
+        assertEquals(200, data.get(0).path("meta").path("code").asInt());
+        assertEquals(504, data.get(1).path("meta").path("code").asInt());
+        assertTrue(interrupted.tryAcquire(5, TimeUnit.SECONDS), "sub request not interrupted");
+
+        // Thread is freed for the next batch
+        assertEquals(200, batch("[{\"path\": \"/users/2\"}]").get(0).path("meta").path("code").asInt());
+    }
+
+    @Test
+    void queryEncoded() {
+        JsonNode data = batch("[{\"path\": \"/query\", \"query\": {\"q\": \"a&b=c d%\"}}]");
+        assertEquals("a&b=c d%", data.get(0).path("data").path("q").asText());
+        assertEquals("q=a%26b%3Dc+d%25", data.get(0).path("data").path("queryString").asText());
+    }
+
+    @Test
+    void asyncTimeout() throws InterruptedException {
+        // Waited for until the batch deadline instead of the default async timeout, the stage is cancelled
+        JsonNode data = batch("[{\"path\": \"/never\"}]");
+        assertEquals(504, data.get(0).path("meta").path("code").asInt());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!never.isCancelled() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(never.isCancelled(), "async result not cancelled");
+    }
+
+    @Test
+    void rejected() throws Exception {
+        entered.drainPermits();
+        String blocking = "[{\"path\": \"/blocking\"}, {\"path\": \"/blocking\"}, {\"path\": \"/blocking\"}, {\"path\": \"/blocking\"}]";
+        CompletableFuture<TestHttp.Response> first = CompletableFuture.supplyAsync(() ->
+                TestHttp.post(server, "/batch").body(blocking).send());
+        assertTrue(entered.tryAcquire(10, TimeUnit.SECONDS));
+
+        // 1 thread queuing 4, the batch submitting last does not fit behind the other
+        TestHttp.Response second = TestHttp.post(server, "/batch").body(blocking).send();
+        TestHttp.Response other = first.get(10, TimeUnit.SECONDS);
+        TestHttp.Response rejected = second.status == 429 ? second : other;
+        TestHttp.Response accepted = second.status == 429 ? other : second;
+
+        assertEquals(429, rejected.status);
+        assertEquals(LimitException.class.getName(), rejected.json().path("meta").path("error").path("type").asText());
+        assertEquals(200, accepted.status);
+        for (JsonNode item : accepted.json().path("data")) {
+            assertEquals(504, item.path("meta").path("code").asInt());
+        }
+        assertEquals(200, batch("[{\"path\": \"/users/3\"}]").get(0).path("meta").path("code").asInt());
+    }
+
+    @Test
+    void invalid() {
+        assertEquals(400, TestHttp.post(server, "/batch").body("[]").send().status);
+        assertEquals(400, TestHttp.post(server, "/batch").body("{\"path\": \"/users/1\"}").send().status);
+        assertEquals(400, TestHttp.post(server, "/batch").body("[{}, {}, {}, {}, {}]").send().status);
+
+        JsonNode data = batch("[{\"method\": \"POST\", \"path\": \"/batch\", \"body\": [{\"path\": \"/users/1\"}]}, {}]");
+        assertEquals(400, data.get(0).path("meta").path("code").asInt());
+        assertEquals(400, data.get(1).path("meta").path("code").asInt());
+    }
+
+    private static JsonNode batch(String body) {
+        TestHttp.Response response = TestHttp.post(server, "/batch").body(body).send();
+        assertEquals(200, response.status);
+        return response.json().path("data");
+    }
+}
@@ -0,0 +1,126 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RestfulHealthTest {
+    private static final AtomicBoolean healthy = new AtomicBoolean(true);
+    private static final AtomicBoolean slow = new AtomicBoolean();
+    private static final AtomicInteger runs = new AtomicInteger();
+
+    private static RestfulServer server;
+
+    @BeforeAll
+    static void start() {
+        server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+            }
+        });
+        server.withHealthCheck("database", Duration.ofMillis(50), Duration.ofMillis(200), () -> {
+            runs.incrementAndGet();
+            if (slow.get()) Thread.sleep(1000);
+            if (!healthy.get()) throw new IllegalStateException("Database unreachable.");
+        });
+        server.start(0);
+        server.withHealth();
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(Duration.ZERO);
+    }
+
+    @Test
+    void changes() {
+        awaitStatus(200);
+        JsonNode check = health().json().path("data").path("checks").path("database");
+        assertTrue(check.path("healthy").asBoolean());
+        assertTrue(check.has("checkedAt"));
+
+        healthy.set(false);
+        awaitStatus(503);
+        TestHttp.Response response = health();
+        assertEquals("HealthCheckFailed", response.json().path("meta").path("error").path("type").asText());
+        assertEquals("Database unreachable.", response.json().path("data").path("checks").path("database").path("error").asText());
+
+        healthy.set(true);
+        awaitStatus(200);
+    }
+
+    @Test
+    void timeout() {
+        awaitStatus(200);
+        slow.set(true);
+        try {
+            awaitStatus(503);
+            JsonNode check = health().json().path("data").path("checks").path("database");
+            assertFalse(check.path("healthy").asBoolean());
+            assertEquals("Timed out after 200ms.", check.path("error").asText());
+        } finally {
+            slow.set(false);
+        }
+        awaitStatus(200);
+    }
+
+    @Test
+    void probesDoNotRunChecks() {
+        awaitStatus(200);
+        int before = runs.get();
+        long start = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            health();
+        }
+        long intervals = Duration.ofNanos(System.nanoTime() - start).toMillis() / 50 + 2;
+        assertTrue(runs.get() - before <= intervals, "checks ran with probes");
+    }
+
+    @Test
+    void invalid() {
+        RestfulHealth health = new RestfulHealth();
+        health.add("a", Duration.ofMinutes(1), Duration.ofSeconds(1), () -> {
+        });
+        assertThrows(IllegalArgumentException.class, () -> health.add("a", Duration.ofMinutes(1), Duration.ofSeconds(1), () -> {
+        }));
+        assertThrows(IllegalArgumentException.class, () -> health.add("b", Duration.ZERO, Duration.ofSeconds(1), () -> {
+        }));
+        assertThrows(IllegalArgumentException.class, () -> health.add("c", Duration.ofMinutes(1), Duration.ZERO, () -> {
+        }));
+        health.stop();
+        assertTrue(health.isStopping());
+    }
+
+    private static TestHttp.Response health() {
+        return TestHttp.get(server, "/health/check").send();
+    }
+
+    private static void awaitStatus(int status) {
+        await(() -> health().status == status);
+        assertEquals(status, health().status);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import munch.restful.core.JsonUtils;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpURI;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.http2.api.Stream;
+import org.eclipse.jetty.http2.api.server.ServerSessionListener;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.frames.DataFrame;
+import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.FuturePromise;
+import org.eclipse.jetty.util.Promise;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RestfulJettyFactoryTest {
+
+    @Test
+    void threadPool() {
+        RestfulJettyFactory factory = new RestfulJettyFactory();
+        assertNull(factory.createThreadPool(-1, -1, -1));
+
+        factory.minThreads = 4;
+        factory.maxThreads = 16;
+        factory.idleTimeoutMillis = 30000;
+        factory.queueSize = 64;
+        QueuedThreadPool threadPool = (QueuedThreadPool) factory.createThreadPool(-1, -1, -1);
+        assertEquals(4, threadPool.getMinThreads());
+        assertEquals(16, threadPool.getMaxThreads());
+        assertEquals(30000, threadPool.getIdleTimeout());
+        assertEquals("restful-server", threadPool.getName());
+    }
+
+    @Test
+    void threadPoolServed() {
+        RestfulServer server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                GET("/thread", call -> Map.of("name", Thread.currentThread().getName()));
+            }
+        }).withThreadPool(4, 16, Duration.ofSeconds(30), 64);
+        server.start(0);
+        try {
+            String name = TestHttp.get(server, "/thread").send().json().path("data").path("name").asText();
+            assertTrue(name.startsWith("restful-server"), name);
+        } finally {
+            server.stop(Duration.ZERO);
+        }
+    }
+
+    @Test
+    void virtualThreads() {
+        RestfulServer server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                GET("/thread", call -> Map.of("name", Thread.currentThread().toString()));
+            }
+        });
+        if (!supportsVirtualThreads()) {
+            assertThrows(IllegalStateException.class, server::withVirtualThreads);
+            return;
+        }
+
+        server.withVirtualThreads();
+        server.start(0);
+        try {
+            String name = TestHttp.get(server, "/thread").send().json().path("data").path("name").asText();
+            assertTrue(name.startsWith("VirtualThread"), name);
+        } finally {
+            server.stop(Duration.ZERO);
+        }
+    }
+
+    @Test
+    void virtualThreadPool() {
+        if (!supportsVirtualThreads()) return;
+
+        RestfulJettyFactory factory = new RestfulJettyFactory();
+        factory.virtualThreads = true;
+        factory.maxThreads = 16;
+        ThreadPool threadPool = factory.createThreadPool(-1, -1, -1);
+        assertTrue(threadPool instanceof RestfulJettyFactory.VirtualThreadPool);
+    }
+
+    @Test
+    void connector() {
+        RestfulJettyFactory factory = new RestfulJettyFactory();
+        assertFalse(factory.isConnectorConfigured());
+
+        factory.http2 = true;
+        factory.acceptors = 1;
+        factory.selectors = 2;
+        factory.acceptQueueSize = 128;
+        factory.connectorIdleTimeoutMillis = 15000;
+        assertTrue(factory.isConnectorConfigured());
+
+        Server server = new Server();
+        ServerConnector spark = new ServerConnector(server);
+        spark.setHost("127.0.0.1");
+        spark.setPort(4567);
+        ServerConnector connector = factory.createConnector(server, spark);
+        assertEquals("127.0.0.1", connector.getHost());
+        assertEquals(4567, connector.getPort());
+        assertEquals(1, connector.getAcceptors());
+        assertEquals(2, connector.getSelectorManager().getSelectorCount());
+        assertEquals(128, connector.getAcceptQueueSize());
+        assertEquals(15000, connector.getIdleTimeout());
+        assertTrue(connector.getProtocols().contains("h2c"), connector.getProtocols().toString());
+    }
+
+    @Test
+    void http2PriorKnowledge() throws Exception {
+        RestfulServer server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                GET("/protocol", call -> Map.of("protocol", call.request().raw().getProtocol()));
+            }
+        }).withHttp2().withConnector(1, 1, 0, Duration.ofSeconds(30), true);
+        server.start(0);
+
+        HTTP2Client client = new HTTP2Client();
+        client.start();
+        try {
+            // Starts with the HTTP/2 preface, no HTTP/1.1 upgrade
+            FuturePromise<Session> session = new FuturePromise<>();
+            client.connect(new InetSocketAddress("localhost", server.getPort()), new ServerSessionListener.Adapter(), session);
+
+            HttpURI uri = new HttpURI("http://localhost:" + server.getPort() + "/protocol");
+            MetaData.Request request = new MetaData.Request("GET", uri, HttpVersion.HTTP_2, new HttpFields());
+            CompletableFuture<Integer> status = new CompletableFuture<>();
+            CompletableFuture<String> body = new CompletableFuture<>();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            session.get(5, TimeUnit.SECONDS).newStream(new HeadersFrame(request, null, true), new Promise.Adapter<>(), new Stream.Listener.Adapter() {
+                @Override
+                public void onHeaders(Stream stream, HeadersFrame frame) {
+                    status.complete(((MetaData.Response) frame.getMetaData()).getStatus());
+                }
+
+                @Override
+                public void onData(Stream stream, DataFrame frame, Callback callback) {
+                    byte[] bytes = new byte[frame.getData().remaining()];
+                    frame.getData().get(bytes);
+                    output.write(bytes, 0, bytes.length);
+                    callback.succeeded();
+                    if (frame.isEndStream()) body.complete(new String(output.toByteArray(), StandardCharsets.UTF_8));
+                }
+            });
+
+            assertEquals(200, status.get(5, TimeUnit.SECONDS).intValue());
+            JsonNode node = JsonUtils.jsonToTree(body.get(5, TimeUnit.SECONDS));
+            assertEquals("HTTP/2.0", node.path("data").path("protocol").asText());
+
+            // HTTP/1.1 is still served on the same port
+            assertEquals(200, TestHttp.get(server, "/protocol").send().status);
+        } finally {
+            client.stop();
+            server.stop(Duration.ZERO);
+        }
+    }
+
+    private static boolean supportsVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
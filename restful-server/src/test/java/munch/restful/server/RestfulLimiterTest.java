@@ -0,0 +1,115 @@
+package munch.restful.server;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RestfulLimiterTest {
+    private static final CountDownLatch entered = new CountDownLatch(1);
+    private static final CountDownLatch release = new CountDownLatch(1);
+
+    private static RestfulServer server;
+
+    @BeforeAll
+    static void start() {
+        server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                GET("/blocking", call -> {
+                    entered.countDown();
+                    release.await(10, TimeUnit.SECONDS);
+                    return Map.of("name", "blocking");
+                });
+                GET("/open", call -> Map.of("name", "open"));
+            }
+        }).withConcurrencyLimit("GET /blocking", 1, 1);
+        server.start(0);
+        server.withHealth();
+    }
+
+    @AfterAll
+    static void stop() {
+        release.countDown();
+        server.stop(Duration.ZERO);
+    }
+
+    @Test
+    void shed() throws Exception {
+        CompletableFuture<TestHttp.Response> first = CompletableFuture.supplyAsync(() -> TestHttp.get(server, "/blocking").send());
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+        TestHttp.Response rejected = TestHttp.get(server, "/blocking").send();
+        assertEquals(429, rejected.status);
+        assertEquals(429, rejected.json().path("meta").path("code").asInt());
+
+        // Routes without their own limit and health are not limited
+        assertEquals(200, TestHttp.get(server, "/open").send().status);
+        assertEquals(200, TestHttp.get(server, "/health/check").send().status);
+
+        release.countDown();
+        assertEquals(200, first.get(10, TimeUnit.SECONDS).status);
+        assertEquals(200, TestHttp.get(server, "/blocking").send().status);
+    }
+
+    @Test
+    void acquire() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 2);
+        int first = limiter.tryAcquire();
+        int second = limiter.tryAcquire();
+        assertEquals(1, first);
+        assertEquals(2, second);
+        assertEquals(-1, limiter.tryAcquire());
+        assertEquals(1, limiter.getRejected());
+        assertEquals(2, limiter.getInflight());
+
+        limiter.release(0, second);
+        assertEquals(1, limiter.getInflight());
+        assertEquals(2, limiter.tryAcquire());
+    }
+
+    @Test
+    void shrinkOnLatency() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(5, 100);
+        assertEquals(20, limiter.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            limiter.release(1_000_000, limiter.tryAcquire());
+        }
+        int limit = limiter.getLimit();
+        for (int i = 0; i < 100; i++) {
+            limiter.release(50_000_000, limiter.tryAcquire());
+        }
+        assertTrue(limiter.getLimit() < limit);
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    void growWhenUtilized() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(5, 40);
+        for (int i = 0; i < 200; i++) {
+            int acquired = 0;
+            while (limiter.tryAcquire() > 0) acquired++;
+            for (int j = 0; j < acquired; j++) {
+                limiter.release(1_000_000, acquired);
+            }
+        }
+        assertEquals(40, limiter.getLimit());
+    }
+
+    @Test
+    void invalid() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimiter(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimiter(10, 5));
+    }
+}
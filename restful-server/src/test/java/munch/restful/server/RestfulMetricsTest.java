@@ -0,0 +1,108 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import munch.restful.core.exception.ParamException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RestfulMetricsTest {
+    private static RestfulServer server;
+
+    @BeforeAll
+    static void start() {
+        server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                GET("/users/:id", call -> Map.of("id", call.pathString("id")));
+                GET("/invalid", call -> {
+                    throw new ParamException("id");
+                });
+            }
+        }).withThreadPool(2, 8, Duration.ofSeconds(60), 0);
+        server.start(0);
+        server.withMetrics();
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(Duration.ZERO);
+    }
+
+    @Test
+    void routes() {
+        TestHttp.get(server, "/users/1").send();
+        TestHttp.get(server, "/users/2").send();
+        TestHttp.get(server, "/invalid").send();
+        TestHttp.get(server, "/missing").send();
+
+        JsonNode data = TestHttp.get(server, "/health/metrics").send().json().path("data");
+        JsonNode users = data.path("routes").path("GET /users/:id");
+        assertEquals(2, users.path("count").asLong());
+        assertEquals(2, users.path("status").path("2xx").asLong());
+        assertTrue(users.path("latency").path("max").asDouble() >= users.path("latency").path("p50").asDouble());
+
+        assertEquals(1, data.path("routes").path("GET /invalid").path("status").path("4xx").asLong());
+        assertTrue(data.path("routes").path(RestfulMetrics.UNMATCHED).path("status").path("4xx").asLong() >= 1);
+
+        JsonNode threadPool = data.path("threadPool");
+        assertEquals(8, threadPool.path("max").asInt());
+        assertTrue(threadPool.path("busy").asInt() >= 1);
+    }
+
+    @Test
+    void snapshot() {
+        RestfulMetrics metrics = new RestfulMetrics();
+        metrics.record("GET /a", 200, TimeUnit.MILLISECONDS.toNanos(2));
+        metrics.record("GET /a", 503, TimeUnit.MILLISECONDS.toNanos(4));
+        metrics.record(null, 404, TimeUnit.MILLISECONDS.toNanos(1));
+
+        ObjectNode node = metrics.snapshot();
+        JsonNode a = node.path("routes").path("GET /a");
+        assertEquals(2, a.path("count").asLong());
+        assertEquals(1, a.path("status").path("2xx").asLong());
+        assertEquals(1, a.path("status").path("5xx").asLong());
+        assertEquals(4.0, a.path("latency").path("max").asDouble());
+        assertEquals(1, node.path("routes").path(RestfulMetrics.UNMATCHED).path("count").asLong());
+    }
+
+    @Test
+    void histogramBounds() {
+        for (long micros = 0; micros < 1_000_000; micros = micros * 3 / 2 + 1) {
+            long upper = LatencyHistogram.upperBound(LatencyHistogram.index(micros));
+            assertTrue(upper >= micros);
+            assertTrue(upper <= micros + micros / 8 + 1, "bucket of " + micros + " is wider than 12.5%");
+        }
+    }
+
+    @Test
+    void histogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.getCount());
+        assertEquals(100_000, snapshot.getMax());
+        assertEquals(50_500, snapshot.getMean());
+        assertWithin(50_000, snapshot.percentile(50));
+        assertWithin(90_000, snapshot.percentile(90));
+        assertWithin(99_000, snapshot.percentile(99));
+        assertEquals(100_000, snapshot.percentile(99.9));
+        assertEquals(0, new LatencyHistogram().snapshot().percentile(50));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / 8, expected + " ~ " + actual);
+    }
+}
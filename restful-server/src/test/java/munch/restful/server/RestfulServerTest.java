@@ -0,0 +1,140 @@
+package munch.restful.server;
+
+import munch.restful.core.exception.ParamException;
+import munch.restful.core.exception.StructuredException;
+import munch.restful.core.exception.UnknownException;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RestfulServerTest {
+
+    @Test
+    void isolated() {
+        RestfulServer first = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                GET("/first", call -> Map.of("name", "first"));
+                GET("/failed", call -> {
+                    throw new IllegalArgumentException("first");
+                });
+            }
+        }) {
+            @Override
+            protected boolean mapException(Exception exception) throws StructuredException {
+                if (exception instanceof IllegalArgumentException) throw new ParamException("mapped");
+                return false;
+            }
+        };
+        RestfulServer second = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                GET("/second", call -> Map.of("name", "second"));
+                GET("/failed", call -> {
+                    throw new IllegalArgumentException("second");
+                });
+            }
+        });
+
+        first.start(0);
+        second.start(0);
+        try {
+            assertNotEquals(first.getPort(), second.getPort());
+
+            // Routes are only served by the server they are added to
+            assertEquals("first", TestHttp.get(first, "/first").send().json().path("data").path("name").asText());
+            assertEquals("second", TestHttp.get(second, "/second").send().json().path("data").path("name").asText());
+            assertEquals(404, TestHttp.get(first, "/second").send().status);
+            assertEquals(404, TestHttp.get(second, "/first").send().status);
+
+            // Exceptions are mapped by the handlers of each server
+            TestHttp.Response mapped = TestHttp.get(first, "/failed").send();
+            assertEquals(400, mapped.status);
+            assertEquals(ParamException.class.getName(), mapped.json().path("meta").path("error").path("type").asText());
+
+            TestHttp.Response unknown = TestHttp.get(second, "/failed").send();
+            assertEquals(500, unknown.status);
+            assertEquals(UnknownException.class.getName(), unknown.json().path("meta").path("error").path("type").asText());
+        } finally {
+            first.stop(Duration.ZERO);
+        }
+
+        // Stopping one server leaves the other serving
+        try {
+            assertEquals(200, TestHttp.get(second, "/second").send().status);
+            assertEquals(500, TestHttp.get(second, "/failed").send().status);
+        } finally {
+            second.stop(Duration.ZERO);
+        }
+    }
+
+    @Test
+    void gracefulStop() throws Exception {
+        Semaphore entered = new Semaphore(0);
+        CountDownLatch release = new CountDownLatch(1);
+        RestfulServer server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                GET("/slow", call -> {
+                    entered.release();
+                    release.await(10, TimeUnit.SECONDS);
+                    return Map.of("name", "slow");
+                });
+            }
+        });
+        server.start(0);
+
+        CompletableFuture<TestHttp.Response> inflight = CompletableFuture.supplyAsync(() ->
+                TestHttp.get(server, "/slow").send());
+        assertTrue(entered.tryAcquire(10, TimeUnit.SECONDS));
+
+        // Stop waits for the request in flight to drain
+        CompletableFuture<Integer> stopped = CompletableFuture.supplyAsync(() -> server.stop(Duration.ofSeconds(10)));
+        Thread.sleep(200);
+        assertFalse(stopped.isDone());
+        assertFalse(inflight.isDone());
+
+        release.countDown();
+        TestHttp.Response response = inflight.get(10, TimeUnit.SECONDS);
+        assertEquals(200, response.status);
+        assertEquals("slow", response.json().path("data").path("name").asText());
+        assertEquals(0, stopped.get(10, TimeUnit.SECONDS).intValue());
+        assertFalse(server.isStarted());
+    }
+
+    @Test
+    void dispatcherPlainRoutes() {
+        Service service = Service.ignite();
+        RestfulService plain = () -> service.get("/plain", (request, response) -> "plain");
+        RestfulServer server = new RestfulServer(service, plain, new JsonService() {
+            @Override
+            public void route() {
+                GET("/users/:id", call -> Map.of("id", call.pathString("id")));
+            }
+        }).withDispatcher();
+        server.start(0);
+        try {
+            // Added while the routers start, matched before the catch all of the dispatcher
+            assertEquals("plain", TestHttp.get(server, "/plain").send().text());
+            assertEquals("1", TestHttp.get(server, "/users/1").send().json().path("data").path("id").asText());
+            assertEquals(404, TestHttp.get(server, "/missing").send().status);
+
+            // Added after start, shadowed by the catch all
+            service.get("/late", (request, response) -> "late");
+            assertEquals(404, TestHttp.get(server, "/late").send().status);
+        } finally {
+            server.stop(Duration.ZERO);
+        }
+    }
+}
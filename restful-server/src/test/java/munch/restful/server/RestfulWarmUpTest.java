@@ -0,0 +1,79 @@
+package munch.restful.server;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RestfulWarmUpTest {
+    private static final CountDownLatch release = new CountDownLatch(1);
+    private static final AtomicInteger gets = new AtomicInteger();
+    private static final AtomicInteger searches = new AtomicInteger();
+
+    private static RestfulServer server;
+
+    @BeforeAll
+    static void start() {
+        server = new RestfulServer(Service.ignite(), new JsonService() {
+            @Override
+            public void route() {
+                GET("/places/:id", call -> {
+                    release.await(10, TimeUnit.SECONDS);
+                    return Map.of("id", call.pathString("id"), "count", gets.incrementAndGet());
+                });
+                POST("/places/search", call -> Map.of("count", searches.incrementAndGet()));
+            }
+        }).withWarmUp(RestfulWarmUp.builder()
+                .request("GET", "/places/123")
+                .unsafeRequest("POST", "/places/search", Map.of("text", "warm"))
+                .iterations(5)
+                .build());
+        server.start(0);
+        server.withHealth();
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(Duration.ZERO);
+    }
+
+    @Test
+    void gatesHealth() throws InterruptedException {
+        // Warm-up is held by the first GET, traffic is served meanwhile
+        assertEquals(503, health());
+        assertEquals(200, TestHttp.post(server, "/places/search").body("{}").send().status);
+        assertEquals(503, health());
+
+        release.countDown();
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (health() != 200 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(200, health());
+        assertEquals(5, gets.get());
+        assertEquals(6, searches.get());
+    }
+
+    @Test
+    void unsafeMethods() {
+        RestfulWarmUp.Builder builder = RestfulWarmUp.builder();
+        builder.request("get", "/places/1");
+        builder.request("HEAD", "/places/1");
+        assertThrows(IllegalArgumentException.class, () -> builder.request("POST", "/places"));
+        assertThrows(IllegalArgumentException.class, () -> builder.request("DELETE", "/places/1"));
+        builder.unsafeRequest("POST", "/places/search", null);
+    }
+
+    private static int health() {
+        return TestHttp.get(server, "/health/check").send().status;
+    }
+}
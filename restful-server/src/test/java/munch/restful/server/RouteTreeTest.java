@@ -0,0 +1,144 @@
+package munch.restful.server;
+
+import org.junit.jupiter.api.Test;
+import spark.RouteImpl;
+import spark.route.HttpMethod;
+import spark.route.Routes;
+import spark.routematch.RouteMatch;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RouteTreeTest {
+
+    @Test
+    void staticBeforeParam() {
+        RouteTree tree = tree("/users/:id", "/users/me");
+        assertMatch(tree, "/users/me", "/users/me", Map.of());
+        assertMatch(tree, "/users/1", "/users/:id", Map.of("id", "1"));
+
+        // Same regardless of the order registered
+        tree = tree("/users/me", "/users/:id");
+        assertMatch(tree, "/users/me", "/users/me", Map.of());
+        assertMatch(tree, "/users/1", "/users/:id", Map.of("id", "1"));
+    }
+
+    @Test
+    void backtrack() {
+        RouteTree tree = tree("/users/me", "/users/:id/posts", "/users/mentions/:id");
+        assertMatch(tree, "/users/me/posts", "/users/:id/posts", Map.of("id", "me"));
+        assertMatch(tree, "/users/mentions/2", "/users/mentions/:id", Map.of("id", "2"));
+        assertMatch(tree, "/users/mentions/posts", "/users/mentions/:id", Map.of("id", "posts"));
+        assertNull(tree.find("GET", "/users/mentions", null));
+    }
+
+    @Test
+    void paramBeforeWildcard() {
+        RouteTree tree = tree("/files/*", "/files/:name", "/files/:name/meta");
+        assertMatch(tree, "/files/a", "/files/:name", Map.of("name", "a"));
+        assertMatch(tree, "/files/a/meta", "/files/:name/meta", Map.of("name", "a"));
+        assertMatch(tree, "/files/a/b/c", "/files/*", Map.of());
+    }
+
+    @Test
+    void prefixes() {
+        RouteTree tree = tree("/user", "/users", "/users/:id", "/usage");
+        assertMatch(tree, "/user", "/user", Map.of());
+        assertMatch(tree, "/users", "/users", Map.of());
+        assertMatch(tree, "/usage", "/usage", Map.of());
+        assertNull(tree.find("GET", "/use", null));
+        assertNull(tree.find("GET", "/users/", null));
+        assertNull(tree.find("GET", "/userss", null));
+    }
+
+    @Test
+    void params() {
+        RouteTree tree = tree("/places/:placeId/images/:ImageId", "/*/any/:id");
+        assertMatch(tree, "/places/p1/images/i%202", "/places/:placeId/images/:ImageId", Map.of("placeid", "p1", "imageid", "i 2"));
+        assertMatch(tree, "/x/any/3", "/*/any/:id", Map.of("id", "3"));
+    }
+
+    @Test
+    void methods() {
+        RouteTree tree = new RouteTree();
+        tree.add("GET", "/items", "*/*", (req, res) -> "get");
+        tree.add("POST", "/items", "*/*", (req, res) -> "post");
+        assertEquals("get", handle(tree.find("GET", "/items", null)));
+        assertEquals("post", handle(tree.find("POST", "/items", null)));
+        assertNull(tree.find("PUT", "/items", null));
+    }
+
+    @Test
+    void acceptType() {
+        RouteTree tree = new RouteTree();
+        tree.add("GET", "/items", "application/json", (req, res) -> "json");
+        tree.add("GET", "/items", "text/html", (req, res) -> "html");
+        tree.add("GET", "/items", "application/json", (req, res) -> "duplicate");
+        assertEquals("json", handle(tree.find("GET", "/items", "application/json")));
+        assertEquals("html", handle(tree.find("GET", "/items", "text/html")));
+        assertEquals("json", handle(tree.find("GET", "/items", null)));
+        assertNull(tree.find("GET", "/items", "image/png"));
+    }
+
+    /**
+     * Without templates competing for a path, the tree matches the same template as spark
+     */
+    @Test
+    void sameAsSpark() {
+        List<String> templates = List.of("/", "/users", "/users/:id", "/users/:id/posts", "/users/:id/posts/:postId",
+                "/places/:id/images", "/places/search", "/files/*", "/v1/:a/:b/:c");
+        RouteTree tree = tree(templates.toArray(new String[0]));
+        Routes spark = Routes.create();
+        for (String template : templates) {
+            spark.add(HttpMethod.get, RouteImpl.create(template, (req, res) -> template));
+        }
+
+        List<String> paths = List.of("/", "/users", "/users/1", "/users/1/posts", "/users/1/posts/2", "/users/1/posts/2/3",
+                "/places/1/images", "/places/search", "/places", "/files/a", "/files/a/b", "/v1/a/b/c", "/v1/a/b", "/missing");
+        for (String path : paths) {
+            RouteMatch expected = spark.find(HttpMethod.get, path, "*/*");
+            RouteTree.Match actual = tree.find("GET", path, "*/*");
+            assertEquals(expected == null ? null : expected.getMatchUri(), actual == null ? null : actual.template, path);
+        }
+    }
+
+    /**
+     * Spark matches the first route registered, the tree matches the most specific
+     */
+    @Test
+    void precedenceOverSpark() {
+        Routes spark = Routes.create();
+        spark.add(HttpMethod.get, RouteImpl.create("/users/:id", (req, res) -> null));
+        spark.add(HttpMethod.get, RouteImpl.create("/users/me", (req, res) -> null));
+        assertEquals("/users/:id", spark.find(HttpMethod.get, "/users/me", "*/*").getMatchUri());
+
+        RouteTree tree = tree("/users/:id", "/users/me");
+        assertEquals("/users/me", tree.find("GET", "/users/me", "*/*").template);
+    }
+
+    private static RouteTree tree(String... templates) {
+        RouteTree tree = new RouteTree();
+        for (String template : templates) {
+            tree.add("GET", template, "*/*", (req, res) -> template);
+        }
+        return tree;
+    }
+
+    private static void assertMatch(RouteTree tree, String path, String template, Map<String, String> params) {
+        RouteTree.Match match = tree.find("GET", path, null);
+        assertEquals(template, match == null ? null : match.template, path);
+        assertEquals(params, match.params, path);
+        assertEquals(template, handle(match));
+    }
+
+    private static Object handle(RouteTree.Match match) {
+        try {
+            return match.route.handle(null, null);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package munch.restful.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import munch.restful.core.JsonUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Raw HTTP request against a started RestfulServer, response body is read as is without decompression.
+ */
+final class TestHttp {
+    private final int port;
+    private final String method;
+    private final String path;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private byte[] body;
+    private boolean chunked;
+
+    private TestHttp(int port, String method, String path) {
+        this.port = port;
+        this.method = method;
+        this.path = path;
+    }
+
+    static TestHttp get(RestfulServer server, String path) {
+        return new TestHttp(server.getPort(), "GET", path);
+    }
+
+    static TestHttp post(RestfulServer server, String path) {
+        return new TestHttp(server.getPort(), "POST", path);
+    }
+
+    TestHttp header(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    TestHttp body(String json) {
+        return body(json.getBytes(StandardCharsets.UTF_8), JsonRoute.APP_JSON);
+    }
+
+    TestHttp body(byte[] body, String contentType) {
+        this.body = body;
+        return header("Content-Type", contentType);
+    }
+
+    /**
+     * Send the body chunked, without Content-Length
+     */
+    TestHttp chunked() {
+        this.chunked = true;
+        return this;
+    }
+
+    Response send() {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(5000);
+            connection.setReadTimeout(30000);
+            headers.forEach(connection::setRequestProperty);
+            if (body != null) {
+                connection.setDoOutput(true);
+                if (chunked) connection.setChunkedStreamingMode(256);
+                try (OutputStream output = connection.getOutputStream()) {
+                    output.write(body);
+                }
+            }
+
+            int status = connection.getResponseCode();
+            InputStream input = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            return new Response(status, connection, input == null ? new byte[0] : readAll(input));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        try (InputStream in = input) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+
+    static final class Response {
+        final int status;
+        final byte[] body;
+        private final HttpURLConnection connection;
+
+        private Response(int status, HttpURLConnection connection, byte[] body) {
+            this.status = status;
+            this.connection = connection;
+            this.body = body;
+        }
+
+        String header(String name) {
+            return connection.getHeaderField(name);
+        }
+
+        String text() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+
+        JsonNode json() {
+            return JsonUtils.jsonToTree(text());
+        }
+    }
+}